@@ -0,0 +1,122 @@
+package logic;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Сервис фонового сохранения ведомостей в Excel.
+ * Сохранения выполняются по очереди в отдельном потоке через
+ * {@link ExcelExportService#writeExcel} (файлы .csv и .tsv - через
+ * {@link CsvExportService#writeCsv}, файлы .exam - через
+ * {@link BinaryRecordService#writeRecord}), которые заменяют файл атомарно.
+ *
+ * <p>Если для файла уже есть сохранение, которое еще не началось,
+ * новый запрос не ставится в очередь, а заменяет данные ожидающего:
+ * при частых сохранениях записывается только последняя версия.
+ * Все объединенные запросы завершаются вместе с ним и получают
+ * записанную версию, по которой видно, что их данные заменены.</p>
+ *
+ * @version 1.4
+ * @author Маленков Станислав Владимирович
+ */
+public class AsyncSaveService {
+
+    /**
+     * Ожидающее сохранение файла.
+     */
+    private static class SaveRequest {
+        private final File target;
+        private ExamRecord record;      // Последняя версия данных
+        private String email;
+        private final List<CompletableFuture<ExamRecord>> futures = new ArrayList<>();
+
+        SaveRequest(File target) {
+            this.target = target;
+        }
+    }
+
+    private final ExecutorService executor;
+    private final Map<File, SaveRequest> pending = new HashMap<>(); // Еще не начатые сохранения
+
+    /**
+     * Создает сервис с одним фоновым потоком.
+     */
+    public AsyncSaveService() {
+        this.executor = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "excel-save");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Ставит сохранение ведомости в очередь.
+     * Ведомость не должна изменяться после передачи (передавайте снимок
+     * {@link ExamRecord#snapshot()}).
+     *
+     * @param record - данные экзамена
+     * @param email  - email для отправки
+     * @param target - файл для сохранения
+     * @return CompletableFuture<ExamRecord> - завершается после записи файла записанной
+     *         версией (record или более новой, заменившей его) или исключением IOException
+     */
+    public synchronized CompletableFuture<ExamRecord> save(ExamRecord record, String email, File target) {
+        File key = target.getAbsoluteFile();
+        CompletableFuture<ExamRecord> future = new CompletableFuture<>();
+
+        SaveRequest request = pending.get(key);
+        if (request == null) {
+            request = new SaveRequest(key);
+            pending.put(key, request);
+            SaveRequest queued = request;
+            executor.execute(() -> write(queued));
+        }
+        request.record = record; // Более новая версия заменяет ожидающую
+        request.email = email;
+        request.futures.add(future);
+        return future;
+    }
+
+    /**
+     * Дожидается окончания всех поставленных сохранений.
+     */
+    public void awaitIdle() {
+        CompletableFuture.runAsync(() -> { }, executor).join();
+    }
+
+    /**
+     * Выполняет сохранение в фоновом потоке.
+     */
+    private void write(SaveRequest request) {
+        ExamRecord record;
+        String email;
+        List<CompletableFuture<ExamRecord>> futures;
+        synchronized (this) {
+            pending.remove(request.target); // Дальнейшие запросы попадут в новое сохранение
+            record = request.record;
+            email = request.email;
+            futures = new ArrayList<>(request.futures);
+        }
+
+        try {
+            String path = request.target.getPath();
+            if (BinaryRecordService.isBinaryFile(path)) {
+                BinaryRecordService.writeRecord(record, email, path);
+            } else if (CsvExportService.isCsvFile(path)) {
+                CsvExportService.writeCsv(record, email, path);
+            } else {
+                ExcelExportService.writeExcel(record, email, path);
+            }
+            futures.forEach(future -> future.complete(record));
+        } catch (IOException | RuntimeException e) {
+            futures.forEach(future -> future.completeExceptionally(e));
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package logic;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Результат пакетного импорта каталога.
+ * Хранит результаты по каждому файлу и показатели производительности:
+ * файлов и строк в секунду, перцентили времени обработки файла.
+ *
+ * @version 1.0
+ * @author Маленков Станислав Владимирович
+ */
+public class BatchImportReport {
+
+    /**
+     * Результат импорта одного файла.
+     */
+    public static class FileResult {
+        private final File file;                  // Исходный файл
+        private final ExcelImportResult result;   // Результат импорта (null при ошибке)
+        private final String error;               // Текст ошибки (null при успехе)
+        private final long latencyMillis;         // Время обработки файла (мс)
+
+        FileResult(File file, ExcelImportResult result, String error, long latencyMillis) {
+            this.file = file;
+            this.result = result;
+            this.error = error;
+            this.latencyMillis = latencyMillis;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public ExcelImportResult getResult() {
+            return result;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public long getLatencyMillis() {
+            return latencyMillis;
+        }
+
+        /**
+         * Проверяет, успешно ли импортирован файл.
+         *
+         * @return boolean - true если файл прочитан без ошибок
+         */
+        public boolean isSuccessful() {
+            return error == null;
+        }
+    }
+
+    private final List<FileResult> files;   // Результаты в порядке путей файлов
+    private final long elapsedMillis;       // Общее время импорта (мс)
+
+    /**
+     * Создает отчет о пакетном импорте.
+     *
+     * @param files         - результаты по файлам
+     * @param elapsedMillis - общее время импорта в миллисекундах
+     */
+    BatchImportReport(List<FileResult> files, long elapsedMillis) {
+        this.files = Collections.unmodifiableList(files);
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * Возвращает результаты по всем файлам.
+     *
+     * @return List<FileResult> - результаты в порядке путей файлов
+     */
+    public List<FileResult> getFiles() {
+        return files;
+    }
+
+    /**
+     * Собирает ведомости из успешно импортированных файлов.
+     *
+     * @return List<ExamRecord> - ведомости в порядке путей файлов
+     */
+    public List<ExamRecord> getRecords() {
+        List<ExamRecord> records = new ArrayList<>();
+        for (FileResult file : files) {
+            if (!file.isSuccessful()) continue;
+
+            ExcelImportResult result = file.getResult();
+            ExamRecord record = new ExamRecord(result.getSubject(), result.getDate());
+            for (Student student : result.getStudents()) {
+                record.addStudent(student);
+            }
+            records.add(record);
+        }
+        return records;
+    }
+
+    /**
+     * Возвращает количество файлов, которые не удалось импортировать.
+     *
+     * @return int - количество файлов с ошибками
+     */
+    public int getFailedCount() {
+        int failed = 0;
+        for (FileResult file : files) {
+            if (!file.isSuccessful()) failed++;
+        }
+        return failed;
+    }
+
+    /**
+     * Возвращает общее количество импортированных студентов.
+     *
+     * @return long - количество строк со студентами
+     */
+    public long getTotalRows() {
+        long rows = 0;
+        for (FileResult file : files) {
+            if (file.isSuccessful()) rows += file.getResult().getStudents().size();
+        }
+        return rows;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * Возвращает пропускную способность по файлам.
+     *
+     * @return double - файлов в секунду
+     */
+    public double getFilesPerSecond() {
+        return perSecond(files.size());
+    }
+
+    /**
+     * Возвращает пропускную способность по строкам.
+     *
+     * @return double - строк со студентами в секунду
+     */
+    public double getRowsPerSecond() {
+        return perSecond(getTotalRows());
+    }
+
+    /**
+     * Возвращает перцентиль времени обработки файла (метод ближайшего ранга).
+     *
+     * @param percentile - перцентиль от 0 до 100
+     * @return long - время в миллисекундах или 0, если файлов нет
+     */
+    public long getLatencyPercentile(double percentile) {
+        if (files.isEmpty()) return 0;
+
+        long[] latencies = new long[files.size()];
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = files.get(i).getLatencyMillis();
+        }
+        Arrays.sort(latencies);
+
+        int rank = (int) Math.ceil(percentile / 100.0 * latencies.length);
+        return latencies[Math.max(0, Math.min(rank, latencies.length) - 1)];
+    }
+
+    /**
+     * Форматирует отчет для показа пользователю.
+     *
+     * @return String - текст отчета
+     */
+    public String format() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(
+                "ПАКЕТНЫЙ ИМПОРТ:\n" +
+                        "Файлов: %d (с ошибками: %d)\n" +
+                        "Студентов: %d\n" +
+                        "Общее время: %d мс\n" +
+                        "Файлов в секунду: %.1f\n" +
+                        "Строк в секунду: %.0f\n" +
+                        "Время на файл: p50 %d мс, p90 %d мс, p99 %d мс, макс. %d мс\n",
+                files.size(), getFailedCount(), getTotalRows(), elapsedMillis,
+                getFilesPerSecond(), getRowsPerSecond(),
+                getLatencyPercentile(50), getLatencyPercentile(90),
+                getLatencyPercentile(99), getLatencyPercentile(100)));
+
+        for (FileResult file : files) {
+            if (!file.isSuccessful()) {
+                sb.append("\nОшибка: ").append(file.getFile().getName()).append(" - ").append(file.getError());
+            }
+        }
+        return sb.toString();
+    }
+
+    private double perSecond(long count) {
+        return elapsedMillis > 0 ? count * 1000.0 / elapsedMillis : 0;
+    }
+}
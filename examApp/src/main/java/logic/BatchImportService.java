@@ -0,0 +1,154 @@
+package logic;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Сервис пакетного импорта каталога с файлами ведомостей.
+ * Файлы .xlsx и .xls из каталога и его подкаталогов читаются параллельно
+ * через {@link ExcelExportService#readExcelFile}. Число одновременно
+ * читаемых файлов ограничено, а перед чтением каждого файла резервируется
+ * оценка нужной ему памяти из общего бюджета.
+ *
+ * @version 1.0
+ * @author Маленков Станислав Владимирович
+ */
+public class BatchImportService {
+    private static final int KILOBYTE = 1024;
+
+    // Во сколько раз память для разбора больше размера файла (оценка)
+    private static final int XLSX_MEMORY_FACTOR = 50;       // Книга .xlsx целиком в памяти
+    private static final int XLS_MEMORY_FACTOR = 10;        // Книга .xls целиком в памяти
+    private static final int STREAMING_MEMORY_FACTOR = 4;   // Общие строки и список студентов
+
+    /**
+     * Импортирует все файлы Excel каталога с настройками по умолчанию:
+     * по одному файлу на ядро, бюджет памяти - половина доступной JVM.
+     *
+     * @param directory - каталог с файлами ведомостей
+     * @return BatchImportReport - результаты и показатели импорта
+     * @throws IOException - если каталог не удалось прочитать
+     */
+    public static BatchImportReport importDirectory(File directory) throws IOException {
+        return importDirectory(directory, Runtime.getRuntime().availableProcessors(),
+                Runtime.getRuntime().maxMemory() / 2);
+    }
+
+    /**
+     * Импортирует все файлы Excel каталога.
+     * Ошибка чтения отдельного файла не прерывает импорт и попадает в отчет.
+     *
+     * @param directory         - каталог с файлами ведомостей
+     * @param maxParallelFiles  - наибольшее число одновременно читаемых файлов
+     * @param memoryBudgetBytes - бюджет памяти на одновременно читаемые файлы
+     * @return BatchImportReport - результаты и показатели импорта
+     * @throws IOException - если каталог не удалось прочитать
+     */
+    public static BatchImportReport importDirectory(File directory, int maxParallelFiles, long memoryBudgetBytes)
+            throws IOException {
+        if (maxParallelFiles < 1) {
+            throw new IllegalArgumentException("Число параллельных файлов должно быть больше нуля");
+        }
+
+        List<File> files = findExcelFiles(directory);
+        BatchImportReport.FileResult[] results = new BatchImportReport.FileResult[files.size()];
+
+        int budgetKb = (int) Math.min(Integer.MAX_VALUE, Math.max(1, memoryBudgetBytes / KILOBYTE));
+        Semaphore memory = new Semaphore(budgetKb);
+        Semaphore slots = new Semaphore(maxParallelFiles);
+        ExecutorService executor = Executors.newFixedThreadPool(maxParallelFiles);
+
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < files.size(); i++) {
+                File file = files.get(i);
+                int index = i;
+                // Очень большой файл читается один, занимая весь бюджет
+                int costKb = (int) Math.min(budgetKb, estimateMemory(file) / KILOBYTE + 1);
+
+                slots.acquire();
+                memory.acquire(costKb);
+                executor.execute(() -> {
+                    try {
+                        results[index] = importFile(file);
+                    } finally {
+                        memory.release(costKb);
+                        slots.release();
+                    }
+                });
+            }
+
+            // Дожидаемся окончания всех задач
+            slots.acquire(maxParallelFiles);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+            throw new IOException("Пакетный импорт прерван", e);
+        } finally {
+            executor.shutdown();
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) { // Задача завершилась с ошибкой JVM
+                results[i] = new BatchImportReport.FileResult(files.get(i), null, "Файл не прочитан", 0);
+            }
+        }
+        return new BatchImportReport(new ArrayList<>(Arrays.asList(results)), elapsedMillis);
+    }
+
+    /**
+     * Импортирует один файл, перехватывая ошибки чтения.
+     */
+    private static BatchImportReport.FileResult importFile(File file) {
+        long start = System.nanoTime();
+        try {
+            ExcelImportResult result = ExcelExportService.readExcelFile(file.getAbsolutePath(), null);
+            return new BatchImportReport.FileResult(file, result, null, elapsedMillis(start));
+        } catch (Exception e) {
+            String error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            return new BatchImportReport.FileResult(file, null, error, elapsedMillis(start));
+        }
+    }
+
+    /**
+     * Находит файлы Excel в каталоге и подкаталогах (временные файлы Excel "~$" пропускаются).
+     */
+    private static List<File> findExcelFiles(File directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory.toPath())) {
+            return paths.filter(Files::isRegularFile)
+                    .filter(path -> {
+                        String name = path.getFileName().toString().toLowerCase();
+                        return !name.startsWith("~$") && (name.endsWith(".xlsx") || name.endsWith(".xls"));
+                    })
+                    .sorted()
+                    .map(Path::toFile)
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Оценивает память, нужную для разбора файла.
+     */
+    private static long estimateMemory(File file) {
+        long size = file.length();
+        if (size > ExcelExportService.STREAMING_IMPORT_THRESHOLD) {
+            return size * STREAMING_MEMORY_FACTOR;
+        }
+        return size * (file.getName().toLowerCase().endsWith(".xlsx") ? XLSX_MEMORY_FACTOR : XLS_MEMORY_FACTOR);
+    }
+
+    private static long elapsedMillis(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
@@ -0,0 +1,326 @@
+package logic;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Сервис для сохранения ведомостей в собственном двоичном формате (.exam).
+ * Формат рассчитан на быстрое открытие больших ведомостей: файл
+ * отображается в память через {@link FileChannel#map}, а данные
+ * лежат колонками, поэтому чтение сводится к последовательному
+ * проходу по массивам без разбора текста.
+ *
+ * <p>Структура файла (числа - big-endian):</p>
+ * <pre>
+ * Заголовок (48 байт):
+ *   0  int   сигнатура "EXAM"
+ *   4  short версия формата
+ *   6  byte  ширина оценки в байтах (1 или 4)
+ *   7  byte  резерв
+ *   8  int   число студентов
+ *   12 int   число строк в таблице строк
+ *   16 long  смещение метаданных
+ *   24 long  смещение таблицы строк
+ *   32 long  смещение колонки ФИО
+ *   40 long  смещение колонки оценок
+ * Метаданные: предмет, дата, email - [int длина][байты UTF-8]
+ * Таблица строк: int[число строк + 1] смещений, затем байты UTF-8 строк
+ * Колонка ФИО: int[число студентов] - номера строк в таблице строк
+ * Колонка оценок: оценки по 1 байту (или по 4, если есть выходящие за байт)
+ * </pre>
+ *
+ * <p>Одинаковые ФИО хранятся в таблице строк один раз и при чтении
+ * становятся одним объектом String.</p>
+ *
+ * @version 1.0
+ * @author Маленков Станислав Владимирович
+ */
+public class BinaryRecordService {
+    private static final int MAGIC = 0x4558414D;        // "EXAM"
+    private static final short FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 48;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Расширение файлов двоичного формата.
+     */
+    public static final String EXTENSION = ".exam";
+
+    /**
+     * Проверяет, является ли файл ведомостью в двоичном формате.
+     *
+     * @param filePath - путь к файлу
+     * @return boolean - true для файлов .exam
+     */
+    public static boolean isBinaryFile(String filePath) {
+        return filePath.toLowerCase().endsWith(EXTENSION);
+    }
+
+    /* Запись */
+
+    /**
+     * Записывает ведомость в двоичный файл.
+     * Файл заменяется атомарно, как при экспорте в Excel.
+     * Метод можно вызывать из фонового потока.
+     *
+     * @param record   - данные экзамена
+     * @param email    - email для отправки
+     * @param filePath - путь для сохранения
+     * @throws IOException - при ошибке записи файла
+     */
+    public static void writeRecord(ExamRecord record, String email, String filePath) throws IOException {
+        List<Student> students = record.getStudents();
+        int count = students.size();
+
+        // Таблица строк: каждое ФИО кодируется один раз
+        Map<String, Integer> stringIndex = new HashMap<>();
+        List<byte[]> strings = new ArrayList<>();
+        int[] nameRefs = new int[count];
+        long stringBytes = 0;
+        boolean byteScores = true;
+
+        for (int i = 0; i < count; i++) {
+            Student student = students.get(i);
+            String name = student.getFullName() != null ? student.getFullName() : "";
+
+            Integer ref = stringIndex.get(name);
+            if (ref == null) {
+                ref = strings.size();
+                byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                strings.add(bytes);
+                stringIndex.put(name, ref);
+                stringBytes += bytes.length;
+            }
+            nameRefs[i] = ref;
+
+            int score = student.getScore();
+            byteScores &= score >= Byte.MIN_VALUE && score <= Byte.MAX_VALUE;
+        }
+        if (stringBytes > Integer.MAX_VALUE) {
+            throw new IOException("Слишком большая ведомость для двоичного формата");
+        }
+
+        byte[][] metadata = {
+                utf8(record.getSubject()), utf8(record.getDate()), utf8(email)
+        };
+        long metadataSize = 0;
+        for (byte[] value : metadata) {
+            metadataSize += 4 + value.length;
+        }
+
+        int scoreWidth = byteScores ? 1 : 4;
+        long metadataOffset = HEADER_SIZE;
+        long stringTableOffset = metadataOffset + metadataSize;
+        long namesOffset = stringTableOffset + 4L * (strings.size() + 1) + stringBytes;
+        long scoresOffset = namesOffset + 4L * count;
+
+        ExcelExportService.writeAtomically(filePath, channel -> {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+            buffer.putInt(MAGIC);
+            buffer.putShort(FORMAT_VERSION);
+            buffer.put((byte) scoreWidth);
+            buffer.put((byte) 0);
+            buffer.putInt(count);
+            buffer.putInt(strings.size());
+            buffer.putLong(metadataOffset);
+            buffer.putLong(stringTableOffset);
+            buffer.putLong(namesOffset);
+            buffer.putLong(scoresOffset);
+
+            for (byte[] value : metadata) {
+                ensureRemaining(channel, buffer, 4);
+                buffer.putInt(value.length);
+                putBytes(channel, buffer, value);
+            }
+
+            int offset = 0;
+            for (byte[] value : strings) {
+                ensureRemaining(channel, buffer, 4);
+                buffer.putInt(offset);
+                offset += value.length;
+            }
+            ensureRemaining(channel, buffer, 4);
+            buffer.putInt(offset);
+            for (byte[] value : strings) {
+                putBytes(channel, buffer, value);
+            }
+
+            for (int ref : nameRefs) {
+                ensureRemaining(channel, buffer, 4);
+                buffer.putInt(ref);
+            }
+
+            for (Student student : students) {
+                ensureRemaining(channel, buffer, 4);
+                if (scoreWidth == 1) {
+                    buffer.put((byte) student.getScore());
+                } else {
+                    buffer.putInt(student.getScore());
+                }
+            }
+
+            writeBuffer(channel, buffer);
+        });
+    }
+
+    private static byte[] utf8(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : new byte[0];
+    }
+
+    /**
+     * Записывает буфер в канал, если в нем меньше указанного места.
+     */
+    private static void ensureRemaining(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            writeBuffer(channel, buffer);
+        }
+    }
+
+    private static void putBytes(FileChannel channel, ByteBuffer buffer, byte[] value) throws IOException {
+        int offset = 0;
+        while (offset < value.length) {
+            if (!buffer.hasRemaining()) {
+                writeBuffer(channel, buffer);
+            }
+            int length = Math.min(buffer.remaining(), value.length - offset);
+            buffer.put(value, offset, length);
+            offset += length;
+        }
+    }
+
+    private static void writeBuffer(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /* Чтение */
+
+    /**
+     * Читает ведомость из двоичного файла без показа диалогов.
+     * Файл отображается в память целиком; строки таблицы строк
+     * декодируются по одному разу. Каждый студент передается слушателю.
+     * Метод можно вызывать из фонового потока.
+     *
+     * @param filePath        - путь к файлу
+     * @param studentListener - получатель студентов в порядке следования (может быть null)
+     * @return ExcelImportResult - результат импорта
+     * @throws IOException - при ошибке чтения, неизвестной версии или поврежденном файле
+     */
+    public static ExcelImportResult readRecordFile(String filePath, Consumer<Student> studentListener)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IOException("Файл не является ведомостью в двоичном формате");
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Слишком большой файл ведомости");
+            }
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return readRecord(map, studentListener);
+        }
+    }
+
+    private static ExcelImportResult readRecord(ByteBuffer map, Consumer<Student> studentListener)
+            throws IOException {
+        if (map.getInt(0) != MAGIC) {
+            throw new IOException("Файл не является ведомостью в двоичном формате");
+        }
+        short version = map.getShort(4);
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Неподдерживаемая версия формата ведомости: " + version);
+        }
+
+        int scoreWidth = map.get(6);
+        int count = map.getInt(8);
+        int stringCount = map.getInt(12);
+        int metadataOffset = checkOffset(map, map.getLong(16), 0);
+        int stringTableOffset = checkOffset(map, map.getLong(24), 4L * ((long) stringCount + 1));
+        int namesOffset = checkOffset(map, map.getLong(32), 4L * count);
+        int scoresOffset = checkOffset(map, map.getLong(40), (long) scoreWidth * count);
+        if (count < 0 || stringCount < 0 || (scoreWidth != 1 && scoreWidth != 4)) {
+            throw corrupted();
+        }
+
+        // Метаданные
+        String[] metadata = new String[3];
+        int position = metadataOffset;
+        for (int i = 0; i < metadata.length; i++) {
+            int length = map.getInt(checkOffset(map, position, 4));
+            metadata[i] = decode(map, checkOffset(map, position + 4L, length), length);
+            position += 4 + length;
+        }
+
+        // Таблица строк: байты копируются одним вызовом
+        int dataOffset = stringTableOffset + 4 * (stringCount + 1);
+        int dataLength = map.getInt(stringTableOffset + 4 * stringCount);
+        checkOffset(map, dataOffset, dataLength);
+        byte[] data = new byte[dataLength];
+        map.get(dataOffset, data);
+
+        String[] strings = new String[stringCount];
+        int start = map.getInt(stringTableOffset);
+        for (int i = 0; i < stringCount; i++) {
+            int end = map.getInt(stringTableOffset + 4 * (i + 1));
+            if (start < 0 || end < start || end > dataLength) {
+                throw corrupted();
+            }
+            strings[i] = new String(data, start, end - start, StandardCharsets.UTF_8);
+            start = end;
+        }
+
+        // Колонки ФИО и оценок
+        List<Student> students = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int ref = map.getInt(namesOffset + 4 * i);
+            if (ref < 0 || ref >= stringCount) {
+                throw corrupted();
+            }
+            int score = scoreWidth == 1 ? map.get(scoresOffset + i) : map.getInt(scoresOffset + 4 * i);
+
+            Student student = new Student(strings[ref], score);
+            students.add(student);
+            if (studentListener != null) {
+                studentListener.accept(student);
+            }
+        }
+
+        return new ExcelImportResult(metadata[0], metadata[1], metadata[2], students);
+    }
+
+    /**
+     * Проверяет, что область [offset, offset + length) лежит внутри файла.
+     *
+     * @return int - смещение области
+     */
+    private static int checkOffset(ByteBuffer map, long offset, long length) throws IOException {
+        if (offset < 0 || length < 0 || offset + length > map.limit()) {
+            throw corrupted();
+        }
+        return (int) offset;
+    }
+
+    private static String decode(ByteBuffer map, int offset, int length) {
+        byte[] bytes = new byte[length];
+        map.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static IOException corrupted() {
+        return new IOException("Файл ведомости поврежден");
+    }
+}
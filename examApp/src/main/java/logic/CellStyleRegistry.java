@@ -0,0 +1,156 @@
+package logic;
+
+import org.apache.poi.ss.usermodel.BorderStyle;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.IndexedColors;
+import org.apache.poi.ss.usermodel.Workbook;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Реестр стилей ячеек книги Excel.
+ * Стиль создается один раз для каждого набора атрибутов (жирность и цвет
+ * шрифта, цвет заливки, рамка) и затем выдается повторно, шрифты так же
+ * переиспользуются. Атрибуты берутся из конечного набора, поэтому число
+ * стилей в книге не зависит от числа строк и листов.
+ *
+ * @version 1.0
+ * @author Маленков Станислав Владимирович
+ */
+final class CellStyleRegistry {
+    private static final short NO_COLOR = -1;   // Цвет не задан
+
+    private final Workbook workbook;
+    private final Map<Long, CellStyle> styles = new HashMap<>();  // Стили по ключу атрибутов
+    private final Map<Integer, Font> fonts = new HashMap<>();     // Шрифты по ключу атрибутов
+
+    /**
+     * Создает реестр для книги.
+     *
+     * @param workbook - книга, в которой создаются стили
+     */
+    CellStyleRegistry(Workbook workbook) {
+        this.workbook = workbook;
+    }
+
+    /* Стили ведомости */
+
+    /**
+     * Стиль меток метаданных (жирный шрифт).
+     */
+    CellStyle getLabelStyle() {
+        return getStyle(true, NO_COLOR, NO_COLOR, BorderStyle.NONE);
+    }
+
+    /**
+     * Стиль значений метаданных (желтый фон).
+     */
+    CellStyle getValueStyle() {
+        return getStyle(false, NO_COLOR, IndexedColors.LIGHT_YELLOW.getIndex(), BorderStyle.NONE);
+    }
+
+    /**
+     * Стиль заголовка таблицы (серый фон, жирный шрифт, рамка).
+     */
+    CellStyle getHeaderStyle() {
+        return getStyle(true, NO_COLOR, IndexedColors.GREY_25_PERCENT.getIndex(), BorderStyle.MEDIUM);
+    }
+
+    /**
+     * Стиль итоговой строки (жирный темно-синий шрифт).
+     */
+    CellStyle getSummaryStyle() {
+        return getStyle(true, IndexedColors.DARK_BLUE.getIndex(), NO_COLOR, BorderStyle.NONE);
+    }
+
+    /**
+     * Стиль строки студента по результату аттестации:
+     * сдавшие - зеленый фон, не сдавшие - розовый, без оценки - без оформления.
+     *
+     * @param student - студент
+     * @return CellStyle - стиль строки или null, если оформление не нужно
+     */
+    CellStyle getStudentRowStyle(Student student) {
+        if (!student.hasGrade()) {
+            return null;
+        }
+        short fill = student.isPassed() ? IndexedColors.LIGHT_GREEN.getIndex() : IndexedColors.ROSE.getIndex();
+        return getStyle(false, NO_COLOR, fill, BorderStyle.NONE);
+    }
+
+    /**
+     * Возвращает количество созданных стилей.
+     *
+     * @return int - количество стилей
+     */
+    int getStyleCount() {
+        return styles.size();
+    }
+
+    /* Создание стилей */
+
+    /**
+     * Возвращает стиль с указанными атрибутами, создавая его только при первом запросе.
+     *
+     * @param bold      - жирный шрифт
+     * @param fontColor - индекс цвета шрифта или NO_COLOR
+     * @param fillColor - индекс цвета заливки или NO_COLOR
+     * @param border    - рамка со всех сторон
+     * @return CellStyle - общий стиль книги
+     */
+    CellStyle getStyle(boolean bold, short fontColor, short fillColor, BorderStyle border) {
+        long key = ((long) fontKey(bold, fontColor) << 32) |
+                ((fillColor & 0xFFFFL) << 16) | border.getCode();
+
+        CellStyle style = styles.get(key);
+        if (style == null) {
+            style = createStyle(bold, fontColor, fillColor, border);
+            styles.put(key, style);
+        }
+        return style;
+    }
+
+    private CellStyle createStyle(boolean bold, short fontColor, short fillColor, BorderStyle border) {
+        CellStyle style = workbook.createCellStyle();
+
+        if (bold || fontColor != NO_COLOR) {
+            style.setFont(getFont(bold, fontColor));
+        }
+        if (fillColor != NO_COLOR) {
+            style.setFillForegroundColor(fillColor);
+            style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+        }
+        if (border != BorderStyle.NONE) {
+            style.setBorderTop(border);
+            style.setBorderBottom(border);
+            style.setBorderLeft(border);
+            style.setBorderRight(border);
+        }
+        return style;
+    }
+
+    /**
+     * Возвращает общий шрифт с указанными атрибутами.
+     */
+    private Font getFont(boolean bold, short color) {
+        int key = fontKey(bold, color);
+
+        Font font = fonts.get(key);
+        if (font == null) {
+            font = workbook.createFont();
+            font.setBold(bold);
+            if (color != NO_COLOR) {
+                font.setColor(color);
+            }
+            fonts.put(key, font);
+        }
+        return font;
+    }
+
+    private static int fontKey(boolean bold, short color) {
+        return (bold ? 1 << 16 : 0) | (color & 0xFFFF);
+    }
+}
@@ -0,0 +1,167 @@
+package logic;
+
+import org.apache.poi.ss.usermodel.Sheet;
+
+/**
+ * Оценка ширины колонок листа без шрифтовых метрик AWT.
+ * Ширина текста считается по таблицам ширины символов шрифта Calibri 11
+ * (шрифт книги по умолчанию) с учетом кириллицы. Ширина каждой ячейки
+ * учитывается в момент записи, поэтому подбор ширины не требует повторного
+ * обхода листа и работает и при потоковом экспорте, и без графической
+ * подсистемы.
+ *
+ * <p>Ширина символа задается в долях ширины цифры "0" - в тех же единицах
+ * Excel измеряет ширину колонки.</p>
+ *
+ * @version 1.0
+ * @author Маленков Станислав Владимирович
+ */
+final class ColumnWidthEstimator {
+    private static final float PADDING = 1f;            // Поля ячейки (в ширинах цифры)
+    private static final float BOLD_FACTOR = 1.07f;     // Жирный шрифт немного шире
+    private static final int MAX_WIDTH = 255 * 256;     // Предельная ширина колонки в Excel
+
+    private static final float[] ASCII_WIDTHS = new float[128];    // Символы 0x00-0x7F
+    private static final float[] CYRILLIC_WIDTHS = new float[96];  // Символы 0x400-0x45F
+
+    static {
+        // Латиница, цифры и знаки препинания (ширина в пикселях при ширине цифры 7)
+        fill(ASCII_WIDTHS, " ", 3f);
+        fill(ASCII_WIDTHS, "!'.,:;|", 3f);
+        fill(ASCII_WIDTHS, "\"()-[]`{}", 4f);
+        fill(ASCII_WIDTHS, "*/\\", 5f);
+        fill(ASCII_WIDTHS, "0123456789#$+<=>?^_~", 7f);
+        fill(ASCII_WIDTHS, "%&", 10f);
+        fill(ASCII_WIDTHS, "@", 13f);
+        fill(ASCII_WIDTHS, "ijl", 3f);
+        fill(ASCII_WIDTHS, "frt", 4.5f);
+        fill(ASCII_WIDTHS, "sz", 5.5f);
+        fill(ASCII_WIDTHS, "cekvxy", 6f);
+        fill(ASCII_WIDTHS, "abdghnopqu", 7f);
+        fill(ASCII_WIDTHS, "w", 10f);
+        fill(ASCII_WIDTHS, "m", 11f);
+        fill(ASCII_WIDTHS, "IJ", 4f);
+        fill(ASCII_WIDTHS, "FLST", 6.5f);
+        fill(ASCII_WIDTHS, "EKPRYZ", 7.5f);
+        fill(ASCII_WIDTHS, "ABCVX", 8f);
+        fill(ASCII_WIDTHS, "DGHNOQU", 9f);
+        fill(ASCII_WIDTHS, "M", 12f);
+        fill(ASCII_WIDTHS, "W", 13.5f);
+
+        // Кириллица: прописные (0x410-0x42F), строчные (0x430-0x44F), Ё и ё
+        fill(CYRILLIC_WIDTHS, "ГЗЭ", 6.5f);
+        fill(CYRILLIC_WIDTHS, "БВЕЁЛПРСТУЧЬ", 7.5f);
+        fill(CYRILLIC_WIDTHS, "АИЙКНОХЦЯЪ", 8.5f);
+        fill(CYRILLIC_WIDTHS, "ДФЫ", 10f);
+        fill(CYRILLIC_WIDTHS, "МЮ", 11.5f);
+        fill(CYRILLIC_WIDTHS, "ЖШЩ", 12.5f);
+        fill(CYRILLIC_WIDTHS, "гзсэ", 5.5f);
+        fill(CYRILLIC_WIDTHS, "веёкчья", 6f);
+        fill(CYRILLIC_WIDTHS, "абийлнопрутхъ", 7f);
+        fill(CYRILLIC_WIDTHS, "дц", 7.5f);
+        fill(CYRILLIC_WIDTHS, "фы", 9f);
+        fill(CYRILLIC_WIDTHS, "мю", 9.5f);
+        fill(CYRILLIC_WIDTHS, "жшщ", 10.5f);
+    }
+
+    private final float[] widths;   // Наибольшая ширина текста по колонкам (в ширинах цифры)
+
+    /**
+     * Создает оценщик для указанного числа колонок.
+     *
+     * @param columns - количество колонок
+     */
+    ColumnWidthEstimator(int columns) {
+        this.widths = new float[columns];
+    }
+
+    /**
+     * Учитывает текст ячейки.
+     *
+     * @param column - номер колонки
+     * @param text   - текст ячейки
+     * @param bold   - true для жирного шрифта
+     */
+    void track(int column, String text, boolean bold) {
+        if (column < 0 || column >= widths.length || text == null) return;
+
+        float width = textWidth(text);
+        if (bold) {
+            width *= BOLD_FACTOR;
+        }
+        if (width > widths[column]) {
+            widths[column] = width;
+        }
+    }
+
+    /**
+     * Учитывает числовую ячейку (в том виде, в каком ее покажет Excel).
+     *
+     * @param column - номер колонки
+     * @param value  - значение ячейки
+     */
+    void track(int column, double value) {
+        track(column, ExcelExportService.formatNumericValue(value), false);
+    }
+
+    /**
+     * Устанавливает ширину колонок листа по учтенным значениям.
+     * Колонки без значений не изменяются.
+     *
+     * @param sheet - лист книги
+     */
+    void apply(Sheet sheet) {
+        for (int column = 0; column < widths.length; column++) {
+            if (widths[column] > 0) {
+                sheet.setColumnWidth(column, getWidth(column));
+            }
+        }
+    }
+
+    /**
+     * Возвращает оценку ширины колонки в единицах Excel (1/256 ширины цифры).
+     *
+     * @param column - номер колонки
+     * @return int - ширина колонки
+     */
+    int getWidth(int column) {
+        return Math.min(MAX_WIDTH, Math.round((widths[column] + PADDING) * 256));
+    }
+
+    /**
+     * Считает ширину строки в ширинах цифры.
+     */
+    static float textWidth(String text) {
+        float width = 0;
+        for (int i = 0; i < text.length(); i++) {
+            width += charWidth(text.charAt(i));
+        }
+        return width;
+    }
+
+    /**
+     * Возвращает ширину символа в ширинах цифры.
+     */
+    private static float charWidth(char c) {
+        if (c < ASCII_WIDTHS.length) {
+            return ASCII_WIDTHS[c];
+        }
+        if (c >= 0x400 && c < 0x400 + CYRILLIC_WIDTHS.length && CYRILLIC_WIDTHS[c - 0x400] > 0) {
+            return CYRILLIC_WIDTHS[c - 0x400];
+        }
+        if (c == '№') {
+            return 2f;
+        }
+        return Character.isIdeographic(c) ? 2f : 1f; // Прочие символы - как цифра
+    }
+
+    /**
+     * Заполняет таблицу ширин для набора символов.
+     */
+    private static void fill(float[] table, String chars, float pixels) {
+        int base = table == CYRILLIC_WIDTHS ? 0x400 : 0;
+        for (int i = 0; i < chars.length(); i++) {
+            table[chars.charAt(i) - base] = pixels / 7f; // Ширина цифры - 7 пикселей
+        }
+    }
+}
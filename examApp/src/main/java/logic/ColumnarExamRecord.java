@@ -0,0 +1,169 @@
+package logic;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.List;
+
+/**
+ * Экзаменационная ведомость с колоночным хранением ({@link StudentColumns})
+ * для очень больших ведомостей (сводные ведомости, архив за несколько лет).
+ * Оценки лежат в байтовом массиве, наличие оценки и результат - в битовых
+ * множествах, ФИО - в общем массиве UTF-8, поэтому студент занимает немногим
+ * больше длины своего ФИО вместо отдельных объектов студента и строки.
+ *
+ * <p>Интерфейс тот же, что у {@link ExamRecord}, с отличиями:</p>
+ * <ul>
+ *   <li>{@link #addStudent} сохраняет значения студента, а не сам объект:
+ *       дальнейшие изменения переданного объекта в ведомость не попадают;</li>
+ *   <li>{@link #getStudent} и {@link #getStudents()} выдают легковесные
+ *       представления: изменения через них сразу попадают в колонки.
+ *       Каждое обращение создает новое представление, поэтому представления
+ *       сравниваются через {@code equals}, а не {@code ==};</li>
+ *   <li>представление удаленного студента (в том числе после {@link #clear()})
+ *       бросает {@link IllegalStateException}; удаление других студентов
+ *       представление не затрагивает;</li>
+ *   <li>представления снимка изменять нельзя: они бросают
+ *       {@link UnsupportedOperationException}.</li>
+ * </ul>
+ *
+ * <p>Статистика, как и в списочной ведомости, берется из гистограммы за O(1).
+ * Снимок создается за O(1); первое после снимка изменение студента, видимого
+ * снимку, копирует затронутую колонку. При сериализации ведомость
+ * записывается так же, как списочная.</p>
+ *
+ * <p>Ведомость не потокобезопасна.</p>
+ *
+ * @version 1.0
+ * @author Маленков Станислав Владимирович
+ */
+public class ColumnarExamRecord extends ExamRecord {
+    private static final long serialVersionUID = 1L;
+
+    private transient StudentColumns columns; // Колонки студентов
+    private transient boolean snapshot;       // Ведомость - неизменяемый снимок
+
+    /**
+     * Создает новую колоночную ведомость.
+     *
+     * @param subject - название предмета
+     * @param date    - дата проведения
+     */
+    public ColumnarExamRecord(String subject, String date) {
+        super(subject, date);
+        this.columns = new StudentColumns();
+    }
+
+    /**
+     * Создает снимок ведомости.
+     *
+     * @param source - исходная ведомость
+     */
+    private ColumnarExamRecord(ColumnarExamRecord source) {
+        super(source.getSubject(), source.getDate());
+        this.columns = source.columns.freeze();
+        this.snapshot = true;
+    }
+
+    @Override
+    public ExamRecord snapshot() {
+        return snapshot ? this : new ColumnarExamRecord(this);
+    }
+
+    private void checkNotSnapshot() {
+        if (snapshot) {
+            throw new UnsupportedOperationException("Снимок ведомости изменять нельзя");
+        }
+    }
+
+    /* Основные операции со студентами */
+
+    /**
+     * Добавляет значения студента (ФИО и оценку) в ведомость.
+     *
+     * @param student - добавляемый студент
+     */
+    @Override
+    public void addStudent(Student student) {
+        checkNotSnapshot();
+        columns.add(student.getFullName(), student.getScore());
+    }
+
+    @Override
+    public void removeStudent(int index) {
+        checkNotSnapshot();
+        if (index >= 0 && index < columns.size()) {
+            columns.remove(index);
+        }
+    }
+
+    @Override
+    public void clear() {
+        checkNotSnapshot();
+        columns.clear();
+    }
+
+    /**
+     * Возвращает неизменяемый список представлений за O(1), без копирования.
+     * Список фиксирует состав ведомости на момент вызова; значения
+     * студентов читаются из колонок при обращении.
+     *
+     * @return List<Student> - неизменяемый список студентов
+     */
+    @Override
+    public List<Student> getStudents() {
+        return columns.students();
+    }
+
+    @Override
+    public Student getStudent(int index) {
+        return columns.view(index);
+    }
+
+    /* Статистика */
+
+    @Override
+    public ScoreHistogram getHistogram() {
+        return new ScoreHistogram(columns.histogram());
+    }
+
+    @Override
+    public int getTotalStudents() {
+        return columns.size();
+    }
+
+    @Override
+    public int getStudentsWithGrade() {
+        return columns.histogram().getTotal();
+    }
+
+    @Override
+    public int getPassedCount() {
+        return columns.histogram().getCountAtLeast(Student.PASSING_SCORE);
+    }
+
+    /* Геттеры и сеттеры */
+
+    @Override
+    public void setSubject(String subject) {
+        checkNotSnapshot();
+        super.setSubject(subject);
+    }
+
+    @Override
+    public void setDate(String date) {
+        checkNotSnapshot();
+        super.setDate(date);
+    }
+
+    /**
+     * Переносит в колонки студентов, прочитанных {@link ExamRecord} в свой список.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        columns = new StudentColumns();
+        for (Student student : super.getStudents()) {
+            columns.add(student.getFullName(), student.getScore());
+        }
+        super.clear();
+    }
+}
@@ -0,0 +1,294 @@
+package logic;
+
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Потокобезопасная экзаменационная ведомость.
+ * Изменения (добавление и удаление студентов, предмет, дата, оценки
+ * и ФИО студентов ведомости) выполняются под блокировкой записи {@link StampedLock}.
+ * Статистика читается оптимистично, без блокировки: значение считается
+ * по гистограмме и принимается, если за это время не было записи;
+ * иначе чтение повторяется под блокировкой чтения. Пока записи редки,
+ * чтение статистики не блокируется и не мешает записи.
+ *
+ * <p>Без блокировки читаются только поля: гистограмма, размер списка,
+ * предмет и дата; проход по списку без блокировки не выполняется.
+ * Признак {@link #isShared()} может измениться в любой момент (студента
+ * забрала другая ведомость), поэтому он проверяется после чтения гистограммы:
+ * если статистика уже считается проходом по списку, она читается
+ * под блокировкой чтения.</p>
+ *
+ * <p>Список студентов, отдельный студент и снимок выдаются под блокировкой
+ * чтения. Список и снимок неизменяемы и безопасны в любом потоке. Изменения
+ * студента синхронизированы, но его геттеры читают поля без синхронизации:
+ * из другого потока согласованные ФИО и оценку дает снимок ведомости.</p>
+ *
+ * <p>Порядок блокировок: монитор студента, затем блокировка ведомости.
+ * {@link Student#setScore} и {@link Student#setFullName} меняют студента через
+ * ведомость под монитором студента, поэтому добавление и удаление тоже сначала захватывают монитор студента;
+ * под блокировкой ведомости чужие мониторы не захватываются.</p>
+ *
+ * @version 1.4
+ * @author Маленков Станислав Владимирович
+ */
+public class ConcurrentExamRecord extends ExamRecord {
+    private static final long serialVersionUID = 1L;
+
+    private final StampedLock lock = new StampedLock(); // Блокировка ведомости
+
+    /**
+     * Создает новую потокобезопасную ведомость.
+     *
+     * @param subject - название предмета
+     * @param date    - дата проведения
+     */
+    public ConcurrentExamRecord(String subject, String date) {
+        super(subject, date);
+    }
+
+    /* Изменение */
+
+    @Override
+    public void addStudent(Student student) {
+        synchronized (student) {
+            long stamp = lock.writeLock();
+            try {
+                super.addStudent(student);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    @Override
+    public void removeStudent(int index) {
+        while (true) {
+            Student student;
+            long stamp = lock.readLock();
+            try {
+                if (index < 0 || index >= super.getTotalStudents()) {
+                    return;
+                }
+                student = super.getStudent(index);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+
+            synchronized (student) {
+                stamp = lock.writeLock();
+                try {
+                    // Пока монитор не был захвачен, список мог измениться
+                    if (index < super.getTotalStudents() && super.getStudent(index) == student) {
+                        super.removeStudent(index);
+                        return;
+                    }
+                } finally {
+                    lock.unlockWrite(stamp);
+                }
+            }
+        }
+    }
+
+    /**
+     * Удаляет студентов по одному, с конца: удаление захватывает монитор
+     * студента. Студенты, добавленные во время очистки, остаются.
+     */
+    @Override
+    public void clear() {
+        for (int i = getTotalStudents() - 1; i >= 0; i--) {
+            removeStudent(i);
+        }
+    }
+
+    /**
+     * Оценка и гистограмма меняются под одной блокировкой записи,
+     * поэтому снимок и статистика не видят одно без другого.
+     */
+    @Override
+    void updateScore(Student student, int score) {
+        long stamp = lock.writeLock();
+        try {
+            super.updateScore(student, score);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * ФИО меняется под блокировкой записи, поэтому снимок, который берется
+     * под блокировкой чтения, не застает изменение на середине.
+     */
+    @Override
+    void updateName(Student student, String fullName) {
+        long stamp = lock.writeLock();
+        try {
+            super.updateName(student, fullName);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void setSubject(String subject) {
+        long stamp = lock.writeLock();
+        try {
+            super.setSubject(subject);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void setDate(String date) {
+        long stamp = lock.writeLock();
+        try {
+            super.setDate(date);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /* Чтение под блокировкой */
+
+    @Override
+    public List<Student> getStudents() {
+        return locked(super::getStudents);
+    }
+
+    @Override
+    public Student getStudent(int index) {
+        return locked(() -> super.getStudent(index));
+    }
+
+    @Override
+    public ExamRecord snapshot() {
+        return locked(super::snapshot);
+    }
+
+    /* Оптимистичное чтение */
+
+    @Override
+    public ScoreHistogram getHistogram() {
+        return statistic(ScoreHistogram::new, super::getHistogram);
+    }
+
+    @Override
+    public int getTotalStudents() {
+        return optimisticInt(super::getTotalStudents);
+    }
+
+    @Override
+    public int getStudentsWithGrade() {
+        return statisticInt(ScoreHistogram::getTotal, super::getStudentsWithGrade);
+    }
+
+    @Override
+    public int getPassedCount() {
+        return statisticInt(histogram -> histogram.getCountAtLeast(Student.PASSING_SCORE), super::getPassedCount);
+    }
+
+    @Override
+    public int getFailedCount() {
+        // Оба счетчика - из одной версии ведомости
+        return statisticInt(histogram -> histogram.getCountBelow(Student.PASSING_SCORE),
+                () -> super.getStudentsWithGrade() - super.getPassedCount());
+    }
+
+    @Override
+    public int getStudentsWithoutGrade() {
+        return statisticInt(histogram -> super.getTotalStudents() - histogram.getTotal(),
+                () -> super.getTotalStudents() - super.getStudentsWithGrade());
+    }
+
+    @Override
+    public String getSubject() {
+        return optimistic(super::getSubject);
+    }
+
+    @Override
+    public String getDate() {
+        return optimistic(super::getDate);
+    }
+
+    /**
+     * Читает поле без блокировки; если за время чтения была запись -
+     * под блокировкой чтения. Читающий не должен проходить по списку.
+     */
+    private <T> T optimistic(Supplier<T> reader) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            T value = reader.get();
+            if (lock.validate(stamp)) {
+                return value;
+            }
+        }
+        return locked(reader);
+    }
+
+    /**
+     * То же для целых значений, без упаковки.
+     */
+    private int optimisticInt(IntSupplier reader) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            int value = reader.getAsInt();
+            if (lock.validate(stamp)) {
+                return value;
+            }
+        }
+        return lockedInt(reader);
+    }
+
+    /**
+     * Считает статистику по гистограмме без блокировки. Значение принимается,
+     * если за время чтения не было записи и гистограмма еще ведется;
+     * иначе статистика считается обычным способом под блокировкой чтения.
+     */
+    private <T> T statistic(Function<ScoreHistogram, T> reader, Supplier<T> fallback) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            T value = reader.apply(liveHistogram());
+            if (!isShared() && lock.validate(stamp)) {
+                return value;
+            }
+        }
+        return locked(fallback);
+    }
+
+    /**
+     * То же для целых значений, без упаковки.
+     */
+    private int statisticInt(ToIntFunction<ScoreHistogram> reader, IntSupplier fallback) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            int value = reader.applyAsInt(liveHistogram());
+            if (!isShared() && lock.validate(stamp)) {
+                return value;
+            }
+        }
+        return lockedInt(fallback);
+    }
+
+    private <T> T locked(Supplier<T> reader) {
+        long stamp = lock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private int lockedInt(IntSupplier reader) {
+        long stamp = lock.readLock();
+        try {
+            return reader.getAsInt();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+}
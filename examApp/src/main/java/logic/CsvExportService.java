@@ -0,0 +1,535 @@
+package logic;
+
+import javax.swing.*;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Сервис для экспорта и импорта ведомостей в текстовых форматах CSV и TSV.
+ * Предназначен для обмена оценками с внешними системами: файлы читаются
+ * и пишутся через каналы NIO с буферами, без Apache POI.
+ *
+ * <p>Разделитель выбирается по расширению: табуляция для .tsv,
+ * запятая для .csv. Поля с разделителем, кавычками, переводом строки
+ * или пробелами по краям заключаются в двойные кавычки (RFC 4180).
+ * Файлы пишутся в UTF-8 с меткой порядка байтов, чтобы Excel правильно
+ * показывал кириллицу; при чтении метка пропускается, а байты, не
+ * являющиеся UTF-8, считаются ошибкой.</p>
+ *
+ * <p>Расположение данных то же, что в листе Excel: строки метаданных
+ * ("Предмет:", "Дата аттестации:", "Email для отправки:"), пустая строка,
+ * заголовок таблицы и студенты. Строки итогов не пишутся. Строки при
+ * чтении разбираются тем же классификатором, что и листы Excel.</p>
+ *
+ * @version 1.2
+ * @author Маленков Станислав Владимирович
+ */
+public class CsvExportService {
+    static final int BYTE_BUFFER_SIZE = 64 * 1024;           // Блок чтения файла
+    static final int CHAR_BUFFER_SIZE = 16 * 1024;           // Блок разбора символов
+    private static final char BOM = '\uFEFF';      // Метка порядка байтов
+    private static final int MAX_NUMBER_DIGITS = 15;   // Точно представимы в double
+
+    private static final String[] HEADERS = {"№", "ФИО студента", "Оценка (0-10)", "Результат"};
+
+    /**
+     * Проверяет, является ли файл текстовой ведомостью (.csv или .tsv).
+     *
+     * @param filePath - путь к файлу
+     * @return boolean - true для файлов CSV и TSV
+     */
+    public static boolean isCsvFile(String filePath) {
+        String lowerPath = filePath.toLowerCase();
+        return lowerPath.endsWith(".csv") || lowerPath.endsWith(".tsv");
+    }
+
+    /**
+     * Возвращает разделитель полей для файла.
+     *
+     * @param filePath - путь к файлу
+     * @return char - табуляция для .tsv, запятая для остальных файлов
+     */
+    public static char getDelimiter(String filePath) {
+        return filePath.toLowerCase().endsWith(".tsv") ? '\t' : ',';
+    }
+
+    /* Экспорт */
+
+    /**
+     * Экспортирует данные ведомости в файл CSV или TSV.
+     *
+     * @param record   - данные экзамена
+     * @param email    - email для отправки
+     * @param filePath - путь для сохранения
+     * @return boolean - true если успешно
+     */
+    public static boolean exportToCsv(ExamRecord record, String email, String filePath) {
+        try {
+            writeCsv(record, email, filePath);
+            return true;
+        } catch (IOException e) {
+            showErrorDialog("Ошибка при сохранении файла: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Записывает ведомость в файл CSV или TSV без показа диалогов.
+     * Файл заменяется атомарно, как при экспорте в Excel.
+     * Метод можно вызывать из фонового потока.
+     *
+     * @param record   - данные экзамена
+     * @param email    - email для отправки
+     * @param filePath - путь для сохранения
+     * @throws IOException - при ошибке записи файла
+     */
+    public static void writeCsv(ExamRecord record, String email, String filePath) throws IOException {
+        char delimiter = getDelimiter(filePath);
+
+        ExcelExportService.writeAtomically(filePath, channel -> {
+            CsvWriter out = new CsvWriter(channel, delimiter);
+            out.writeChar(BOM);
+
+            out.writeField("Предмет:");
+            out.writeField(record.getSubject());
+            out.endRow();
+            out.writeField("Дата аттестации:");
+            out.writeField(record.getDate());
+            out.endRow();
+            out.writeField("Email для отправки:");
+            out.writeField(email);
+            out.endRow();
+            out.endRow(); // Пустая строка
+
+            for (String header : HEADERS) {
+                out.writeField(header);
+            }
+            out.endRow();
+
+            int number = 1;
+            for (Student student : record.getStudents()) {
+                out.writeNumber(number++);
+                out.writeField(student.getFullName());
+                if (student.hasGrade()) {
+                    out.writeNumber(student.getScore());
+                } else {
+                    out.writeField("Нет оценки");
+                }
+                out.writeField(student.getResultText());
+                out.endRow();
+            }
+            out.flush();
+        });
+    }
+
+    /* Импорт */
+
+    /**
+     * Импортирует данные из файла CSV или TSV.
+     *
+     * @param filePath - путь к файлу
+     * @return ExcelImportResult - результат импорта
+     */
+    public static ExcelImportResult importFromCsv(String filePath) {
+        try {
+            return readCsvFile(filePath, null);
+        } catch (IOException e) {
+            showErrorDialog("Ошибка при чтении файла CSV: " + e.getMessage());
+            return new ExcelImportResult();
+        }
+    }
+
+    /**
+     * Читает файл CSV или TSV без показа диалогов.
+     * Файл читается блоками через канал и разбирается посимвольно
+     * за один проход, без регулярных выражений и без строк для целых
+     * записей: строка создается только для текстового значения поля,
+     * числа разбираются прямо из буфера. Каждый распознанный студент
+     * сразу передается слушателю. Метод можно вызывать из фонового потока.
+     *
+     * @param filePath        - путь к файлу
+     * @param studentListener - получатель студентов в порядке следования (может быть null)
+     * @return ExcelImportResult - результат импорта
+     * @throws IOException - при ошибке чтения или если файл не в кодировке UTF-8
+     */
+    public static ExcelImportResult readCsvFile(String filePath, Consumer<Student> studentListener)
+            throws IOException {
+        SheetRowClassifier classifier = new SheetRowClassifier(studentListener);
+        CsvParser parser = new CsvParser(getDelimiter(filePath), classifier);
+
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        ByteBuffer bytes = ByteBuffer.allocate(BYTE_BUFFER_SIZE);
+        CharBuffer chars = CharBuffer.allocate(CHAR_BUFFER_SIZE);
+        long offset = 0; // Позиция начала буфера байтов в файле
+
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            boolean endOfInput = false;
+            while (!endOfInput) {
+                endOfInput = channel.read(bytes) < 0;
+                bytes.flip();
+
+                CoderResult coderResult;
+                do {
+                    coderResult = decoder.decode(bytes, chars, endOfInput);
+                    if (coderResult.isError()) {
+                        throw new IOException("Файл не в кодировке UTF-8 (байт " +
+                                (offset + bytes.position()) + ")");
+                    }
+                    chars.flip();
+                    parser.parse(chars);
+                    chars.clear();
+                } while (coderResult.isOverflow());
+
+                offset += bytes.position();
+                bytes.compact();
+            }
+
+            decoder.flush(chars);
+            chars.flip();
+            parser.parse(chars);
+        }
+
+        parser.finish();
+        return classifier.finish();
+    }
+
+    /**
+     * Посимвольный разбор CSV (конечный автомат).
+     * Символы поля накапливаются в общем массиве, поэтому поле
+     * может продолжаться в следующем блоке файла.
+     */
+    private static final class CsvParser {
+        private static final int FIELD_START = 0;   // Начало поля
+        private static final int UNQUOTED = 1;      // Поле без кавычек
+        private static final int QUOTED = 2;        // Внутри кавычек
+        private static final int QUOTE = 3;         // Кавычка внутри кавычек (конец или "")
+
+        private final char delimiter;
+        private final SheetRowClassifier classifier;
+        private final SheetRow row = new SheetRow();
+
+        private char[] field = new char[64];
+        private int fieldLength;
+        private boolean fieldQuoted;
+        private int column;
+        private int rowNum;
+        private int state = FIELD_START;
+        private boolean skipLineFeed;   // После \r пропускается \n
+        private boolean started;        // Метка порядка байтов уже проверена
+
+        CsvParser(char delimiter, SheetRowClassifier classifier) {
+            this.delimiter = delimiter;
+            this.classifier = classifier;
+            row.reset(0);
+        }
+
+        /**
+         * Разбирает очередной блок символов.
+         */
+        void parse(CharBuffer chars) {
+            char[] buffer = chars.array();
+            int end = chars.arrayOffset() + chars.limit();
+            int i = chars.arrayOffset() + chars.position();
+
+            if (!started && i < end) {
+                started = true;
+                if (buffer[i] == BOM) i++;
+            }
+
+            for (; i < end; i++) {
+                char c = buffer[i];
+                if (skipLineFeed) {
+                    skipLineFeed = false;
+                    if (c == '\n') continue;
+                }
+
+                switch (state) {
+                    case FIELD_START:
+                        if (c == '"') {
+                            fieldQuoted = true;
+                            state = QUOTED;
+                        } else if (c == delimiter) {
+                            endField();
+                        } else if (c == '\r' || c == '\n') {
+                            endRow(c);
+                        } else {
+                            append(c);
+                            state = UNQUOTED;
+                        }
+                        break;
+
+                    case UNQUOTED:
+                        if (c == delimiter) {
+                            endField();
+                        } else if (c == '\r' || c == '\n') {
+                            endRow(c);
+                        } else {
+                            append(c);
+                        }
+                        break;
+
+                    case QUOTED:
+                        if (c == '"') {
+                            state = QUOTE;
+                        } else {
+                            append(c); // В том числе перевод строки
+                        }
+                        break;
+
+                    default: // QUOTE
+                        if (c == '"') {
+                            append('"'); // Удвоенная кавычка
+                            state = QUOTED;
+                        } else if (c == delimiter) {
+                            endField();
+                        } else if (c == '\r' || c == '\n') {
+                            endRow(c);
+                        } else {
+                            append(c); // Текст после закрывающей кавычки
+                            state = UNQUOTED;
+                        }
+                        break;
+                }
+            }
+        }
+
+        /**
+         * Завершает разбор: последняя строка может не заканчиваться переводом строки.
+         */
+        void finish() {
+            if (column > 0 || fieldLength > 0 || state != FIELD_START) {
+                endRow('\n');
+            }
+        }
+
+        private void append(char c) {
+            if (fieldLength == field.length) {
+                char[] larger = new char[field.length * 2];
+                System.arraycopy(field, 0, larger, 0, fieldLength);
+                field = larger;
+            }
+            field[fieldLength++] = c;
+        }
+
+        /**
+         * Передает накопленное поле в строку листа.
+         * Поля в кавычках всегда текстовые, числа без кавычек разбираются без создания строки.
+         */
+        private void endField() {
+            int start = 0;
+            int end = fieldLength;
+            while (start < end && field[start] <= ' ') start++;
+            while (end > start && field[end - 1] <= ' ') end--;
+
+            if (start < end) {
+                if (fieldQuoted || !parseNumber(start, end)) {
+                    row.setCell(column, new String(field, start, end - start));
+                }
+            }
+
+            column++;
+            fieldLength = 0;
+            fieldQuoted = false;
+            state = FIELD_START;
+        }
+
+        /**
+         * Разбирает число вида [-]цифры[.цифры] и записывает его в ячейку.
+         *
+         * @return boolean - false если поле не является числом
+         */
+        private boolean parseNumber(int start, int end) {
+            boolean negative = field[start] == '-';
+            int i = negative ? start + 1 : start;
+            if (i == end) return false;
+
+            long value = 0;
+            long scale = 1;
+            int digits = 0;
+            boolean fraction = false;
+            for (; i < end; i++) {
+                char c = field[i];
+                if (c == '.' && !fraction && digits > 0 && i + 1 < end) {
+                    fraction = true;
+                } else if (c >= '0' && c <= '9' && digits < MAX_NUMBER_DIGITS) {
+                    value = value * 10 + (c - '0');
+                    digits++;
+                    if (fraction) scale *= 10;
+                } else {
+                    return false;
+                }
+            }
+
+            double number = scale == 1 ? value : (double) value / scale;
+            row.setNumber(column, negative ? -number : number);
+            return true;
+        }
+
+        private void endRow(char terminator) {
+            if (column > 0 || fieldLength > 0 || fieldQuoted) {
+                endField();
+            }
+            classifier.accept(row);
+
+            row.reset(++rowNum);
+            column = 0;
+            state = FIELD_START;
+            skipLineFeed = terminator == '\r';
+        }
+    }
+
+    /**
+     * Запись CSV в канал через буферы символов и байтов.
+     */
+    private static final class CsvWriter {
+        private final FileChannel channel;
+        private final char delimiter;
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)        // Непарные суррогаты
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private final CharBuffer chars = CharBuffer.allocate(CHAR_BUFFER_SIZE);
+        private final ByteBuffer bytes = ByteBuffer.allocate(BYTE_BUFFER_SIZE);
+        private final char[] digits = new char[11];
+        private boolean rowStarted;     // В строке уже есть поле
+
+        CsvWriter(FileChannel channel, char delimiter) {
+            this.channel = channel;
+            this.delimiter = delimiter;
+        }
+
+        /**
+         * Записывает текстовое поле, при необходимости в кавычках.
+         */
+        void writeField(String value) throws IOException {
+            startField();
+            if (value == null) return;
+
+            if (!needsQuotes(value)) {
+                writeChars(value);
+                return;
+            }
+            writeChar('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') writeChar('"');
+                writeChar(c);
+            }
+            writeChar('"');
+        }
+
+        /**
+         * Записывает целое число без создания строки.
+         */
+        void writeNumber(int value) throws IOException {
+            startField();
+            if (value < 0) {
+                writeChar('-');
+            }
+            long rest = Math.abs((long) value);
+            int length = 0;
+            do {
+                digits[length++] = (char) ('0' + rest % 10);
+                rest /= 10;
+            } while (rest > 0);
+            while (length > 0) {
+                writeChar(digits[--length]);
+            }
+        }
+
+        void endRow() throws IOException {
+            writeChar('\r');
+            writeChar('\n');
+            rowStarted = false;
+        }
+
+        private void startField() throws IOException {
+            if (rowStarted) {
+                writeChar(delimiter);
+            }
+            rowStarted = true;
+        }
+
+        private boolean needsQuotes(String value) {
+            if (value.isEmpty()) return false;
+            if (value.charAt(0) <= ' ' || value.charAt(value.length() - 1) <= ' ') return true;
+
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == delimiter || c == '"' || c == '\r' || c == '\n') {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void writeChars(String value) throws IOException {
+            int offset = 0;
+            while (offset < value.length()) {
+                if (!chars.hasRemaining()) {
+                    encode(false);
+                }
+                int count = Math.min(chars.remaining(), value.length() - offset);
+                chars.put(value, offset, offset + count);
+                offset += count;
+            }
+        }
+
+        void writeChar(char c) throws IOException {
+            if (!chars.hasRemaining()) {
+                encode(false);
+            }
+            chars.put(c);
+        }
+
+        /**
+         * Кодирует накопленные символы, записывая в канал заполненный буфер байтов.
+         */
+        private void encode(boolean endOfInput) throws IOException {
+            chars.flip();
+            while (true) {
+                CoderResult result = encoder.encode(chars, bytes, endOfInput);
+                if (result.isOverflow()) {
+                    writeBytes();
+                } else {
+                    break; // Суррогатная пара на границе блока остается в буфере
+                }
+            }
+            chars.compact();
+        }
+
+        void flush() throws IOException {
+            encode(true);
+            while (encoder.flush(bytes).isOverflow()) {
+                writeBytes();
+            }
+            writeBytes();
+        }
+
+        private void writeBytes() throws IOException {
+            bytes.flip();
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            bytes.clear();
+        }
+    }
+
+    /**
+     * Показывает диалог с ошибкой.
+     */
+    private static void showErrorDialog(String message) {
+        JOptionPane.showMessageDialog(null, message, "Ошибка", JOptionPane.ERROR_MESSAGE);
+    }
+}
@@ -0,0 +1,644 @@
+package logic;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал изменений ведомости (write-ahead log).
+ * Каждая правка таблицы и полей ведомости дописывается в конец двоичного
+ * файла журнала, поэтому несохраненные изменения переживают аварийное
+ * завершение программы. При следующем запуске журнал воспроизводится
+ * поверх последнего сохраненного файла; время восстановления зависит
+ * только от числа правок.
+ *
+ * <p>Записи копятся в памяти и сбрасываются на диск группами (group commit):
+ * фоновым потоком каждые {@value #FLUSH_INTERVAL_MS} мс или сразу, если
+ * накопилось больше {@value #MAX_BATCH_BYTES} байт. Каждая запись снабжена
+ * длиной и контрольной суммой, поэтому недописанный хвост после сбоя
+ * отбрасывается. После сохранения ведомости журнал сжимается до заголовка.</p>
+ *
+ * <p>При открытии журнал читается до первой записи, которая не прошла
+ * проверку длины или контрольной суммы; она и все следующие записи
+ * отбрасываются, так как без нее следующие правки указывали бы не на те
+ * строки. Если правку не удалось записать, журнал перестает принимать
+ * правки до следующего {@link #reset} и сообщает об этом получателю
+ * ошибок ({@link #setFailureListener}).</p>
+ *
+ * <p>Операции ссылаются на студентов по номеру строки, поэтому воспроизводить
+ * их можно только поверх того же содержимого базового файла. Заголовок хранит
+ * размер и время изменения базового файла на момент начала журнала;
+ * {@link #isBaseUnchanged()} сверяет их перед восстановлением. Если сохранение
+ * завершилось, когда после снимка уже были новые правки, журнал начинается
+ * от сохраненного файла с этими правками ({@link #rebase}).</p>
+ *
+ * <p>Формат: заголовок (сигнатура, версия, путь к базовому файлу, имя листа,
+ * размер и время изменения базового файла), затем записи
+ * [длина][операция и данные][CRC32]. Строки записываются как в
+ * {@link RecordCodec#writeString}: длина в UTF-8 переменной длины и байты.</p>
+ *
+ * @version 1.2
+ * @author Маленков Станислав Владимирович
+ */
+public final class EditJournal implements Closeable {
+    private static final int MAGIC = 0x45584A4C;        // "EXJL"
+    private static final int FORMAT_VERSION = 3;         // 3 - строки UTF-8 с длиной переменной длины
+    private static final long FLUSH_INTERVAL_MS = 200;
+    private static final int MAX_BATCH_BYTES = 64 * 1024;
+    private static final int MAX_RECORD_BYTES = 1 + 4 + 5 + RecordCodec.MAX_STRING_BYTES; // Операция, индекс, строка
+
+    /* Поля ведомости */
+    public static final int FIELD_SUBJECT = 0;
+    public static final int FIELD_DATE = 1;
+    public static final int FIELD_EMAIL = 2;
+
+    /* Коды операций */
+    private static final byte OP_ADD = 1;
+    private static final byte OP_REMOVE = 2;
+    private static final byte OP_SET_NAME = 3;
+    private static final byte OP_SET_SCORE = 4;
+    private static final byte OP_CLEAR = 5;
+    private static final byte OP_SET_FIELD = 6;
+
+    /**
+     * Получатель операций при воспроизведении журнала.
+     */
+    public interface Handler {
+        void studentAdded(String fullName, int score);
+
+        void studentRemoved(int index);
+
+        void nameChanged(int index, String fullName);
+
+        void scoreChanged(int index, int score);
+
+        void cleared();
+
+        void fieldChanged(int field, String value);
+    }
+
+    /**
+     * Отметка в журнале: сколько правок было записано от текущего
+     * базового файла к моменту снимка ведомости.
+     */
+    public static final class Mark {
+        private final long generation;
+        private final int editCount;
+
+        private Mark(long generation, int editCount) {
+            this.generation = generation;
+            this.editCount = editCount;
+        }
+    }
+
+    private final File file;
+    private final FileChannel channel;
+    private final Object writeLock = new Object();       // Порядок записи на диск
+    private final ByteArrayOutputStream batch = new ByteArrayOutputStream(); // Еще не записанные операции
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream(); // Буфер одной записи
+    private final DataOutputStream recordOut = new DataOutputStream(record);
+    private final CRC32 crc = new CRC32();
+    private final ScheduledExecutorService flusher;
+
+    private String basePath = "";    // Файл, поверх которого воспроизводится журнал
+    private String baseSheet = "";   // Лист базового файла ("" - первый лист)
+    private long baseSize;           // Размер базового файла в начале журнала
+    private long baseModified;       // Время изменения базового файла в начале журнала
+    private long generation;         // Номер начала журнала (растет при каждом сбросе)
+    private long headerEnd;          // Смещение первой записи
+    private int editCount;           // Число операций в журнале
+    private boolean failed;          // Запись в журнал невозможна
+    private volatile Consumer<IOException> failureListener; // Получатель ошибок записи
+
+    /**
+     * Открывает журнал по умолчанию (в домашнем каталоге пользователя).
+     *
+     * @return EditJournal - журнал изменений
+     * @throws IOException - если журнал не удалось открыть
+     */
+    public static EditJournal openDefault() throws IOException {
+        File directory = new File(System.getProperty("user.home"), ".examApp");
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Не удалось создать каталог " + directory);
+        }
+        return new EditJournal(new File(directory, "edits.journal"));
+    }
+
+    /**
+     * Открывает журнал или создает пустой.
+     * Поврежденный хвост журнала (недописанная запись) отбрасывается.
+     *
+     * @param file - файл журнала
+     * @throws IOException - если журнал не удалось открыть
+     */
+    public EditJournal(File file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (!tryLock()) {
+            channel.close();
+            throw new IOException("Журнал уже используется другим окном программы: " + file);
+        }
+
+        if (!readHeader()) {
+            writeHeader(); // Новый или чужой файл - начинаем заново
+        }
+        long validEnd = scan(null);
+        channel.truncate(validEnd);
+        channel.position(validEnd);
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "edit-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Захватывает журнал, чтобы два запуска программы не писали в него одновременно.
+     */
+    private boolean tryLock() throws IOException {
+        try {
+            return channel.tryLock() != null;
+        } catch (OverlappingFileLockException e) {
+            return false;
+        }
+    }
+
+    /* Состояние журнала */
+
+    /**
+     * Возвращает путь к файлу, поверх которого воспроизводится журнал.
+     *
+     * @return String - путь или пустая строка для новой ведомости
+     */
+    public String getBasePath() {
+        return basePath;
+    }
+
+    /**
+     * Возвращает имя листа базового файла.
+     *
+     * @return String - имя листа или пустая строка для первого листа
+     */
+    public String getBaseSheet() {
+        return baseSheet;
+    }
+
+    /**
+     * Проверяет, что базовый файл не менялся с начала журнала:
+     * только тогда правки можно воспроизвести поверх него.
+     *
+     * @return boolean - true если размер и время изменения файла прежние
+     *         (для новой ведомости всегда true)
+     */
+    public boolean isBaseUnchanged() {
+        if (basePath.isEmpty()) return true;
+        File base = new File(basePath);
+        return base.isFile() && base.length() == baseSize && base.lastModified() == baseModified;
+    }
+
+    /**
+     * Возвращает число операций в журнале.
+     *
+     * @return int - количество операций
+     */
+    public synchronized int getEditCount() {
+        return editCount;
+    }
+
+    /**
+     * Проверяет, есть ли в журнале несохраненные правки.
+     *
+     * @return boolean - true если журнал не пуст
+     */
+    public boolean hasEdits() {
+        return getEditCount() > 0;
+    }
+
+    /**
+     * Задает получателя ошибок записи. Он вызывается один раз, когда журнал
+     * перестает принимать правки, и может быть вызван из фонового потока.
+     *
+     * @param listener - получатель ошибок или null
+     */
+    public void setFailureListener(Consumer<IOException> listener) {
+        this.failureListener = listener;
+    }
+
+    /* Запись операций */
+
+    public void logStudentAdded(String fullName, int score) {
+        append(OP_ADD, -1, fullName, score);
+    }
+
+    public void logStudentRemoved(int index) {
+        append(OP_REMOVE, index, null, 0);
+    }
+
+    public void logNameChanged(int index, String fullName) {
+        append(OP_SET_NAME, index, fullName, 0);
+    }
+
+    public void logScoreChanged(int index, int score) {
+        append(OP_SET_SCORE, index, null, score);
+    }
+
+    public void logCleared() {
+        append(OP_CLEAR, -1, null, 0);
+    }
+
+    public void logFieldChanged(int field, String value) {
+        append(OP_SET_FIELD, field, value, 0);
+    }
+
+    /**
+     * Добавляет запись в текущую группу.
+     */
+    private void append(byte op, int index, String text, int value) {
+        boolean flushNow = false;
+        IOException failure = null;
+        synchronized (this) {
+            if (failed) return;
+
+            try {
+                record.reset();
+                recordOut.writeByte(op);
+                switch (op) {
+                    case OP_ADD:
+                        RecordCodec.writeString(recordOut, text);
+                        recordOut.writeInt(value);
+                        break;
+                    case OP_SET_SCORE:
+                        recordOut.writeInt(index);
+                        recordOut.writeInt(value);
+                        break;
+                    case OP_SET_NAME:
+                    case OP_SET_FIELD:
+                        recordOut.writeInt(index);
+                        RecordCodec.writeString(recordOut, text);
+                        break;
+                    case OP_REMOVE:
+                        recordOut.writeInt(index);
+                        break;
+                    default:
+                        break;
+                }
+
+                crc.reset();
+                crc.update(record.toByteArray(), 0, record.size());
+                DataOutputStream out = new DataOutputStream(batch);
+                out.writeInt(record.size());
+                record.writeTo(out);
+                out.writeInt((int) crc.getValue());
+            } catch (IOException e) {
+                // Запись в память не завершается ошибкой, кроме слишком длинной строки;
+                // без этой правки следующие указывали бы не на те строки
+                failed = true;
+                failure = e;
+            }
+
+            if (failure == null) {
+                editCount++;
+                flushNow = batch.size() >= MAX_BATCH_BYTES;
+            }
+        }
+
+        if (failure != null) {
+            notifyFailure(failure);
+        } else if (flushNow) {
+            flushQuietly();
+        }
+    }
+
+    /**
+     * Записывает накопленную группу операций на диск.
+     *
+     * @throws IOException - при ошибке записи
+     */
+    public void flush() throws IOException {
+        synchronized (writeLock) {
+            ByteBuffer pending;
+            synchronized (this) {
+                if (batch.size() == 0 || failed) return;
+                pending = ByteBuffer.wrap(batch.toByteArray());
+                batch.reset();
+            }
+
+            while (pending.hasRemaining()) {
+                channel.write(pending);
+            }
+            channel.force(false); // Одна синхронизация на всю группу
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException e) {
+            synchronized (this) {
+                if (failed) return;
+                failed = true;
+            }
+            notifyFailure(e);
+        }
+    }
+
+    private void notifyFailure(IOException cause) {
+        Consumer<IOException> listener = failureListener;
+        if (listener != null) {
+            listener.accept(cause);
+        }
+    }
+
+    /**
+     * Сжимает журнал после сохранения: все правки уже в файле,
+     * поэтому журнал начинается заново от сохраненного файла.
+     *
+     * @param base  - сохраненный или загруженный файл (null для новой ведомости)
+     * @param sheet - имя листа файла или null для первого листа
+     * @throws IOException - при ошибке записи
+     */
+    public void reset(File base, String sheet) throws IOException {
+        synchronized (writeLock) {
+            synchronized (this) {
+                batch.reset();
+                editCount = 0;
+                failed = false;
+                setBase(base, sheet);
+            }
+            writeHeader();
+        }
+    }
+
+    /**
+     * Отмечает, сколько правок записано к текущему моменту.
+     * Вызывается вместе со снимком ведомости, который уходит на сохранение.
+     *
+     * @return Mark - отметка для {@link #rebase}
+     */
+    public synchronized Mark mark() {
+        return new Mark(generation, editCount);
+    }
+
+    /**
+     * Начинает журнал от файла, в который сохранен снимок ведомости:
+     * правки до отметки уже в файле и удаляются, правки после нее
+     * остаются в журнале и будут воспроизводиться поверх этого файла.
+     * Если после отметки журнал уже начат заново (загружен другой файл),
+     * ничего не делает.
+     *
+     * @param base  - файл, в который сохранен снимок
+     * @param sheet - имя листа файла или null для первого листа
+     * @param mark  - отметка, сделанная вместе со снимком
+     * @throws IOException - при ошибке чтения или записи
+     */
+    public void rebase(File base, String sheet, Mark mark) throws IOException {
+        synchronized (writeLock) {
+            flush();
+
+            int kept;
+            synchronized (this) {
+                if (mark.generation != generation) return;
+                kept = editCount - mark.editCount;
+            }
+
+            byte[] tail = readRecordsFrom(mark.editCount);
+            synchronized (this) {
+                failed = failed && kept > 0; // Без пропавших правок журнал снова пригоден
+                editCount = kept;
+                setBase(base, sheet);
+            }
+            writeHeader();
+
+            ByteBuffer buffer = ByteBuffer.wrap(tail);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Запоминает базовый файл и его состояние, начиная новый журнал.
+     */
+    private void setBase(File base, String sheet) {
+        basePath = base != null ? base.getAbsolutePath() : "";
+        baseSheet = sheet != null ? sheet : "";
+        baseSize = base != null ? base.length() : 0;
+        baseModified = base != null ? base.lastModified() : 0;
+        generation++;
+    }
+
+    /**
+     * Читает записанные на диск записи, начиная с указанной по счету.
+     */
+    private byte[] readRecordsFrom(int first) throws IOException {
+        long position = headerEnd;
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Channels.newInputStream(channel.position(headerEnd))));
+        for (int i = 0; i < first; i++) {
+            int length = in.readInt();
+            in.skipNBytes(length + 4); // Операция и CRC32
+            position += 4 + length + 4;
+        }
+
+        ByteBuffer tail = ByteBuffer.allocate((int) (channel.size() - position));
+        channel.position(position);
+        while (tail.hasRemaining() && channel.read(tail) >= 0) {
+            // Читаем до конца файла
+        }
+        return tail.array();
+    }
+
+    /* Воспроизведение */
+
+    /**
+     * Воспроизводит операции журнала по порядку.
+     *
+     * @param handler - получатель операций
+     * @throws IOException - при ошибке чтения
+     */
+    public void replay(Handler handler) throws IOException {
+        synchronized (writeLock) {
+            flush();
+            scan(handler);
+        }
+    }
+
+    /**
+     * Читает записи журнала, передавая их получателю (если он задан).
+     *
+     * @return long - смещение конца последней целой записи
+     */
+    private long scan(Handler handler) throws IOException {
+        long position = headerEnd;
+        int count = 0;
+
+        FileChannel reader = channel.position(headerEnd);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(reader)));
+        byte[] payload = new byte[256];
+        CRC32 check = new CRC32();
+
+        try {
+            while (true) {
+                int length = in.readInt();
+                if (length <= 0 || length > MAX_RECORD_BYTES) break;
+                if (payload.length < length) {
+                    payload = new byte[length];
+                }
+                in.readFully(payload, 0, length);
+                int expected = in.readInt();
+
+                check.reset();
+                check.update(payload, 0, length);
+                if ((int) check.getValue() != expected) break;
+
+                if (handler != null) {
+                    dispatch(new DataInputStream(new ByteArrayInputStream(payload, 0, length)), handler);
+                }
+                position += 4 + length + 4;
+                count++;
+            }
+        } catch (EOFException e) {
+            // Конец журнала или недописанная запись
+        }
+
+        synchronized (this) {
+            editCount = count;
+        }
+        channel.position(position);
+        return position;
+    }
+
+    private static void dispatch(DataInputStream in, Handler handler) throws IOException {
+        byte op = in.readByte();
+        switch (op) {
+            case OP_ADD:
+                String fullName = RecordCodec.readString(in);
+                handler.studentAdded(fullName, in.readInt());
+                break;
+            case OP_REMOVE:
+                handler.studentRemoved(in.readInt());
+                break;
+            case OP_SET_NAME:
+                int nameIndex = in.readInt();
+                handler.nameChanged(nameIndex, RecordCodec.readString(in));
+                break;
+            case OP_SET_SCORE:
+                int scoreIndex = in.readInt();
+                handler.scoreChanged(scoreIndex, in.readInt());
+                break;
+            case OP_CLEAR:
+                handler.cleared();
+                break;
+            case OP_SET_FIELD:
+                int field = in.readInt();
+                handler.fieldChanged(field, RecordCodec.readString(in));
+                break;
+            default:
+                break;
+        }
+    }
+
+    /* Заголовок */
+
+    private boolean readHeader() throws IOException {
+        if (channel.size() < 8) return false;
+
+        channel.position(0);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        try {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) return false;
+            String path = RecordCodec.readString(in);
+            String sheet = RecordCodec.readString(in);
+            if (path == null || sheet == null) return false;
+            long size = in.readLong();
+            long modified = in.readLong();
+
+            basePath = path;
+            baseSheet = sheet;
+            baseSize = size;
+            baseModified = modified;
+            headerEnd = 8 + encodedLength(path) + encodedLength(sheet) + 16;
+            return true;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(header);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        RecordCodec.writeString(out, basePath);
+        RecordCodec.writeString(out, baseSheet);
+        out.writeLong(baseSize);
+        out.writeLong(baseModified);
+
+        channel.truncate(0);
+        channel.position(0);
+        ByteBuffer buffer = ByteBuffer.wrap(header.toByteArray());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(true);
+        headerEnd = header.size();
+    }
+
+    /**
+     * Длина строки, записанной {@link RecordCodec#writeString}: длина и байты UTF-8.
+     */
+    private static int encodedLength(String text) {
+        int bytes = text.getBytes(StandardCharsets.UTF_8).length;
+        int prefix = 1;
+        for (int value = (bytes + 1) >>> 7; value != 0; value >>>= 7) {
+            prefix++;
+        }
+        return prefix + bytes;
+    }
+
+    /**
+     * Записывает оставшиеся операции и закрывает журнал.
+     *
+     * @throws IOException - при ошибке записи
+     */
+    @Override
+    public void close() throws IOException {
+        flusher.shutdown();
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Возвращает файл журнала.
+     *
+     * @return File - файл журнала
+     */
+    public File getFile() {
+        return file;
+    }
+}
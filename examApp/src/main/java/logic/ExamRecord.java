@@ -1,23 +1,61 @@
 package logic;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
-import java.util.ArrayList;
+import java.util.AbstractList;
 import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Класс для хранения экзаменационной ведомости.
  * Содержит информацию о предмете, дате и списке студентов.
- * Поддерживает сериализацию для сохранения в файл.
+ * Поддерживает сериализацию для сохранения в файл: список студентов
+ * сериализуется через {@link RecordCodec}, без описаний классов
+ * и заголовков для каждого студента.
  *
- * @version 1.0
+ * <p>Статистика (с оценкой, без оценки, сдали, не сдали) и распределение
+ * оценок хранятся в гистограмме {@link ScoreHistogram}, которая обновляется
+ * при добавлении и удалении студентов и при изменении оценки
+ * ({@link Student#setScore} меняет оценку через ведомость), поэтому каждый
+ * статистический метод выполняется за O(1). Если студент одновременно
+ * входит в несколько ведомостей, оценку через себя меняет ведомость, добавившая
+ * его последней; остальные ведомости с этого момента считают статистику
+ * проходом по списку, так что счетчики не расходятся с данными.</p>
+ *
+ * <p>{@link #getStudents()} не копирует список: возвращается неизменяемый
+ * снимок ({@link SnapshotList}), который не меняется при дальнейшем
+ * добавлении и удалении студентов.</p>
+ *
+ * <p>{@link #snapshot()} за O(1) создает неизменяемую версию всей ведомости
+ * для фонового сохранения, печати и отправки, пока редактирование продолжается.
+ * Состав студентов снимок разделяет со списком ведомости, а значения студентов
+ * берет из их ревизий ({@link SnapshotClock}): изменения после снимка в нем
+ * не видны. Снимок можно читать из другого потока; изменять его нельзя.
+ * Часы снимков общие для всех ведомостей процесса, так как студент может
+ * входить в несколько ведомостей: пока жив снимок любой ведомости, студенты,
+ * измененные после него, хранят прежние значения, даже в других ведомостях.</p>
+ *
+ * <p>Сама ведомость не потокобезопасна; для одновременного доступа
+ * из нескольких потоков предназначена {@link ConcurrentExamRecord}.
+ * Для очень больших ведомостей предназначена {@link ColumnarExamRecord}:
+ * она хранит значения студентов в колонках, без объекта на студента.</p>
+ *
+ * @version 1.14
  * @author Маленков Станислав Владимирович
  */
 public class ExamRecord implements Serializable {
-    private static final long serialVersionUID = 1L; // Для сериализации
+    private static final long serialVersionUID = 2L; // Для сериализации (2 - студенты через RecordCodec)
 
     private String subject;           // Название предмета
     private String date;              // Дата проведения
-    private List<Student> students;   // Список студентов
+    private transient SnapshotList<Student> students; // Список студентов (сериализуется вручную)
+    private transient ScoreHistogram histogram; // Распределение оценок
+    private transient volatile boolean shared;  // Студенты есть в другой ведомости - гистограмма не ведется
+    private transient List<Student> frozen;     // Студенты снимка (только для снимка)
+    private transient boolean snapshot;         // Ведомость - неизменяемый снимок
 
     /**
      * Создает новую экзаменационную ведомость.
@@ -28,18 +66,64 @@ public class ExamRecord implements Serializable {
     public ExamRecord(String subject, String date) {
         this.subject = subject;
         this.date = date;
-        this.students = new ArrayList<>(); // Инициализация пустого списка
+        initStorage();
+    }
+
+    /**
+     * Создает снимок ведомости.
+     *
+     * @param source - исходная ведомость
+     */
+    private ExamRecord(ExamRecord source) {
+        this.subject = source.subject;
+        this.date = source.date;
+        this.histogram = new ScoreHistogram(source.histogram);
+        this.shared = source.shared;
+        this.snapshot = true;
+        this.frozen = new FrozenStudents(source.students.snapshot());
+    }
+
+    private void initStorage() {
+        histogram = new ScoreHistogram();
+        students = new SnapshotList<>(); // Инициализация пустого списка
+    }
+
+    /**
+     * Возвращает неизменяемый снимок ведомости за O(1), независимо от числа студентов.
+     * Снимок видит предмет, дату, состав и оценки студентов на момент вызова;
+     * дальнейшие изменения ведомости и ее студентов на него не влияют.
+     * Студенты снимка - отдельные объекты, их изменение ни на что не влияет;
+     * повторное чтение того же индекса возвращает тот же объект.
+     * Методы изменения снимка бросают {@link UnsupportedOperationException}.
+     *
+     * @return ExamRecord - снимок ведомости
+     */
+    public ExamRecord snapshot() {
+        return snapshot ? this : new ExamRecord(this);
+    }
+
+    private void checkNotSnapshot() {
+        if (snapshot) {
+            throw new UnsupportedOperationException("Снимок ведомости изменять нельзя");
+        }
     }
 
     /* Основные операции со студентами */
 
     /**
-     * Добавляет студента в ведомость.
+     * Добавляет студента в ведомость. Представление студента колоночной
+     * ведомости добавляется копией: представление не ведет ревизий для снимков.
      *
      * @param student - добавляемый студент
      */
     public void addStudent(Student student) {
+        checkNotSnapshot();
+        add(student.isView() ? new Student(student.getFullName(), student.getScore()) : student);
+    }
+
+    private void add(Student student) {
         students.add(student);
+        attach(student);
     }
 
     /**
@@ -48,18 +132,145 @@ public class ExamRecord implements Serializable {
      * @param index - индекс студента в списке
      */
     public void removeStudent(int index) {
+        checkNotSnapshot();
         if (index >= 0 && index < students.size()) {
-            students.remove(index);
+            Student student = students.remove(index);
+            if (student.getOwner() == this) {
+                student.setOwner(null);
+                histogram.add(student.getScore(), -1);
+            }
         }
     }
 
     /**
-     * Возвращает копию списка студентов.
+     * Удаляет всех студентов ведомости. Студенты перестают ей принадлежать,
+     * гистограмма начинается заново.
+     */
+    public void clear() {
+        checkNotSnapshot();
+        for (Student student : students) {
+            if (student.getOwner() == this) {
+                student.setOwner(null);
+            }
+        }
+        initStorage(); // Выданные снимки сохраняют прежний список
+        shared = false;
+    }
+
+    /**
+     * Возвращает неизменяемый снимок списка студентов за O(1), без копирования.
+     * Снимок фиксирует состав ведомости на момент вызова; сами студенты
+     * общие с ведомостью, поэтому изменение оценки видно и в снимке.
      *
-     * @return List<Student> - список студентов
+     * @return List<Student> - неизменяемый список студентов
      */
     public List<Student> getStudents() {
-        return new ArrayList<>(students); // Защитная копия
+        return frozen != null ? frozen : students.snapshot();
+    }
+
+    /**
+     * Текущий список студентов без снимка и без вызова переопределяемых методов
+     * (для внутренних проходов, в том числе под блокировкой подкласса).
+     * Снимок здесь не нужен: проход не переживает изменения ведомости,
+     * а лишний снимок заставил бы следующее изменение копировать оглавление списка.
+     */
+    private List<Student> currentStudents() {
+        return frozen != null ? frozen : students;
+    }
+
+    /**
+     * Возвращает студента по индексу без копирования списка.
+     *
+     * @param index - индекс студента
+     * @return Student - студент
+     * @throws IndexOutOfBoundsException - если индекс вне списка
+     */
+    public Student getStudent(int index) {
+        if (frozen != null) {
+            return frozen.get(index);
+        }
+        return students.get(index);
+    }
+
+    /* Гистограмма оценок */
+
+    /**
+     * Принимает студента: ведомость становится его владельцем и ведет его оценку.
+     */
+    private void attach(Student student) {
+        ExamRecord previous = student.getOwner();
+        if (previous == this) {
+            shared = true; // Один студент дважды - одно изменение на два места в списке
+        } else if (previous != null) {
+            previous.shared = true; // Прежняя ведомость больше не узнает об изменениях
+        }
+        student.setOwner(this);
+        histogram.add(student.getScore(), 1);
+    }
+
+    /**
+     * Изменяет оценку студента этой ведомости и учитывает изменение в гистограмме.
+     * Вызывается из {@link Student#setScore} под монитором студента.
+     *
+     * @param student - студент ведомости
+     * @param score   - новая оценка
+     */
+    void updateScore(Student student, int score) {
+        int oldScore = student.getScore();
+        student.storeScore(score);
+        histogram.add(oldScore, -1);
+        histogram.add(score, 1);
+    }
+
+    /**
+     * Меняет ФИО студента ведомости. Статистика от ФИО не зависит;
+     * метод нужен, чтобы подкласс менял ФИО под своей блокировкой.
+     * Вызывается из {@link Student#setFullName} под монитором студента.
+     *
+     * @param student  - студент ведомости
+     * @param fullName - новое ФИО
+     */
+    void updateName(Student student, String fullName) {
+        student.storeName(fullName);
+    }
+
+    /**
+     * Проверяет, считается ли статистика проходом по списку,
+     * потому что студенты есть в другой ведомости.
+     *
+     * @return boolean - true если гистограмма не ведется
+     */
+    boolean isShared() {
+        return shared;
+    }
+
+    /**
+     * Возвращает гистограмму ведомости без копирования и без прохода по списку.
+     * Она верна, только пока {@link #isShared()} возвращает false; подкласс
+     * читает ее без блокировки и проверяет isShared() после чтения.
+     *
+     * @return ScoreHistogram - гистограмма, которую ведет ведомость
+     */
+    ScoreHistogram liveHistogram() {
+        return histogram;
+    }
+
+    /**
+     * Возвращает распределение оценок ведомости.
+     * Возвращается копия: дальнейшие изменения ведомости на нее не влияют.
+     *
+     * @return ScoreHistogram - гистограмма оценок
+     */
+    public ScoreHistogram getHistogram() {
+        if (!shared) {
+            return new ScoreHistogram(histogram);
+        }
+
+        ScoreHistogram counted = new ScoreHistogram();
+        for (Student student : currentStudents()) {
+            counted.add(student.getScore(), 1);
+        }
+        return counted;
     }
 
     /* Статистические методы */
@@ -70,53 +281,120 @@ public class ExamRecord implements Serializable {
      * @return int - количество студентов
      */
     public int getTotalStudents() {
-        return students.size();
+        return frozen != null ? frozen.size() : students.size();
     }
 
     /**
-     * Подсчитывает студентов с указанной оценкой.
+     * Возвращает количество студентов с указанной оценкой.
      *
      * @return int - количество студентов с оценкой
      */
     public int getStudentsWithGrade() {
-        return (int) students.stream().filter(Student::hasGrade).count();
+        if (shared) {
+            return (int) currentStudents().stream().filter(Student::hasGrade).count();
+        }
+        return histogram.getTotal();
     }
 
     /**
-     * Подсчитывает сдавших студентов.
+     * Возвращает количество сдавших студентов.
      * Учитываются только студенты с оценкой.
      *
      * @return int - количество сдавших
      */
     public int getPassedCount() {
-        return (int) students.stream()
-                .filter(Student::hasGrade)
-                .filter(Student::isPassed)
-                .count();
+        if (shared) {
+            return (int) currentStudents().stream()
+                    .filter(Student::hasGrade)
+                    .filter(Student::isPassed)
+                    .count();
+        }
+        return histogram.getCountAtLeast(Student.PASSING_SCORE);
     }
 
     /**
-     * Подсчитывает не сдавших студентов.
+     * Возвращает количество не сдавших студентов.
      * Учитываются только студенты с оценкой.
      *
      * @return int - количество не сдавших
      */
     public int getFailedCount() {
-        return (int) students.stream()
-                .filter(Student::hasGrade)
-                .filter(s -> !s.isPassed())
-                .count();
+        return getStudentsWithGrade() - getPassedCount();
     }
 
     /**
-     * Подсчитывает студентов без оценки.
+     * Возвращает количество студентов без оценки.
      *
      * @return int - количество студентов без оценки
      */
     public int getStudentsWithoutGrade() {
-        return (int) students.stream()
-                .filter(s -> !s.hasGrade())
-                .count();
+        return getTotalStudents() - getStudentsWithGrade();
+    }
+
+    /**
+     * Студенты снимка ведомости: общий с ведомостью состав
+     * и значения студентов на эпоху снимка. Значение студента создается
+     * при первом чтении и запоминается, поэтому снимок создается за O(1),
+     * а повторные чтения возвращают тот же объект.
+     */
+    private static final class FrozenStudents extends AbstractList<Student> implements RandomAccess {
+        private final List<Student> students;
+        private final long epoch;
+        private volatile AtomicReferenceArray<Student> values; // Прочитанные значения (создается при первом чтении)
+
+        FrozenStudents(List<Student> students) {
+            this.students = students;
+            this.epoch = SnapshotClock.capture(this);
+        }
+
+        @Override
+        public Student get(int index) {
+            AtomicReferenceArray<Student> cache = values();
+            Student value = cache.get(index);
+            if (value == null) {
+                Student created = students.get(index).valueAt(epoch);
+                value = cache.compareAndExchange(index, null, created); // Другой поток мог успеть раньше
+                if (value == null) {
+                    value = created;
+                }
+            }
+            return value;
+        }
+
+        private AtomicReferenceArray<Student> values() {
+            AtomicReferenceArray<Student> cache = values;
+            if (cache == null) {
+                synchronized (this) {
+                    cache = values;
+                    if (cache == null) {
+                        cache = new AtomicReferenceArray<>(students.size());
+                        values = cache;
+                    }
+                }
+            }
+            return cache;
+        }
+
+        @Override
+        public int size() {
+            return students.size();
+        }
+    }
+
+    /* Сериализация */
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject(); // Предмет и дата
+        RecordCodec.writeStudents(out, getStudents());
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        List<Student> read = RecordCodec.readStudents(in);
+        initStorage();
+        for (Student student : read) {
+            add(student); // Не addStudent: поля подкласса еще не восстановлены
+        }
     }
 
     /* Геттеры и сеттеры */
@@ -126,6 +404,7 @@ public class ExamRecord implements Serializable {
     }
 
     public void setSubject(String subject) {
+        checkNotSnapshot();
         this.subject = subject;
     }
 
@@ -134,6 +413,7 @@ public class ExamRecord implements Serializable {
     }
 
     public void setDate(String date) {
+        checkNotSnapshot();
         this.date = date;
     }
 }
\ No newline at end of file
@@ -1,16 +1,37 @@
 package logic;
 
 import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.ss.util.WorkbookUtil;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFCell;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 
 import javax.swing.*;
+import java.io.BufferedOutputStream;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 /**
  * Сервис для экспорта и импорта данных в формате Excel.
@@ -21,8 +42,36 @@ import java.util.List;
  */
 public class ExcelExportService {
 
+    /**
+     * Размер файла (в байтах), начиная с которого импорт
+     * выполняется в потоковом режиме.
+     */
+    public static final long STREAMING_IMPORT_THRESHOLD = 2L * 1024 * 1024;
+
+    /**
+     * Порог потокового экспорта по умолчанию (число студентов).
+     */
+    public static final int DEFAULT_STREAMING_EXPORT_THRESHOLD = 10_000;
+
+    private static final int STREAMING_EXPORT_WINDOW = 100; // Строк в памяти при потоковом экспорте
+    private static final String CONSOLIDATED_SHEET_NAME = "Сводка";
+    private static final int MAX_SHEET_NAME_LENGTH = 31;    // Ограничение Excel
+
+    private static volatile int streamingExportThreshold = DEFAULT_STREAMING_EXPORT_THRESHOLD;
+
+    private static final String[] SMALL_INTEGERS = new String[1024]; // Кэш строк 0..1023
+
+    static {
+        for (int i = 0; i < SMALL_INTEGERS.length; i++) {
+            SMALL_INTEGERS[i] = String.valueOf(i);
+        }
+    }
+
     /**
      * Экспортирует данные ведомости в файл Excel.
+     * Ведомости, в которых студентов больше порога
+     * {@link #getStreamingExportThreshold()}, записываются потоково
+     * через {@link #exportToExcelStreaming(ExamRecord, String, String)}.
      *
      * @param record   - данные экзамена
      * @param email    - email для отправки
@@ -30,21 +79,47 @@ public class ExcelExportService {
      * @return boolean - true если успешно
      */
     public static boolean exportToExcel(ExamRecord record, String email, String filePath) {
-        try (Workbook workbook = new XSSFWorkbook()) {
-            Sheet sheet = workbook.createSheet("Ведомость зачета");
+        return exportToExcel(record, email, filePath, record.getTotalStudents() > streamingExportThreshold);
+    }
 
-            // Создаем метаданные
-            createMetadataRows(sheet, record, email);
-            sheet.createRow(3); // Пустая строка
+    /**
+     * Экспортирует данные ведомости в файл Excel в потоковом режиме.
+     * Книга строится через SXSSFWorkbook: в памяти держится только окно
+     * из {@value #STREAMING_EXPORT_WINDOW} строк, остальные сбрасываются
+     * во временный сжатый файл. Содержимое и оформление листа такие же,
+     * как при обычном экспорте.
+     *
+     * @param record   - данные экзамена
+     * @param email    - email для отправки
+     * @param filePath - путь для сохранения
+     * @return boolean - true если успешно
+     */
+    public static boolean exportToExcelStreaming(ExamRecord record, String email, String filePath) {
+        return exportToExcel(record, email, filePath, true);
+    }
 
-            // Создаем таблицу
-            createHeaderRow(workbook, sheet, 4);
-            fillStudentData(sheet, record, 5);
-            createSummaryRows(sheet, record);
+    /**
+     * Возвращает порог потокового экспорта.
+     *
+     * @return int - число студентов, начиная с которого экспорт выполняется потоково
+     */
+    public static int getStreamingExportThreshold() {
+        return streamingExportThreshold;
+    }
 
-            autoSizeColumns(sheet);
-            return saveWorkbook(workbook, filePath);
+    /**
+     * Устанавливает порог потокового экспорта.
+     *
+     * @param threshold - число студентов, начиная с которого экспорт выполняется потоково
+     */
+    public static void setStreamingExportThreshold(int threshold) {
+        streamingExportThreshold = threshold;
+    }
 
+    private static boolean exportToExcel(ExamRecord record, String email, String filePath, boolean streaming) {
+        try {
+            writeExcel(record, email, filePath, streaming);
+            return true;
         } catch (IOException e) {
             showErrorDialog("Ошибка при сохранении файла: " + e.getMessage());
             return false;
@@ -52,96 +127,265 @@ public class ExcelExportService {
     }
 
     /**
-     * Создает строки с метаданными (предмет, дата, email).
+     * Записывает ведомость в файл Excel без показа диалогов.
+     * Способ записи (обычный или потоковый) выбирается так же, как в
+     * {@link #exportToExcel(ExamRecord, String, String)}. Файл заменяется
+     * атомарно: при сбое прежнее содержимое файла сохраняется.
+     * Метод можно вызывать из фонового потока.
+     *
+     * @param record   - данные экзамена
+     * @param email    - email для отправки
+     * @param filePath - путь для сохранения
+     * @throws IOException - при ошибке записи файла
      */
-    private static void createMetadataRows(Sheet sheet, ExamRecord record, String email) {
-        CellStyle labelStyle = createLabelStyle(sheet.getWorkbook());
-        CellStyle valueStyle = createValueStyle(sheet.getWorkbook());
+    public static void writeExcel(ExamRecord record, String email, String filePath) throws IOException {
+        writeExcel(record, email, filePath, record.getTotalStudents() > streamingExportThreshold);
+    }
 
-        // Строка 0: Предмет
-        Row subjectRow = sheet.createRow(0);
-        subjectRow.createCell(0).setCellValue("Предмет:");
-        subjectRow.createCell(1).setCellValue(record.getSubject());
-        subjectRow.getCell(0).setCellStyle(labelStyle);
-        subjectRow.getCell(1).setCellStyle(valueStyle);
+    private static void writeExcel(ExamRecord record, String email, String filePath, boolean streaming)
+            throws IOException {
+        try (Workbook workbook = createExportWorkbook(streaming)) {
+            try {
+                // Стили создаются один раз на книгу
+                CellStyleRegistry styles = new CellStyleRegistry(workbook);
+                writeSheet(workbook.createSheet("Ведомость зачета"), new PreparedSheet(record, email), styles);
+                saveWorkbook(workbook, filePath);
+            } finally {
+                if (workbook instanceof SXSSFWorkbook) {
+                    ((SXSSFWorkbook) workbook).dispose(); // Удаляем временные файлы
+                }
+            }
+        }
+    }
 
-        // Строка 1: Дата
-        Row dateRow = sheet.createRow(1);
-        dateRow.createCell(0).setCellValue("Дата аттестации:");
-        dateRow.createCell(1).setCellValue(record.getDate());
-        dateRow.getCell(0).setCellStyle(labelStyle);
-        dateRow.getCell(1).setCellStyle(valueStyle);
+    /**
+     * Экспортирует ведомость в файл Excel по шаблону.
+     *
+     * @param record   - данные экзамена
+     * @param email    - email для отправки
+     * @param filePath - путь для сохранения
+     * @param template - шаблон, загруженный через {@link ExportTemplate#load(String)}
+     * @return boolean - true если успешно
+     */
+    public static boolean exportToExcel(ExamRecord record, String email, String filePath, ExportTemplate template) {
+        try {
+            writeExcel(record, email, filePath, template);
+            return true;
+        } catch (IOException e) {
+            showErrorDialog("Ошибка при сохранении файла: " + e.getMessage());
+            return false;
+        }
+    }
 
-        // Строка 2: Email
-        Row emailRow = sheet.createRow(2);
-        emailRow.createCell(0).setCellValue("Email для отправки:");
-        emailRow.createCell(1).setCellValue(email);
-        emailRow.getCell(0).setCellStyle(labelStyle);
-        emailRow.getCell(1).setCellStyle(valueStyle);
+    /**
+     * Записывает ведомость в файл Excel по шаблону без показа диалогов.
+     * Оформление, ширина колонок и расположение шапки и итогов берутся
+     * из шаблона, стили и разметка в коде не строятся. Книга пишется
+     * потоково, если студентов больше порога {@link #getStreamingExportThreshold()}.
+     * Файл заменяется атомарно. Метод можно вызывать из фонового потока.
+     *
+     * @param record   - данные экзамена
+     * @param email    - email для отправки
+     * @param filePath - путь для сохранения
+     * @param template - шаблон, загруженный через {@link ExportTemplate#load(String)}
+     * @throws IOException - при ошибке записи файла
+     */
+    public static void writeExcel(ExamRecord record, String email, String filePath, ExportTemplate template)
+            throws IOException {
+        try (Workbook workbook = createExportWorkbook(record.getTotalStudents() > streamingExportThreshold)) {
+            try {
+                template.stamp(workbook.createSheet(template.getSheetName()), new PreparedSheet(record, email));
+                saveWorkbook(workbook, filePath);
+            } finally {
+                if (workbook instanceof SXSSFWorkbook) {
+                    ((SXSSFWorkbook) workbook).dispose(); // Удаляем временные файлы
+                }
+            }
+        }
     }
 
     /**
-     * Создает стиль для меток (жирный шрифт).
+     * Экспортирует несколько ведомостей в одну книгу Excel:
+     * каждая ведомость - на своем листе, в конце - сводный лист.
+     *
+     * @param records    - ведомости (например, по группам)
+     * @param sheetNames - имена листов по порядку ведомостей (null - "Ведомость N")
+     * @param email      - email для отправки
+     * @param filePath   - путь для сохранения
+     * @return boolean - true если успешно
      */
-    private static CellStyle createLabelStyle(Workbook workbook) {
-        CellStyle style = workbook.createCellStyle();
-        Font font = workbook.createFont();
-        font.setBold(true);
-        style.setFont(font);
-        return style;
+    public static boolean exportToExcel(List<ExamRecord> records, List<String> sheetNames, String email,
+                                        String filePath) {
+        try {
+            writeExcel(records, sheetNames, email, filePath);
+            return true;
+        } catch (IOException e) {
+            showErrorDialog("Ошибка при сохранении файла: " + e.getMessage());
+            return false;
+        }
     }
 
     /**
-     * Создает стиль для значений (желтый фон).
+     * Записывает несколько ведомостей в одну книгу Excel без показа диалогов.
+     * Листы готовятся параллельно на пуле потоков по числу ядер
+     * ({@link PreparedSheet}: статистика, итоги, ширина колонок), а запись
+     * в книгу идет последовательно в порядке ведомостей, как только готов
+     * очередной лист. Последним добавляется сводный лист "Сводка" с итогами
+     * по каждой ведомости. Если всего студентов больше порога
+     * {@link #getStreamingExportThreshold()}, книга пишется потоково.
+     * Ведомости не должны изменяться во время экспорта.
+     *
+     * @param records    - ведомости (например, по группам)
+     * @param sheetNames - имена листов по порядку ведомостей (null - "Ведомость N")
+     * @param email      - email для отправки
+     * @param filePath   - путь для сохранения
+     * @throws IOException - при ошибке подготовки или записи файла
      */
-    private static CellStyle createValueStyle(Workbook workbook) {
-        CellStyle style = workbook.createCellStyle();
-        style.setFillForegroundColor(IndexedColors.LIGHT_YELLOW.getIndex());
-        style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-        return style;
+    public static void writeExcel(List<ExamRecord> records, List<String> sheetNames, String email,
+                                  String filePath) throws IOException {
+        long totalStudents = 0;
+        for (ExamRecord record : records) {
+            totalStudents += record.getTotalStudents();
+        }
+
+        int threads = Math.max(1, Math.min(records.size(), Runtime.getRuntime().availableProcessors()));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (Workbook workbook = createExportWorkbook(totalStudents > streamingExportThreshold)) {
+            try {
+                List<Future<PreparedSheet>> prepared = new ArrayList<>(records.size());
+                for (ExamRecord record : records) {
+                    prepared.add(executor.submit(() -> new PreparedSheet(record, email)));
+                }
+
+                CellStyleRegistry styles = new CellStyleRegistry(workbook);
+                Set<String> usedNames = new HashSet<>();
+                usedNames.add(CONSOLIDATED_SHEET_NAME.toLowerCase());
+                List<String> names = new ArrayList<>(records.size());
+                List<PreparedSheet> sheets = new ArrayList<>(records.size());
+
+                for (int i = 0; i < prepared.size(); i++) {
+                    PreparedSheet sheet = awaitPrepared(prepared.get(i));
+                    String requested = sheetNames != null && i < sheetNames.size() ? sheetNames.get(i) : null;
+                    String name = uniqueSheetName(requested, "Ведомость " + (i + 1), usedNames);
+
+                    writeSheet(workbook.createSheet(name), sheet, styles); // POI - только в этом потоке
+                    names.add(name);
+                    sheets.add(sheet);
+                }
+
+                writeConsolidatedSheet(workbook.createSheet(CONSOLIDATED_SHEET_NAME), names, sheets, styles);
+                saveWorkbook(workbook, filePath);
+            } finally {
+                if (workbook instanceof SXSSFWorkbook) {
+                    ((SXSSFWorkbook) workbook).dispose(); // Удаляем временные файлы
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
     }
 
     /**
-     * Создает заголовок таблицы.
+     * Дожидается подготовки листа.
      */
-    private static void createHeaderRow(Workbook workbook, Sheet sheet, int rowNum) {
-        CellStyle headerStyle = createHeaderStyle(workbook);
-        Row headerRow = sheet.createRow(rowNum);
+    private static PreparedSheet awaitPrepared(Future<PreparedSheet> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Экспорт прерван", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IOException(cause);
+        }
+    }
 
-        String[] headers = {"№", "ФИО студента", "Оценка (0-10)", "Результат"};
-        for (int i = 0; i < headers.length; i++) {
-            Cell cell = headerRow.createCell(i);
-            cell.setCellValue(headers[i]);
-            cell.setCellStyle(headerStyle);
+    /**
+     * Возвращает допустимое и неповторяющееся имя листа
+     * (имена листов Excel не различают регистр).
+     */
+    private static String uniqueSheetName(String requested, String fallback, Set<String> usedNames) {
+        String base = requested == null || requested.trim().isEmpty() ? fallback : requested.trim();
+        base = WorkbookUtil.createSafeSheetName(base);
+
+        String name = base;
+        for (int copy = 2; !usedNames.add(name.toLowerCase()); copy++) {
+            String suffix = " (" + copy + ")";
+            name = base.substring(0, Math.min(base.length(), MAX_SHEET_NAME_LENGTH - suffix.length())) + suffix;
         }
+        return name;
     }
 
     /**
-     * Создает стиль для заголовка таблицы.
+     * Записывает лист ведомости: метаданные, таблицу студентов и итоги.
      */
-    private static CellStyle createHeaderStyle(Workbook workbook) {
-        CellStyle style = workbook.createCellStyle();
-        style.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
-        style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+    private static void writeSheet(Sheet sheet, PreparedSheet prepared, CellStyleRegistry styles) {
+        createMetadataRows(sheet, prepared, styles);
+        sheet.createRow(3); // Пустая строка
 
-        Font font = workbook.createFont();
-        font.setBold(true);
-        style.setFont(font);
+        // Создаем таблицу
+        createHeaderRow(sheet, 4, styles);
+        fillStudentData(sheet, prepared, 5, styles);
+        createSummaryRows(sheet, prepared, styles);
 
-        style.setBorderTop(BorderStyle.MEDIUM);
-        style.setBorderBottom(BorderStyle.MEDIUM);
-        style.setBorderLeft(BorderStyle.MEDIUM);
-        style.setBorderRight(BorderStyle.MEDIUM);
+        // Ширина колонок оценена при подготовке листа
+        prepared.getWidths().apply(sheet);
+    }
 
-        return style;
+    /**
+     * Создает книгу для экспорта: обычную или потоковую.
+     */
+    private static Workbook createExportWorkbook(boolean streaming) {
+        if (!streaming) {
+            return new XSSFWorkbook();
+        }
+
+        SXSSFWorkbook workbook = new SXSSFWorkbook(STREAMING_EXPORT_WINDOW);
+        workbook.setCompressTempFiles(true);
+        return workbook;
+    }
+
+    /**
+     * Создает строки с метаданными (предмет, дата, email).
+     */
+    private static void createMetadataRows(Sheet sheet, PreparedSheet prepared, CellStyleRegistry styles) {
+        CellStyle labelStyle = styles.getLabelStyle();
+        CellStyle valueStyle = styles.getValueStyle();
+
+        // Строки 0-2: Предмет, Дата, Email
+        for (int i = 0; i < PreparedSheet.METADATA_LABELS.length; i++) {
+            Row row = sheet.createRow(i);
+            row.createCell(0).setCellValue(PreparedSheet.METADATA_LABELS[i]);
+            row.createCell(1).setCellValue(prepared.getMetadataValue(i));
+            row.getCell(0).setCellStyle(labelStyle);
+            row.getCell(1).setCellStyle(valueStyle);
+        }
+    }
+
+    /**
+     * Создает заголовок таблицы.
+     */
+    private static void createHeaderRow(Sheet sheet, int rowNum, CellStyleRegistry styles) {
+        CellStyle headerStyle = styles.getHeaderStyle();
+        Row headerRow = sheet.createRow(rowNum);
+
+        for (int i = 0; i < PreparedSheet.HEADERS.length; i++) {
+            Cell cell = headerRow.createCell(i);
+            cell.setCellValue(PreparedSheet.HEADERS[i]);
+            cell.setCellStyle(headerStyle);
+        }
     }
 
     /**
      * Заполняет данные студентов в таблицу.
+     * Строки сдавших и не сдавших выделяются цветом.
      */
-    private static void fillStudentData(Sheet sheet, ExamRecord record, int startRow) {
+    private static void fillStudentData(Sheet sheet, PreparedSheet prepared, int startRow,
+                                        CellStyleRegistry styles) {
         int rowNum = startRow;
-        for (Student student : record.getStudents()) {
+        for (Student student : prepared.getStudents()) {
             Row row = sheet.createRow(rowNum);
             row.createCell(0).setCellValue(rowNum - startRow + 1); // №
             row.createCell(1).setCellValue(student.getFullName()); // ФИО
@@ -150,11 +394,18 @@ public class ExcelExportService {
             if (student.hasGrade()) {
                 row.createCell(2).setCellValue(student.getScore());
             } else {
-                row.createCell(2).setCellValue("Нет оценки");
+                row.createCell(2).setCellValue(PreparedSheet.NO_GRADE_TEXT);
             }
 
             // Результат
             row.createCell(3).setCellValue(student.getResultText());
+
+            CellStyle rowStyle = styles.getStudentRowStyle(student);
+            if (rowStyle != null) {
+                for (int i = 0; i < 4; i++) {
+                    row.getCell(i).setCellStyle(rowStyle);
+                }
+            }
             rowNum++;
         }
     }
@@ -162,301 +413,451 @@ public class ExcelExportService {
     /**
      * Создает строки с итоговой статистикой.
      */
-    private static void createSummaryRows(Sheet sheet, ExamRecord record) {
+    private static void createSummaryRows(Sheet sheet, PreparedSheet prepared, CellStyleRegistry styles) {
         int lastRow = sheet.getLastRowNum();
-        CellStyle summaryStyle = createSummaryStyle(sheet.getWorkbook());
 
-        sheet.createRow(lastRow + 2).createCell(0).setCellValue("ИТОГИ:");
-        sheet.getRow(lastRow + 2).getCell(0).setCellStyle(summaryStyle);
+        sheet.createRow(lastRow + 2).createCell(0).setCellValue(PreparedSheet.SUMMARY_TITLE);
+        sheet.getRow(lastRow + 2).getCell(0).setCellStyle(styles.getSummaryStyle());
 
-        sheet.createRow(lastRow + 3).createCell(0).setCellValue("Всего студентов: " + record.getTotalStudents());
-        sheet.createRow(lastRow + 4).createCell(0).setCellValue("С оценкой: " + record.getStudentsWithGrade());
-        sheet.createRow(lastRow + 5).createCell(0).setCellValue("Без оценки: " + record.getStudentsWithoutGrade());
-        sheet.createRow(lastRow + 6).createCell(0).setCellValue("Сдали: " + record.getPassedCount());
-        sheet.createRow(lastRow + 7).createCell(0).setCellValue("Не сдали: " + record.getFailedCount());
+        String[] lines = prepared.getSummaryLines();
+        for (int i = 0; i < lines.length; i++) {
+            sheet.createRow(lastRow + 3 + i).createCell(0).setCellValue(lines[i]);
+        }
     }
 
     /**
-     * Создает стиль для итоговой строки.
+     * Создает сводный лист: итоги каждой ведомости и общая строка.
      */
-    private static CellStyle createSummaryStyle(Workbook workbook) {
-        CellStyle style = workbook.createCellStyle();
-        Font font = workbook.createFont();
-        font.setBold(true);
-        font.setColor(IndexedColors.DARK_BLUE.getIndex());
-        style.setFont(font);
-        return style;
+    private static void writeConsolidatedSheet(Sheet sheet, List<String> names, List<PreparedSheet> sheets,
+                                               CellStyleRegistry styles) {
+        String[] headers = {"Лист", "Предмет", "Дата аттестации", "Всего студентов",
+                "С оценкой", "Без оценки", "Сдали", "Не сдали", "Средний балл", "Медиана"};
+        ColumnWidthEstimator widths = new ColumnWidthEstimator(headers.length);
+        CellStyle headerStyle = styles.getHeaderStyle();
+
+        Row headerRow = sheet.createRow(0);
+        for (int i = 0; i < headers.length; i++) {
+            Cell cell = headerRow.createCell(i);
+            cell.setCellValue(headers[i]);
+            cell.setCellStyle(headerStyle);
+            widths.track(i, headers[i], true);
+        }
+
+        int[] totals = new int[5];
+        ScoreHistogram overall = new ScoreHistogram();
+        for (int i = 0; i < sheets.size(); i++) {
+            PreparedSheet prepared = sheets.get(i);
+            Row row = sheet.createRow(i + 1);
+            setTextCell(row, 0, names.get(i), widths);
+            setTextCell(row, 1, prepared.getSubject(), widths);
+            setTextCell(row, 2, prepared.getDate(), widths);
+
+            int[] counts = {prepared.getTotal(), prepared.getWithGrade(), prepared.getWithoutGrade(),
+                    prepared.getPassed(), prepared.getFailed()};
+            for (int j = 0; j < counts.length; j++) {
+                row.createCell(3 + j).setCellValue(counts[j]);
+                widths.track(3 + j, counts[j]);
+                totals[j] += counts[j];
+            }
+            setDistributionCells(row, 3 + counts.length, prepared.getHistogram(), null, widths);
+            overall.addAll(prepared.getHistogram());
+        }
+
+        Row totalRow = sheet.createRow(sheets.size() + 1);
+        CellStyle summaryStyle = styles.getSummaryStyle();
+        totalRow.createCell(0).setCellValue("ИТОГО");
+        totalRow.getCell(0).setCellStyle(summaryStyle);
+        widths.track(0, "ИТОГО", true);
+        for (int j = 0; j < totals.length; j++) {
+            Cell cell = totalRow.createCell(3 + j);
+            cell.setCellValue(totals[j]);
+            cell.setCellStyle(summaryStyle);
+            widths.track(3 + j, totals[j]);
+        }
+        setDistributionCells(totalRow, 3 + totals.length, overall, summaryStyle, widths);
+
+        widths.apply(sheet);
     }
 
     /**
-     * Автоматически подгоняет ширину колонок.
+     * Записывает средний балл и медиану (пустые ячейки, если оценок нет).
      */
-    private static void autoSizeColumns(Sheet sheet) {
-        for (int i = 0; i < 4; i++) {
-            sheet.autoSizeColumn(i);
+    private static void setDistributionCells(Row row, int column, ScoreHistogram histogram, CellStyle style,
+                                             ColumnWidthEstimator widths) {
+        if (histogram.getTotal() == 0) {
+            return;
+        }
+        double[] values = {Math.round(histogram.getMean() * 100) / 100.0, histogram.getMedian()};
+        for (int i = 0; i < values.length; i++) {
+            Cell cell = row.createCell(column + i);
+            cell.setCellValue(values[i]);
+            if (style != null) {
+                cell.setCellStyle(style);
+            }
+            widths.track(column + i, values[i]);
         }
     }
 
+    private static void setTextCell(Row row, int column, String value, ColumnWidthEstimator widths) {
+        row.createCell(column).setCellValue(value);
+        widths.track(column, value, false);
+    }
+
     /**
      * Сохраняет книгу Excel в файл.
      */
-    private static boolean saveWorkbook(Workbook workbook, String filePath) throws IOException {
-        try (java.io.FileOutputStream fileOut = new java.io.FileOutputStream(filePath)) {
-            workbook.write(fileOut);
-            return true;
-        }
+    private static void saveWorkbook(Workbook workbook, String filePath) throws IOException {
+        writeAtomically(filePath, channel -> {
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024);
+            workbook.write(out);
+            out.flush(); // Канал закроет writeAtomically
+        });
     }
 
     /**
-     * Импортирует данные из файла Excel.
-     *
-     * @param filePath - путь к файлу Excel
-     * @return ExcelImportResult - результат импорта
+     * Запись содержимого файла в открытый канал.
      */
-    public static ExcelImportResult importFromExcel(String filePath) {
-        ExcelImportResult result = new ExcelImportResult();
-        List<Student> students = new ArrayList<>();
-
-        try (FileInputStream fis = new FileInputStream(filePath)) {
-            Workbook workbook;
+    interface ChannelWriter {
+        void write(FileChannel channel) throws IOException;
+    }
 
-            // Определяем формат файла
-            if (filePath.toLowerCase().endsWith(".xlsx")) {
-                workbook = new XSSFWorkbook(fis);
-            } else if (filePath.toLowerCase().endsWith(".xls")) {
-                workbook = new HSSFWorkbook(fis);
-            } else {
-                showErrorDialog("Неподдерживаемый формат файла");
-                return result;
+    /**
+     * Записывает файл с атомарной заменой.
+     * Содержимое пишется во временный файл в том же каталоге, данные
+     * сбрасываются на диск, затем временный файл атомарно заменяет целевой,
+     * и на диск сбрасывается запись каталога, чтобы замена пережила сбой питания.
+     * В Windows каталог нельзя открыть как канал; там запись каталога
+     * сбрасывает сама файловая система, и этот шаг пропускается.
+     *
+     * @param filePath - путь к целевому файлу
+     * @param writer   - запись содержимого
+     * @throws IOException - при ошибке записи; прежний файл остается нетронутым,
+     *                     если ошибка случилась до замены
+     */
+    static void writeAtomically(String filePath, ChannelWriter writer) throws IOException {
+        Path target = Paths.get(filePath).toAbsolutePath();
+        // Обычный файл (а не createTempFile), чтобы права доступа были как у нового файла
+        Path temp = target.resolveSibling("." + target.getFileName() + "." + System.nanoTime() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                writer.write(channel);
+                channel.force(true); // Данные на диске до переименования
             }
 
-            Sheet sheet = workbook.getSheetAt(0); // Первый лист
-
-            // Читаем метаданные
-            readMetadata(sheet, result);
-
-            // Ищем начало таблицы студентов
-            int tableStartRow = findTableStart(sheet);
-            if (tableStartRow == -1) {
-                tableStartRow = findDataStart(sheet);
-            }
-
-            // Читаем студентов
-            if (tableStartRow != -1) {
-                for (int i = tableStartRow; i <= sheet.getLastRowNum(); i++) {
-                    Row row = sheet.getRow(i);
-                    if (row == null) continue;
-
-                    if (isSummaryRow(row) || isEmptyRow(row)) {
-                        continue; // Пропускаем итоги и пустые строки
-                    }
-
-                    Student student = readStudentFromRow(row);
-                    if (student != null) {
-                        students.add(student);
-                    }
-                }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
             }
+            forceDirectory(target.getParent());
+        } finally {
+            Files.deleteIfExists(temp); // Остается только при ошибке
+        }
+    }
 
-            result.setStudents(students);
-            workbook.close();
+    /**
+     * Сбрасывает на диск запись каталога (переименование файла в нем).
+     * Если каталог нельзя открыть как канал (Windows), ничего не делает.
+     */
+    private static void forceDirectory(Path directory) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException e) {
+            return; // Каталог не открывается как файл - сброс не поддерживается
+        }
+        try (channel) {
+            channel.force(true);
+        }
+    }
 
+    /**
+     * Импортирует данные из файла Excel.
+     * Файлы больше {@link #STREAMING_IMPORT_THRESHOLD} байт
+     * читаются потоково через {@link #importFromExcelStreaming(String)}.
+     *
+     * @param filePath - путь к файлу Excel
+     * @return ExcelImportResult - результат импорта
+     */
+    public static ExcelImportResult importFromExcel(String filePath) {
+        try {
+            return readExcelFile(filePath, null);
         } catch (Exception e) {
             showErrorDialog("Ошибка при чтении файла Excel: " + e.getMessage());
             e.printStackTrace();
+            return new ExcelImportResult();
         }
-
-        return result;
     }
 
     /**
-     * Читает метаданные из файла Excel.
+     * Читает файл Excel без показа диалогов.
+     * Каждый распознанный студент сразу передается слушателю, поэтому
+     * вызывающий код может показывать данные, не дожидаясь конца разбора.
+     * Результат разбора сохраняется в {@link ImportCache}: повторное
+     * открытие неизмененного файла обходится без Apache POI.
+     * Файлы CSV и TSV читаются через {@link CsvExportService#readCsvFile},
+     * ведомости в двоичном формате - через {@link BinaryRecordService#readRecordFile}.
+     * Метод можно вызывать из фонового потока.
+     *
+     * @param filePath        - путь к файлу Excel
+     * @param studentListener - получатель студентов в порядке следования (может быть null)
+     * @return ExcelImportResult - результат импорта
+     * @throws Exception - при неподдерживаемом формате или ошибке чтения файла
      */
-    private static void readMetadata(Sheet sheet, ExcelImportResult result) {
-        String subject = "", date = "", email = "";
-
-        for (int i = 0; i <= Math.min(10, sheet.getLastRowNum()); i++) {
-            Row row = sheet.getRow(i);
-            if (row == null) continue;
-
-            Cell firstCell = row.getCell(0);
-            if (firstCell == null) continue;
-
-            String cellValue = getCellValueAsString(firstCell).toLowerCase();
+    public static ExcelImportResult readExcelFile(String filePath, Consumer<Student> studentListener)
+            throws Exception {
+        String lowerPath = filePath.toLowerCase();
+        if (BinaryRecordService.isBinaryFile(filePath)) {
+            return BinaryRecordService.readRecordFile(filePath, studentListener); // Собственный формат
+        }
+        if (CsvExportService.isCsvFile(filePath)) {
+            return CsvExportService.readCsvFile(filePath, studentListener); // Без кэша: разбор CSV не дороже его чтения
+        }
+        if (!lowerPath.endsWith(".xlsx") && !lowerPath.endsWith(".xls")) {
+            throw new IllegalArgumentException("Неподдерживаемый формат файла");
+        }
 
-            if (cellValue.contains("предмет:")) {
-                subject = getCellValueAsString(row.getCell(1));
-            } else if (cellValue.contains("дата") && cellValue.contains("аттестации:")) {
-                date = getCellValueAsString(row.getCell(1));
-            } else if (cellValue.contains("email") || cellValue.contains("почта")) {
-                email = getCellValueAsString(row.getCell(1));
+        File file = new File(filePath);
+        ImportCache cache = ImportCache.getDefault();
+        ExcelImportResult cached = cache.get(file);
+        if (cached != null) {
+            if (studentListener != null) {
+                cached.getStudents().forEach(studentListener);
             }
+            return cached;
         }
 
-        result.setSubject(subject);
-        result.setDate(date);
-        result.setEmail(email);
+        ImportCache.Identity identity = cache.identify(file); // До разбора: кэш опишет разобранное содержимое
+        ExcelImportResult result = parseExcelFile(file, lowerPath.endsWith(".xlsx"), studentListener);
+        if (result.hasData()) {
+            cache.put(file, identity, result);
+        }
+        return result;
     }
 
     /**
-     * Находит начало таблицы студентов по заголовку.
+     * Читает все листы книги Excel без показа диалогов.
+     * Каждый лист становится отдельным результатом с именем листа и
+     * временем разбора. Листы .xlsx разбираются параллельно на пуле
+     * потоков по числу ядер, листы .xls - за один проход по файлу.
+     *
+     * @param filePath - путь к файлу Excel
+     * @return List<ExcelImportResult> - результаты по листам в порядке следования листов
+     * @throws Exception - при неподдерживаемом формате или ошибке чтения файла
      */
-    private static int findTableStart(Sheet sheet) {
-        for (int i = 0; i <= Math.min(20, sheet.getLastRowNum()); i++) {
-            Row row = sheet.getRow(i);
-            if (row != null && isTableHeader(row)) {
-                return i + 1; // Строка после заголовка
-            }
+    public static List<ExcelImportResult> readAllSheets(String filePath) throws Exception {
+        String lowerPath = filePath.toLowerCase();
+        if (lowerPath.endsWith(".xls")) {
+            return XlsStreamingImporter.importAllSheets(filePath);
+        }
+        if (!lowerPath.endsWith(".xlsx")) {
+            throw new IllegalArgumentException("Неподдерживаемый формат файла");
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            return XlsxStreamingImporter.importAllSheets(filePath, executor);
+        } finally {
+            executor.shutdownNow();
         }
-        return -1;
     }
 
     /**
-     * Проверяет, является ли строка заголовком таблицы.
+     * Разбирает файл Excel обычным или потоковым способом в зависимости от размера.
      */
-    private static boolean isTableHeader(Row row) {
-        String[] expectedHeaders = {"№", "фио", "оценка", "результат"};
-        int matchCount = 0;
+    private static ExcelImportResult parseExcelFile(File file, boolean xlsx, Consumer<Student> studentListener)
+            throws Exception {
+        String filePath = file.getPath();
+        boolean streaming = file.length() > STREAMING_IMPORT_THRESHOLD;
+
+        if (xlsx) {
+            return streaming ? XlsxStreamingImporter.importFirstSheet(filePath, studentListener)
+                    : readWorkbook(openWorkbook(filePath, true), studentListener);
+        } else {
+            return streaming ? XlsStreamingImporter.importFirstSheet(filePath, studentListener)
+                    : readWorkbook(openWorkbook(filePath, false), studentListener);
+        }
+    }
 
-        for (int i = 0; i < Math.min(4, row.getLastCellNum()); i++) {
-            Cell cell = row.getCell(i);
-            if (cell != null) {
-                String cellValue = getCellValueAsString(cell).toLowerCase();
-                for (String header : expectedHeaders) {
-                    if (cellValue.contains(header)) {
-                        matchCount++;
-                        break;
-                    }
-                }
+    /**
+     * Импортирует данные из файла Excel в потоковом режиме.
+     * Файлы .xlsx читаются SAX-парсером (событийная модель XSSF),
+     * файлы .xls - слушателем записей HSSF. Книга в память не
+     * загружается, результат совпадает с {@link #importFromExcel(String)}.
+     *
+     * @param filePath - путь к файлу Excel
+     * @return ExcelImportResult - результат импорта
+     */
+    public static ExcelImportResult importFromExcelStreaming(String filePath) {
+        try {
+            if (filePath.toLowerCase().endsWith(".xlsx")) {
+                return XlsxStreamingImporter.importFirstSheet(filePath, null);
+            } else if (filePath.toLowerCase().endsWith(".xls")) {
+                return XlsStreamingImporter.importFirstSheet(filePath, null);
+            } else {
+                showErrorDialog("Неподдерживаемый формат файла");
+                return new ExcelImportResult();
             }
+        } catch (Exception e) {
+            showErrorDialog("Ошибка при чтении файла Excel: " + e.getMessage());
+            return new ExcelImportResult();
         }
-
-        return matchCount >= 2; // Хотя бы 2 совпадения
     }
 
     /**
-     * Находит начало данных по содержимому.
+     * Загружает книгу из файла (.xlsx или .xls).
      */
-    private static int findDataStart(Sheet sheet) {
-        for (int i = 0; i <= sheet.getLastRowNum(); i++) {
-            Row row = sheet.getRow(i);
-            if (row == null) continue;
-
-            Cell nameCell = row.getCell(1); // Колонка B
-            if (nameCell != null) {
-                String name = getCellValueAsString(nameCell).trim();
-                if (!name.isEmpty() && !name.matches("\\d+") &&
-                        !name.toLowerCase().contains("фио") &&
-                        !name.toLowerCase().contains("итог") &&
-                        name.length() > 2) {
-                    return i;
-                }
-            }
+    static Workbook openWorkbook(String filePath, boolean xlsx) throws IOException {
+        try (FileInputStream fis = new FileInputStream(filePath)) {
+            return xlsx ? new XSSFWorkbook(fis) : new HSSFWorkbook(fis);
         }
-        return -1;
     }
 
     /**
-     * Проверяет, является ли строка итоговой.
+     * Читает первый лист загруженной книги и закрывает ее.
      */
-    private static boolean isSummaryRow(Row row) {
-        if (row == null) return false;
+    static ExcelImportResult readWorkbook(Workbook workbook, Consumer<Student> studentListener)
+            throws IOException {
+        try (workbook) {
+            return readSheet(workbook.getSheetAt(0), studentListener); // Первый лист
+        }
+    }
 
-        Cell firstCell = row.getCell(0);
-        if (firstCell != null) {
-            String value = getCellValueAsString(firstCell).toLowerCase();
-            return value.contains("итог") || value.contains("всего") ||
-                    value.contains("сдали") || value.contains("не сдали");
+    /**
+     * Читает лист книги за один проход классификатором строк.
+     */
+    static ExcelImportResult readSheet(Sheet sheet, Consumer<Student> studentListener) {
+        // Один вычислитель формул на книгу: результаты кэшируются между ячейками
+        FormulaEvaluator evaluator = sheet.getWorkbook().getCreationHelper().createFormulaEvaluator();
+
+        // Классифицируем строки за один проход
+        SheetRowClassifier classifier = new SheetRowClassifier(studentListener);
+        SheetRow sheetRow = new SheetRow();
+        for (Row row : sheet) {
+            readSheetRow(row, sheetRow, evaluator);
+            classifier.accept(sheetRow);
         }
-        return false;
+
+        return classifier.finish();
     }
 
     /**
-     * Проверяет, является ли строка пустой.
+     * Переносит значения ячеек строки листа в SheetRow.
+     * Числовые ячейки передаются числом, без преобразования в строку.
      */
-    private static boolean isEmptyRow(Row row) {
-        if (row == null) return true;
+    private static void readSheetRow(Row row, SheetRow sheetRow, FormulaEvaluator evaluator) {
+        sheetRow.reset(row.getRowNum());
 
         for (int i = 0; i < row.getLastCellNum(); i++) {
             Cell cell = row.getCell(i);
             if (cell != null) {
-                String value = getCellValueAsString(cell).trim();
-                if (!value.isEmpty()) {
-                    return false;
-                }
+                readCell(cell, i, sheetRow, evaluator);
             }
         }
-        return true;
     }
 
     /**
-     * Читает данные студента из строки Excel.
+     * Читает значение ячейки.
+     * Для формул берется сохраненный в файле результат, а если его нет -
+     * результат вычисляется общим для книги вычислителем.
      */
-    private static Student readStudentFromRow(Row row) {
-        Cell nameCell = row.getCell(1); // ФИО в колонке B
-        if (nameCell == null) {
-            nameCell = row.getCell(0); // Пробуем колонку A
-            if (nameCell == null) return null;
-        }
-
-        String fullName = getCellValueAsString(nameCell).trim();
-        if (fullName.isEmpty() || fullName.matches("\\d+") ||
-                fullName.toLowerCase().contains("фио") ||
-                fullName.toLowerCase().contains("итог")) {
-            return null;
+    private static void readCell(Cell cell, int column, SheetRow sheetRow, FormulaEvaluator evaluator) {
+        CellType type = cell.getCellType();
+        if (type == CellType.FORMULA) {
+            if (!hasCachedFormulaResult(cell)) {
+                readEvaluatedCell(cell, column, sheetRow, evaluator);
+                return;
+            }
+            type = cell.getCachedFormulaResultType();
         }
 
-        // Ищем оценку в колонках 2-3
-        int score = -1;
-        for (int i = 2; i <= 3; i++) {
-            Cell scoreCell = row.getCell(i);
-            if (scoreCell != null) {
-                String scoreText = getCellValueAsString(scoreCell).trim();
-                if (!scoreText.isEmpty() && !scoreText.equalsIgnoreCase("нет оценки")) {
-                    try {
-                        score = Integer.parseInt(scoreText);
-                        if (score >= 0 && score <= 10) {
-                            break; // Нашли валидную оценку
-                        }
-                    } catch (NumberFormatException e) {
-                        // Пропускаем, пробуем следующую колонку
-                    }
+        switch (type) {
+            case STRING:
+                sheetRow.setCell(column, cell.getStringCellValue().trim());
+                break;
+            case NUMERIC:
+                if (DateUtil.isCellDateFormatted(cell)) {
+                    sheetRow.setCell(column, cell.getDateCellValue().toString());
+                } else {
+                    sheetRow.setNumber(column, cell.getNumericCellValue());
                 }
-            }
+                break;
+            case BOOLEAN:
+                sheetRow.setCell(column, String.valueOf(cell.getBooleanCellValue()));
+                break;
+            default:
+                sheetRow.setCell(column, "");
+                break;
         }
-        return new Student(fullName, score);
     }
 
     /**
-     * Преобразует значение ячейки в строку.
+     * Вычисляет формулу, у которой нет сохраненного результата.
      */
-    private static String getCellValueAsString(Cell cell) {
-        if (cell == null) return "";
+    private static void readEvaluatedCell(Cell cell, int column, SheetRow sheetRow, FormulaEvaluator evaluator) {
+        CellValue value;
+        try {
+            value = evaluator.evaluate(cell);
+        } catch (RuntimeException e) {
+            sheetRow.setCell(column, cell.getCellFormula()); // Формулу вычислить не удалось
+            return;
+        }
 
-        switch (cell.getCellType()) {
+        switch (value.getCellType()) {
             case STRING:
-                return cell.getStringCellValue().trim();
+                sheetRow.setCell(column, value.getStringValue().trim());
+                break;
             case NUMERIC:
-                if (DateUtil.isCellDateFormatted(cell)) {
-                    return cell.getDateCellValue().toString();
+                CellStyle style = cell.getCellStyle();
+                if (DateUtil.isADateFormat(style.getDataFormat(), style.getDataFormatString())) {
+                    sheetRow.setCell(column, formatNumericValue(value.getNumberValue(),
+                            style.getDataFormat(), style.getDataFormatString()));
                 } else {
-                    double value = cell.getNumericCellValue();
-                    if (value == Math.floor(value)) {
-                        return String.valueOf((int) value);
-                    } else {
-                        return String.valueOf(value);
-                    }
+                    sheetRow.setNumber(column, value.getNumberValue());
                 }
+                break;
             case BOOLEAN:
-                return String.valueOf(cell.getBooleanCellValue());
-            case FORMULA:
-                try {
-                    return getCellValueAsString(cell);
-                } catch (Exception e) {
-                    return cell.getCellFormula();
-                }
+                sheetRow.setCell(column, String.valueOf(value.getBooleanValue()));
+                break;
             default:
-                return "";
+                sheetRow.setCell(column, "");
+                break;
+        }
+    }
+
+    /**
+     * Проверяет, сохранен ли в файле результат формулы.
+     */
+    private static boolean hasCachedFormulaResult(Cell cell) {
+        if (cell instanceof XSSFCell) {
+            return ((XSSFCell) cell).getCTCell().isSetV();
+        }
+        return true; // В формате .xls результат формулы хранится всегда
+    }
+
+    /**
+     * Преобразует числовое значение ячейки в строку с учетом формата даты.
+     */
+    static String formatNumericValue(double value, int formatIndex, String formatString) {
+        if (DateUtil.isADateFormat(formatIndex, formatString) && DateUtil.isValidExcelDate(value)) {
+            return DateUtil.getJavaDate(value).toString();
+        }
+        return formatNumericValue(value);
+    }
+
+    /**
+     * Преобразует число в строку (целые значения - без дробной части).
+     * Строки небольших целых чисел (номера, оценки) берутся из кэша.
+     */
+    static String formatNumericValue(double value) {
+        if (value == Math.floor(value)) {
+            int intValue = (int) value;
+            if (intValue >= 0 && intValue < SMALL_INTEGERS.length) {
+                return SMALL_INTEGERS[intValue];
+            }
+            return String.valueOf(intValue);
+        } else {
+            return String.valueOf(value);
         }
     }
 
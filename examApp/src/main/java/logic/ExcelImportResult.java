@@ -6,8 +6,9 @@ import java.util.List;
 /**
  * Класс для хранения результатов импорта из Excel.
  * Содержит данные о предмете, дате, email и списке студентов.
+ * При импорте всех листов книги также хранит имя листа и время его разбора.
  *
- * @version 1.0
+ * @version 1.1
  * @author Маленков Станислав Владимирович
  */
 public class ExcelImportResult {
@@ -15,6 +16,8 @@ public class ExcelImportResult {
     private String date;              // Дата аттестации
     private String email;             // Email для отправки
     private List<Student> students;   // Список студентов
+    private String sheetName;         // Имя листа книги
+    private long parseTimeMillis;     // Время разбора листа (мс)
 
     /**
      * Создает пустой результат импорта.
@@ -112,6 +115,42 @@ public class ExcelImportResult {
         this.students = students;
     }
 
+    /**
+     * Возвращает имя листа книги, из которого получен результат.
+     *
+     * @return String - имя листа или null, если не задано
+     */
+    public String getSheetName() {
+        return sheetName;
+    }
+
+    /**
+     * Устанавливает имя листа книги.
+     *
+     * @param sheetName - имя листа
+     */
+    public void setSheetName(String sheetName) {
+        this.sheetName = sheetName;
+    }
+
+    /**
+     * Возвращает время разбора листа.
+     *
+     * @return long - время в миллисекундах
+     */
+    public long getParseTimeMillis() {
+        return parseTimeMillis;
+    }
+
+    /**
+     * Устанавливает время разбора листа.
+     *
+     * @param parseTimeMillis - время в миллисекундах
+     */
+    public void setParseTimeMillis(long parseTimeMillis) {
+        this.parseTimeMillis = parseTimeMillis;
+    }
+
     /**
      * Проверяет, есть ли данные в результате.
      *
@@ -0,0 +1,614 @@
+package logic;
+
+import org.apache.poi.ss.usermodel.BorderStyle;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.HorizontalAlignment;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.VerticalAlignment;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.apache.poi.xssf.usermodel.XSSFColor;
+import org.apache.poi.xssf.usermodel.XSSFFont;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Шаблон ведомости для экспорта в Excel.
+ * Книга-шаблон разбирается один раз и хранится в памяти как неизменяемое
+ * описание первого листа: стили ячеек, ширина колонок, высота строк,
+ * объединенные ячейки, шапка с заголовком таблицы, оформление строки
+ * студента и блок итогов. При экспорте описание отпечатывается в новую
+ * книгу, поэтому стоимость экспорта зависит только от числа студентов.
+ *
+ * <p>Лист шаблона делится на три части:</p>
+ * <ul>
+ *   <li>шапка - строки до заголовка таблицы включительно; заголовок
+ *       распознается по ключевым словам, как при импорте, а назначение
+ *       колонок (№, ФИО, оценка, результат) - по тексту заголовка;</li>
+ *   <li>таблица - строки после заголовка до первой пустой строки; первая
+ *       из них задает оформление строки студента, содержимое не используется;</li>
+ *   <li>итоги - строки после таблицы; строка, начинающаяся с подписи
+ *       итога ("Всего студентов:", "Сдали:" и т.д.), заменяется итогом ведомости.</li>
+ * </ul>
+ *
+ * <p>В тексте шапки и итогов подставляются поля {@value #SUBJECT_FIELD},
+ * {@value #DATE_FIELD} и {@value #EMAIL_FIELD}. Формулы шаблона
+ * переносятся как вычисленные значения.</p>
+ *
+ * <p>Загруженные шаблоны кэшируются по пути к файлу; при изменении
+ * размера или времени изменения файла шаблон разбирается заново.
+ * Шаблон неизменяем и может использоваться из нескольких потоков.</p>
+ *
+ * @version 1.0
+ * @author Маленков Станислав Владимирович
+ */
+public final class ExportTemplate {
+
+    /**
+     * Поле шаблона: предмет.
+     */
+    public static final String SUBJECT_FIELD = "${subject}";
+
+    /**
+     * Поле шаблона: дата аттестации.
+     */
+    public static final String DATE_FIELD = "${date}";
+
+    /**
+     * Поле шаблона: email для отправки.
+     */
+    public static final String EMAIL_FIELD = "${email}";
+
+    // Назначение колонок таблицы
+    private static final int COLUMN_OTHER = 0;
+    private static final int COLUMN_NUMBER = 1;
+    private static final int COLUMN_NAME = 2;
+    private static final int COLUMN_SCORE = 3;
+    private static final int COLUMN_RESULT = 4;
+
+    private static final int HEADER_LAST_ROW = 20;  // Заголовок ищется в строках 0-20, как при импорте
+    private static final int MIN_HEADER_KEYWORDS = 2;
+    private static final String[] HEADER_KEYWORDS = {"№", "фио", "оценка", "результат"};
+
+    private static final Map<String, ExportTemplate> CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * Ячейка шаблона: номер колонки, значение и номер стиля в описании.
+     */
+    private static final class CellSpec {
+        private final int column;
+        private final Object value;     // String, Double, Boolean или null
+        private final int style;        // Номер в списке стилей или -1
+
+        CellSpec(int column, Object value, int style) {
+            this.column = column;
+            this.value = value;
+            this.style = style;
+        }
+    }
+
+    /**
+     * Строка шаблона: высота и ячейки.
+     */
+    private static final class RowSpec {
+        private final short height;     // -1 - высота по умолчанию
+        private final List<CellSpec> cells;
+
+        RowSpec(short height, List<CellSpec> cells) {
+            this.height = height;
+            this.cells = cells;
+        }
+    }
+
+    /**
+     * Атрибуты стиля ячейки, не привязанные к книге шаблона.
+     */
+    private static final class StyleSpec {
+        private final String fontName;
+        private final short fontHeight;
+        private final boolean bold;
+        private final boolean italic;
+        private final boolean strikeout;
+        private final byte underline;
+        private final short fontColor;
+        private final byte[] fontRgb;           // Цвет шрифта RGB (только .xlsx) или null
+        private final FillPatternType fillPattern;
+        private final short fillColor;
+        private final byte[] fillRgb;           // Цвет заливки RGB (только .xlsx) или null
+        private final BorderStyle[] borders;    // Сверху, снизу, слева, справа
+        private final short[] borderColors;
+        private final HorizontalAlignment alignment;
+        private final VerticalAlignment verticalAlignment;
+        private final boolean wrapText;
+        private final short indention;
+        private final short rotation;
+        private final String dataFormat;
+
+        StyleSpec(CellStyle style, Font font) {
+            this.fontName = font.getFontName();
+            this.fontHeight = font.getFontHeight();
+            this.bold = font.getBold();
+            this.italic = font.getItalic();
+            this.strikeout = font.getStrikeout();
+            this.underline = font.getUnderline();
+            this.fontColor = font.getColor();
+            this.fontRgb = font instanceof XSSFFont ? rgb(((XSSFFont) font).getXSSFColor()) : null;
+            this.fillPattern = style.getFillPattern();
+            this.fillColor = style.getFillForegroundColor();
+            this.fillRgb = style instanceof XSSFCellStyle
+                    ? rgb(((XSSFCellStyle) style).getFillForegroundXSSFColor()) : null;
+            this.borders = new BorderStyle[]{style.getBorderTop(), style.getBorderBottom(),
+                    style.getBorderLeft(), style.getBorderRight()};
+            this.borderColors = new short[]{style.getTopBorderColor(), style.getBottomBorderColor(),
+                    style.getLeftBorderColor(), style.getRightBorderColor()};
+            this.alignment = style.getAlignment();
+            this.verticalAlignment = style.getVerticalAlignment();
+            this.wrapText = style.getWrapText();
+            this.indention = style.getIndention();
+            this.rotation = style.getRotation();
+            this.dataFormat = style.getDataFormatString();
+        }
+
+        private static byte[] rgb(XSSFColor color) {
+            return color != null && color.isRGB() ? color.getRGB() : null;
+        }
+
+        /**
+         * Создает стиль с этими атрибутами в книге экспорта.
+         */
+        CellStyle create(Workbook workbook) {
+            Font font = workbook.createFont();
+            font.setFontName(fontName);
+            font.setFontHeight(fontHeight);
+            font.setBold(bold);
+            font.setItalic(italic);
+            font.setStrikeout(strikeout);
+            font.setUnderline(underline);
+            if (fontRgb != null && font instanceof XSSFFont) {
+                ((XSSFFont) font).setColor(new XSSFColor(fontRgb, null));
+            } else {
+                font.setColor(fontColor);
+            }
+
+            CellStyle style = workbook.createCellStyle();
+            style.setFont(font);
+            style.setFillPattern(fillPattern);
+            if (fillRgb != null && style instanceof XSSFCellStyle) {
+                ((XSSFCellStyle) style).setFillForegroundColor(new XSSFColor(fillRgb, null));
+            } else {
+                style.setFillForegroundColor(fillColor);
+            }
+            style.setBorderTop(borders[0]);
+            style.setBorderBottom(borders[1]);
+            style.setBorderLeft(borders[2]);
+            style.setBorderRight(borders[3]);
+            style.setTopBorderColor(borderColors[0]);
+            style.setBottomBorderColor(borderColors[1]);
+            style.setLeftBorderColor(borderColors[2]);
+            style.setRightBorderColor(borderColors[3]);
+            style.setAlignment(alignment);
+            style.setVerticalAlignment(verticalAlignment);
+            style.setWrapText(wrapText);
+            style.setIndention(indention);
+            style.setRotation(rotation);
+            if (dataFormat != null) {
+                style.setDataFormat(workbook.createDataFormat().getFormat(dataFormat));
+            }
+            return style;
+        }
+    }
+
+    private final long fileSize;            // Размер файла шаблона при разборе
+    private final long fileModified;        // Время изменения файла шаблона при разборе
+    private final String sheetName;
+    private final short defaultRowHeight;
+    private final int[] columnWidths;       // Ширина колонок (-1 - по умолчанию)
+    private final List<StyleSpec> styles;
+    private final List<RowSpec> headRows;   // Шапка, последняя строка - заголовок таблицы
+    private final int[] columnKinds;        // Назначение колонок таблицы
+    private final RowSpec studentRow;       // Оформление строки студента
+    private final int summaryGap;           // Пустых строк между таблицей и итогами
+    private final List<RowSpec> summaryRows;
+    private final List<CellRangeAddress> headMerges;
+    private final List<CellRangeAddress> studentMerges;  // Относительно строки студента
+    private final List<CellRangeAddress> summaryMerges;  // Относительно первой строки итогов
+
+    /**
+     * Загружает шаблон из файла Excel (.xlsx или .xls).
+     * Повторная загрузка неизмененного файла возвращает
+     * уже разобранный шаблон без чтения книги.
+     *
+     * @param templatePath - путь к книге-шаблону
+     * @return ExportTemplate - шаблон
+     * @throws IOException - при ошибке чтения или если в шаблоне нет заголовка таблицы
+     */
+    public static ExportTemplate load(String templatePath) throws IOException {
+        File file = new File(templatePath).getAbsoluteFile();
+        String key = file.getPath();
+
+        ExportTemplate cached = CACHE.get(key);
+        if (cached != null && cached.fileSize == file.length() && cached.fileModified == file.lastModified()) {
+            return cached;
+        }
+
+        ExportTemplate template = parse(file);
+        CACHE.put(key, template);
+        return template;
+    }
+
+    /**
+     * Удаляет из памяти все загруженные шаблоны.
+     */
+    public static void clearCache() {
+        CACHE.clear();
+    }
+
+    private static ExportTemplate parse(File file) throws IOException {
+        String lowerPath = file.getName().toLowerCase();
+        if (!lowerPath.endsWith(".xlsx") && !lowerPath.endsWith(".xls")) {
+            throw new IOException("Шаблон должен быть файлом Excel (.xlsx или .xls)");
+        }
+
+        // Время и размер - до чтения: если файл изменится во время разбора, шаблон перечитается
+        long size = file.length();
+        long modified = file.lastModified();
+        try (Workbook workbook = ExcelExportService.openWorkbook(file.getPath(), lowerPath.endsWith(".xlsx"))) {
+            if (workbook.getNumberOfSheets() == 0) {
+                throw new IOException("Шаблон не содержит листов");
+            }
+            return new ExportTemplate(workbook, size, modified);
+        }
+    }
+
+    /**
+     * Разбирает первый лист книги-шаблона.
+     */
+    private ExportTemplate(Workbook workbook, long fileSize, long fileModified) throws IOException {
+        Sheet sheet = workbook.getSheetAt(0);
+        this.fileSize = fileSize;
+        this.fileModified = fileModified;
+        this.sheetName = sheet.getSheetName();
+        this.defaultRowHeight = sheet.getDefaultRowHeight();
+
+        int headerIndex = findHeaderRow(sheet);
+        if (headerIndex < 0) {
+            throw new IOException("В шаблоне не найден заголовок таблицы ведомости");
+        }
+
+        List<StyleSpec> styleSpecs = new ArrayList<>();
+        Map<Short, Integer> styleIndex = new HashMap<>();  // Номер стиля книги -> номер в описании
+        int lastColumn = 0;
+
+        List<RowSpec> head = new ArrayList<>(headerIndex + 1);
+        for (int i = 0; i <= headerIndex; i++) {
+            Row row = sheet.getRow(i);
+            head.add(readRow(workbook, row, styleSpecs, styleIndex));
+            if (row != null) {
+                lastColumn = Math.max(lastColumn, row.getLastCellNum());
+            }
+        }
+        Row header = sheet.getRow(headerIndex);
+
+        this.columnKinds = new int[Math.max(0, header.getLastCellNum())];
+        for (Cell cell : header) {
+            columnKinds[cell.getColumnIndex()] = columnKind(cellText(cell));
+        }
+
+        // Таблица: до первой пустой строки; первая строка задает оформление
+        int studentIndex = headerIndex + 1;
+        int tableEnd = studentIndex;
+        while (tableEnd <= sheet.getLastRowNum() && !isEmpty(sheet.getRow(tableEnd))) {
+            tableEnd++;
+        }
+        Row sample = tableEnd > studentIndex ? sheet.getRow(studentIndex) : null;
+        RowSpec student = readRow(workbook, sample, styleSpecs, styleIndex);
+        if (sample != null) {
+            lastColumn = Math.max(lastColumn, sample.getLastCellNum());
+        }
+
+        // Итоги: после пустых строк за таблицей и до конца листа
+        int summaryStart = tableEnd;
+        while (summaryStart <= sheet.getLastRowNum() && isEmpty(sheet.getRow(summaryStart))) {
+            summaryStart++;
+        }
+        List<RowSpec> summary = new ArrayList<>();
+        for (int i = summaryStart; i <= sheet.getLastRowNum(); i++) {
+            Row row = sheet.getRow(i);
+            summary.add(readRow(workbook, row, styleSpecs, styleIndex));
+            if (row != null) {
+                lastColumn = Math.max(lastColumn, row.getLastCellNum());
+            }
+        }
+
+        List<CellRangeAddress> headRegions = new ArrayList<>();
+        List<CellRangeAddress> studentRegions = new ArrayList<>();
+        List<CellRangeAddress> summaryRegions = new ArrayList<>();
+        for (CellRangeAddress region : sheet.getMergedRegions()) {
+            if (region.getLastRow() <= headerIndex) {
+                headRegions.add(region);
+            } else if (region.getFirstRow() == studentIndex && region.getLastRow() == studentIndex && sample != null) {
+                studentRegions.add(shift(region, -studentIndex));
+            } else if (region.getFirstRow() >= summaryStart) {
+                summaryRegions.add(shift(region, -summaryStart));
+            }
+            lastColumn = Math.max(lastColumn, region.getLastColumn() + 1);
+        }
+
+        this.columnWidths = new int[lastColumn];
+        for (int i = 0; i < lastColumn; i++) {
+            columnWidths[i] = sheet.isColumnHidden(i) || sheet.getColumnWidth(i) == defaultColumnWidth(sheet)
+                    ? -1 : sheet.getColumnWidth(i);
+        }
+
+        this.styles = Collections.unmodifiableList(styleSpecs);
+        this.headRows = Collections.unmodifiableList(head);
+        this.studentRow = student;
+        this.summaryGap = summaryStart - tableEnd;
+        this.summaryRows = Collections.unmodifiableList(summary);
+        this.headMerges = Collections.unmodifiableList(headRegions);
+        this.studentMerges = Collections.unmodifiableList(studentRegions);
+        this.summaryMerges = Collections.unmodifiableList(summaryRegions);
+    }
+
+    /**
+     * Ищет строку заголовка таблицы по ключевым словам.
+     *
+     * @return int - номер строки или -1
+     */
+    private static int findHeaderRow(Sheet sheet) {
+        int last = Math.min(sheet.getLastRowNum(), HEADER_LAST_ROW);
+        for (int i = 0; i <= last; i++) {
+            Row row = sheet.getRow(i);
+            if (row == null) {
+                continue;
+            }
+            int keywords = 0;
+            for (Cell cell : row) {
+                if (columnKind(cellText(cell)) != COLUMN_OTHER) {
+                    keywords++;
+                }
+            }
+            if (keywords >= MIN_HEADER_KEYWORDS) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int columnKind(String text) {
+        String lower = text.toLowerCase();
+        for (int i = 0; i < HEADER_KEYWORDS.length; i++) {
+            if (lower.contains(HEADER_KEYWORDS[i])) {
+                return COLUMN_NUMBER + i;
+            }
+        }
+        return COLUMN_OTHER;
+    }
+
+    private static String cellText(Cell cell) {
+        return cell.getCellType() == CellType.STRING ? cell.getStringCellValue().trim() : "";
+    }
+
+    private static boolean isEmpty(Row row) {
+        if (row == null) {
+            return true;
+        }
+        for (Cell cell : row) {
+            if (cellValue(cell) != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Значение ячейки шаблона; у формул - вычисленное при последнем сохранении.
+     */
+    private static Object cellValue(Cell cell) {
+        CellType type = cell.getCellType() == CellType.FORMULA ? cell.getCachedFormulaResultType() : cell.getCellType();
+        switch (type) {
+            case STRING:
+                String text = cell.getStringCellValue();
+                return text.isEmpty() ? null : text;
+            case NUMERIC:
+                return cell.getNumericCellValue();
+            case BOOLEAN:
+                return cell.getBooleanCellValue();
+            default:
+                return null;
+        }
+    }
+
+    private static RowSpec readRow(Workbook workbook, Row row, List<StyleSpec> styleSpecs,
+                                   Map<Short, Integer> styleIndex) {
+        if (row == null) {
+            return new RowSpec((short) -1, Collections.emptyList());
+        }
+
+        List<CellSpec> cells = new ArrayList<>();
+        for (Cell cell : row) {
+            CellStyle style = cell.getCellStyle();
+            int index = -1;
+            if (style != null && style.getIndex() != 0) { // Стиль 0 - стиль книги по умолчанию
+                index = styleIndex.computeIfAbsent(style.getIndex(), key -> {
+                    styleSpecs.add(new StyleSpec(style, workbook.getFontAt(style.getFontIndex())));
+                    return styleSpecs.size() - 1;
+                });
+            }
+            cells.add(new CellSpec(cell.getColumnIndex(), cellValue(cell), index));
+        }
+        short height = row.getHeight() != row.getSheet().getDefaultRowHeight() ? row.getHeight() : -1;
+        return new RowSpec(height, Collections.unmodifiableList(cells));
+    }
+
+    private static int defaultColumnWidth(Sheet sheet) {
+        return sheet.getDefaultColumnWidth() * 256;
+    }
+
+    private static CellRangeAddress shift(CellRangeAddress region, int rows) {
+        return new CellRangeAddress(region.getFirstRow() + rows, region.getLastRow() + rows,
+                region.getFirstColumn(), region.getLastColumn());
+    }
+
+    /**
+     * Возвращает имя листа шаблона.
+     *
+     * @return String - имя листа
+     */
+    public String getSheetName() {
+        return sheetName;
+    }
+
+    /* Экспорт */
+
+    /**
+     * Отпечатывает шаблон на пустой лист книги экспорта.
+     * Стили шаблона создаются в книге при каждом вызове,
+     * их число не зависит от числа студентов.
+     *
+     * @param sheet    - новый лист книги экспорта
+     * @param prepared - подготовленные данные ведомости
+     */
+    void stamp(Sheet sheet, PreparedSheet prepared) {
+        Workbook workbook = sheet.getWorkbook();
+        CellStyle[] cellStyles = new CellStyle[styles.size()];
+        for (int i = 0; i < cellStyles.length; i++) {
+            cellStyles[i] = styles.get(i).create(workbook);
+        }
+
+        sheet.setDefaultRowHeight(defaultRowHeight);
+        for (int i = 0; i < columnWidths.length; i++) {
+            if (columnWidths[i] >= 0) {
+                sheet.setColumnWidth(i, columnWidths[i]);
+            }
+        }
+
+        // Шапка и заголовок таблицы
+        int rowNum = 0;
+        for (RowSpec spec : headRows) {
+            writeRow(sheet.createRow(rowNum++), spec, cellStyles, prepared);
+        }
+        for (CellRangeAddress region : headMerges) {
+            sheet.addMergedRegionUnsafe(region);
+        }
+
+        // Студенты: оформление строки-образца, значения по назначению колонок
+        int number = 1;
+        for (Student student : prepared.getStudents()) {
+            Row row = sheet.createRow(rowNum);
+            if (studentRow.height >= 0) {
+                row.setHeight(studentRow.height);
+            }
+            for (CellSpec cell : studentRow.cells) {
+                Cell target = row.createCell(cell.column);
+                if (cell.style >= 0) {
+                    target.setCellStyle(cellStyles[cell.style]);
+                }
+            }
+            for (int column = 0; column < columnKinds.length; column++) {
+                writeStudentCell(row, column, columnKinds[column], number, student);
+            }
+            for (CellRangeAddress region : studentMerges) {
+                sheet.addMergedRegionUnsafe(shift(region, rowNum));
+            }
+            number++;
+            rowNum++;
+        }
+
+        // Итоги
+        rowNum += summaryGap;
+        int summaryStart = rowNum;
+        for (RowSpec spec : summaryRows) {
+            writeRow(sheet.createRow(rowNum++), spec, cellStyles, prepared);
+        }
+        for (CellRangeAddress region : summaryMerges) {
+            sheet.addMergedRegionUnsafe(shift(region, summaryStart));
+        }
+    }
+
+    private static void writeStudentCell(Row row, int column, int kind, int number, Student student) {
+        if (kind == COLUMN_OTHER) {
+            return;
+        }
+        Cell cell = row.getCell(column);
+        if (cell == null) {
+            cell = row.createCell(column);
+        }
+
+        switch (kind) {
+            case COLUMN_NUMBER:
+                cell.setCellValue(number);
+                break;
+            case COLUMN_NAME:
+                cell.setCellValue(student.getFullName());
+                break;
+            case COLUMN_SCORE:
+                if (student.hasGrade()) {
+                    cell.setCellValue(student.getScore());
+                } else {
+                    cell.setCellValue(PreparedSheet.NO_GRADE_TEXT);
+                }
+                break;
+            default:
+                cell.setCellValue(student.getResultText());
+                break;
+        }
+    }
+
+    private static void writeRow(Row row, RowSpec spec, CellStyle[] cellStyles, PreparedSheet prepared) {
+        if (spec.height >= 0) {
+            row.setHeight(spec.height);
+        }
+        for (CellSpec cell : spec.cells) {
+            Cell target = row.createCell(cell.column);
+            if (cell.value instanceof String) {
+                target.setCellValue(fillText((String) cell.value, prepared));
+            } else if (cell.value instanceof Double) {
+                target.setCellValue((Double) cell.value);
+            } else if (cell.value instanceof Boolean) {
+                target.setCellValue((Boolean) cell.value);
+            }
+            if (cell.style >= 0) {
+                target.setCellStyle(cellStyles[cell.style]);
+            }
+        }
+    }
+
+    /**
+     * Подставляет поля ведомости в текст ячейки шаблона.
+     * Строка итога шаблона ("Сдали: 12") заменяется итогом ведомости.
+     */
+    private static String fillText(String text, PreparedSheet prepared) {
+        String trimmed = text.trim();
+        for (String line : prepared.getSummaryLines()) {
+            String label = line.substring(0, line.indexOf(':') + 1);
+            if (trimmed.startsWith(label)) {
+                return line;
+            }
+        }
+
+        if (text.indexOf('$') < 0) {
+            return text;
+        }
+        return text.replace(SUBJECT_FIELD, nullToEmpty(prepared.getSubject()))
+                .replace(DATE_FIELD, nullToEmpty(prepared.getDate()))
+                .replace(EMAIL_FIELD, nullToEmpty(prepared.getMetadataValue(2)));
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+}
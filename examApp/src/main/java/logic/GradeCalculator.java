@@ -2,9 +2,10 @@ package logic;
 
 /**
  * Класс для расчета статистики по экзаменационной ведомости.
- * Вычисляет основные показатели успеваемости студентов.
+ * Вычисляет основные показатели успеваемости студентов
+ * и характеристики распределения оценок.
  *
- * @version 1.0
+ * @version 1.1
  * @author Маленков Станислав Владимирович
  */
 public class GradeCalculator {
@@ -22,6 +23,7 @@ public class GradeCalculator {
         int passed = record.getPassedCount();
         int failed = record.getFailedCount();
         int withoutGrade = record.getStudentsWithoutGrade();
+        String[] distribution = getDistributionLines(record.getHistogram());
 
         // Рассчитываем процент сдачи
         double percentage = withGrade > 0 ? (passed * 100.0 / withGrade) : 0;
@@ -36,9 +38,35 @@ public class GradeCalculator {
                         "Без оценки: %d\n" +
                         "Сдали: %d\n" +
                         "Не сдали: %d\n" +
-                        "Процент сдачи (от имеющих оценку): %.1f%%",
+                        "Процент сдачи (от имеющих оценку): %.1f%%\n" +
+                        "%s",
                 record.getSubject(), record.getDate(), total, withGrade,
-                withoutGrade, passed, failed, percentage
+                withoutGrade, passed, failed, percentage, String.join("\n", distribution)
         );
     }
+
+    /**
+     * Возвращает строки с характеристиками распределения оценок:
+     * средний балл, медиана, мода и стандартное отклонение.
+     * Если оценок нет, вместо значений выводится прочерк.
+     *
+     * @param histogram - гистограмма оценок
+     * @return String[] - строки вида "Медиана: 7"
+     */
+    public static String[] getDistributionLines(ScoreHistogram histogram) {
+        boolean empty = histogram.getTotal() == 0;
+        return new String[]{
+                "Средний балл: " + (empty ? "-" : String.format("%.2f", histogram.getMean())),
+                "Медиана: " + (empty ? "-" : formatScore(histogram.getMedian())),
+                "Мода: " + (empty ? "-" : String.valueOf(histogram.getMode())),
+                "Стандартное отклонение: " + (empty ? "-" : String.format("%.2f", histogram.getStandardDeviation()))
+        };
+    }
+
+    /**
+     * Форматирует оценку: целая выводится без дробной части.
+     */
+    private static String formatScore(double score) {
+        return score == Math.rint(score) ? String.valueOf((int) score) : String.format("%.1f", score);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,299 @@
+package logic;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Дисковый кэш результатов импорта Excel.
+ * Для каждого исходного файла хранится разобранный результат в компактном
+ * двоичном виде, поэтому повторное открытие неизмененного файла не требует
+ * разбора книги.
+ *
+ * <p>Запись кэша привязана к пути, размеру, времени изменения и хэшу
+ * SHA-256 содержимого файла. Если размер и время совпадают, запись
+ * используется сразу. Если изменилось только время, сверяется хэш
+ * содержимого. Состояние файла снимается до разбора и сохраняется вместе
+ * с результатом. Общий размер кэша ограничен: при превышении удаляются
+ * записи, которые дольше всего не использовались.</p>
+ *
+ * <p>Хэш считается и записи читаются и пишутся без блокировки; под блокировкой
+ * только перенос готовой записи на место и вытеснение старых записей.</p>
+ *
+ * @version 1.4
+ * @author Маленков Станислав Владимирович
+ */
+final class ImportCache {
+    private static final int MAGIC = 0x45584943;          // "EXIC"
+    private static final int FORMAT_VERSION = 3;           // 3 - строки итогов не читаются как студенты
+    private static final String ENTRY_SUFFIX = ".bin";
+    private static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    private static final ImportCache DEFAULT = new ImportCache(
+            new File(System.getProperty("user.home"), ".examApp" + File.separator + "import-cache"),
+            DEFAULT_MAX_BYTES);
+
+    private final File directory;   // Каталог с записями кэша
+    private final long maxBytes;    // Предельный общий размер записей
+
+    /**
+     * Создает кэш в указанном каталоге.
+     *
+     * @param directory - каталог для записей кэша
+     * @param maxBytes  - предельный общий размер записей в байтах
+     */
+    ImportCache(File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Возвращает кэш по умолчанию (в домашнем каталоге пользователя).
+     *
+     * @return ImportCache - общий кэш импорта
+     */
+    static ImportCache getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Состояние исходного файла, к которому привязана запись кэша:
+     * размер, время изменения и хэш содержимого.
+     */
+    static final class Identity {
+        private final long size;
+        private final long modified;
+        private final byte[] hash;
+
+        private Identity(long size, long modified, byte[] hash) {
+            this.size = size;
+            this.modified = modified;
+            this.hash = hash;
+        }
+
+        /**
+         * Проверяет, что размер и время изменения файла остались прежними.
+         */
+        private boolean matches(File source) {
+            return size == source.length() && modified == source.lastModified();
+        }
+    }
+
+    /**
+     * Запоминает состояние исходного файла. Вызывается до разбора файла,
+     * чтобы запись кэша описывала содержимое, которое было разобрано,
+     * а не то, которое оказалось в файле после разбора.
+     *
+     * @param source - исходный файл Excel
+     * @return Identity - состояние файла или null, если файл прочитать не удалось
+     */
+    Identity identify(File source) {
+        try {
+            return identity(source);
+        } catch (IOException e) {
+            return null; // Без кэша: ошибку чтения покажет разбор файла
+        }
+    }
+
+    private static Identity identity(File source) throws IOException {
+        long size = source.length();
+        long modified = source.lastModified(); // До хэша: изменение во время чтения заметит put
+        return new Identity(size, modified, contentHash(source));
+    }
+
+    /**
+     * Ищет сохраненный результат импорта для файла.
+     * Запись читается и хэш содержимого считается без блокировки:
+     * записи заменяются атомарным переносом, поэтому чтение всегда
+     * видит целую запись.
+     *
+     * @param source - исходный файл Excel
+     * @return ExcelImportResult - результат из кэша или null, если записи нет или она устарела
+     */
+    ExcelImportResult get(File source) {
+        File entry = entryFile(source);
+        if (!entry.isFile()) return null;
+
+        long modified;
+        byte[] hash;
+        ExcelImportResult result;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(entry)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION ||
+                    !in.readUTF().equals(source.getAbsolutePath())) {
+                entry.delete();
+                return null;
+            }
+
+            long size = in.readLong();
+            modified = in.readLong();
+            hash = new byte[in.readUnsignedByte()];
+            in.readFully(hash);
+
+            if (size != source.length()) {
+                entry.delete(); // Файл изменился
+                return null;
+            }
+            result = readResult(in);
+        } catch (IOException e) {
+            entry.delete(); // Поврежденная запись
+            return null;
+        }
+
+        if (modified == source.lastModified()) {
+            entry.setLastModified(System.currentTimeMillis()); // Отмечаем использование
+            return result;
+        }
+
+        Identity current = identify(source);
+        if (current == null || !Arrays.equals(hash, current.hash)) {
+            entry.delete(); // Содержимое изменилось
+            return null;
+        }
+        put(source, current, result); // Запоминаем новое время изменения
+        return result;
+    }
+
+    /**
+     * Сохраняет результат импорта файла.
+     * Если после снятия состояния файл изменился, результат не сохраняется:
+     * он мог быть разобран из другого содержимого.
+     * Ошибки записи не прерывают импорт: запись просто не попадает в кэш.
+     *
+     * @param source   - исходный файл Excel
+     * @param identity - состояние файла до разбора ({@link #identify})
+     * @param result   - результат импорта
+     */
+    void put(File source, Identity identity, ExcelImportResult result) {
+        if (identity == null || !identity.matches(source)) return;
+        if (!directory.isDirectory() && !directory.mkdirs()) return;
+
+        File temp = null;
+        try {
+            temp = File.createTempFile("entry", ".tmp", directory);
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp.toPath())))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeUTF(source.getAbsolutePath());
+                out.writeLong(identity.size);
+                out.writeLong(identity.modified);
+                out.writeByte(identity.hash.length);
+                out.write(identity.hash);
+                writeResult(out, result);
+            }
+            publish(temp, entryFile(source));
+        } catch (IOException e) {
+            // Кэш необязателен: без записи файл просто будет разобран заново
+        } finally {
+            if (temp != null) {
+                temp.delete();
+            }
+        }
+    }
+
+    /**
+     * Ставит готовую запись на место и ограничивает размер кэша.
+     * Под блокировкой только изменение набора записей.
+     */
+    private synchronized void publish(File temp, File entry) throws IOException {
+        Files.move(temp.toPath(), entry.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        evict();
+    }
+
+    /**
+     * Удаляет давно не использованные записи, пока кэш больше допустимого.
+     */
+    private void evict() {
+        File[] entries = directory.listFiles((dir, name) -> name.endsWith(ENTRY_SUFFIX));
+        if (entries == null) return;
+
+        long total = 0;
+        for (File entry : entries) {
+            total += entry.length();
+        }
+        if (total <= maxBytes) return;
+
+        Arrays.sort(entries, Comparator.comparingLong(File::lastModified));
+        for (File entry : entries) {
+            if (total <= maxBytes) break;
+            long length = entry.length();
+            if (entry.delete()) {
+                total -= length;
+            }
+        }
+    }
+
+    /**
+     * Записывает результат импорта: метаданные и студентов.
+     */
+    private static void writeResult(DataOutputStream out, ExcelImportResult result) throws IOException {
+        RecordCodec.writeString(out, result.getSubject());
+        RecordCodec.writeString(out, result.getDate());
+        RecordCodec.writeString(out, result.getEmail());
+        RecordCodec.writeStudents(out, result.getStudents());
+    }
+
+    /**
+     * Читает результат импорта, записанный {@link #writeResult}.
+     */
+    private static ExcelImportResult readResult(DataInputStream in) throws IOException {
+        ExcelImportResult result = new ExcelImportResult();
+        result.setSubject(RecordCodec.readString(in));
+        result.setDate(RecordCodec.readString(in));
+        result.setEmail(RecordCodec.readString(in));
+        result.setStudents(RecordCodec.readStudents(in));
+        return result;
+    }
+
+    /**
+     * Возвращает файл записи кэша для исходного файла (имя - хэш пути).
+     */
+    private File entryFile(File source) {
+        byte[] pathHash = sha256().digest(source.getAbsolutePath().getBytes(StandardCharsets.UTF_8));
+        return new File(directory, toHex(pathHash) + ENTRY_SUFFIX);
+    }
+
+    /**
+     * Вычисляет хэш SHA-256 содержимого файла.
+     */
+    private static byte[] contentHash(File source) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = new FileInputStream(source)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return digest.digest();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // SHA-256 есть в любой JRE
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,134 @@
+package logic;
+
+import java.util.List;
+
+/**
+ * Подготовленные данные листа ведомости для экспорта в Excel.
+ * Все вычисления, не требующие Apache POI (тексты итогов, ширина колонок),
+ * выполняются в конструкторе за один проход по студентам; статистика берется
+ * из того же снимка ведомости, что и студенты, без повторного подсчета.
+ * Подготовка не обращается к книге, поэтому листы разных ведомостей
+ * можно готовить параллельно; запись ячеек в книгу остается последовательной.
+ *
+ * @version 1.3
+ * @author Маленков Станислав Владимирович
+ */
+final class PreparedSheet {
+    static final String[] HEADERS = {"№", "ФИО студента", "Оценка (0-10)", "Результат"};
+    static final String[] METADATA_LABELS = {"Предмет:", "Дата аттестации:", "Email для отправки:"};
+    static final String NO_GRADE_TEXT = "Нет оценки";
+    static final String SUMMARY_TITLE = "ИТОГИ:";
+
+    private final String[] metadataValues;      // Предмет, дата, email
+    private final List<Student> students;       // Студенты снимка ведомости (без копирования списка)
+    private final ColumnWidthEstimator widths = new ColumnWidthEstimator(HEADERS.length);
+    private final String[] summaryLines;        // Строки итогов
+    private final ScoreHistogram histogram;     // Распределение оценок
+
+    private final int withGrade;  // Студентов с оценкой
+    private final int passed;     // Сдали
+    private final int failed;     // Не сдали
+
+    /**
+     * Подготавливает лист ведомости по снимку ведомости
+     * (для снимка - по нему самому), поэтому студенты и статистика согласованы.
+     *
+     * @param record - данные экзамена
+     * @param email  - email для отправки
+     */
+    PreparedSheet(ExamRecord record, String email) {
+        ExamRecord snapshot = record.snapshot();
+        this.metadataValues = new String[]{snapshot.getSubject(), snapshot.getDate(), email};
+        this.students = snapshot.getStudents();
+        this.histogram = snapshot.getHistogram();
+        this.withGrade = snapshot.getStudentsWithGrade();
+        this.passed = snapshot.getPassedCount();
+        this.failed = withGrade - passed;
+
+        for (int i = 0; i < METADATA_LABELS.length; i++) {
+            widths.track(0, METADATA_LABELS[i], true);
+            widths.track(1, metadataValues[i] != null ? metadataValues[i] : "", false);
+        }
+        for (int i = 0; i < HEADERS.length; i++) {
+            widths.track(i, HEADERS[i], true);
+        }
+
+        int number = 1;
+        for (Student student : students) {
+            widths.track(0, number++);
+            widths.track(1, student.getFullName(), false);
+            if (student.hasGrade()) {
+                widths.track(2, student.getScore());
+            } else {
+                widths.track(2, NO_GRADE_TEXT, false);
+            }
+            widths.track(3, student.getResultText(), false);
+        }
+
+        String[] counts = {
+                "Всего студентов: " + getTotal(),
+                "С оценкой: " + withGrade,
+                "Без оценки: " + getWithoutGrade(),
+                "Сдали: " + passed,
+                "Не сдали: " + failed
+        };
+        String[] distribution = GradeCalculator.getDistributionLines(histogram);
+        this.summaryLines = new String[counts.length + distribution.length];
+        System.arraycopy(counts, 0, summaryLines, 0, counts.length);
+        System.arraycopy(distribution, 0, summaryLines, counts.length, distribution.length);
+        widths.track(0, SUMMARY_TITLE, true);
+        for (String line : summaryLines) {
+            widths.track(0, line, false);
+        }
+    }
+
+    String getMetadataValue(int index) {
+        return metadataValues[index];
+    }
+
+    String getSubject() {
+        return metadataValues[0];
+    }
+
+    String getDate() {
+        return metadataValues[1];
+    }
+
+    List<Student> getStudents() {
+        return students;
+    }
+
+    ColumnWidthEstimator getWidths() {
+        return widths;
+    }
+
+    String[] getSummaryLines() {
+        return summaryLines;
+    }
+
+    /* Статистика */
+
+    ScoreHistogram getHistogram() {
+        return histogram;
+    }
+
+    int getTotal() {
+        return students.size();
+    }
+
+    int getWithGrade() {
+        return withGrade;
+    }
+
+    int getWithoutGrade() {
+        return students.size() - withGrade;
+    }
+
+    int getPassed() {
+        return passed;
+    }
+
+    int getFailed() {
+        return failed;
+    }
+}
@@ -0,0 +1,217 @@
+package logic;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Двоичный кодек студентов и ведомостей.
+ * Заменяет стандартную сериализацию Java: в поток не пишутся
+ * описания классов и ссылки на объекты, только сами данные.
+ *
+ * <ul>
+ *   <li>длины и количества - беззнаковые числа переменной длины (7 бит на байт);</li>
+ *   <li>строки - длина в байтах (0 для null, иначе длина + 1) и байты UTF-8,
+ *       без ограничения 64 КБ метода writeUTF;</li>
+ *   <li>оценка - один байт; оценка вне диапазона байта записывается
+ *       как {@value #WIDE_SCORE} и следующее за ним int-значение;</li>
+ *   <li>список студентов - количество и подряд идущие пары (ФИО, оценка).</li>
+ * </ul>
+ *
+ * <p>Ведомость начинается с номера версии схемы {@value #SCHEMA_VERSION}:
+ * чтение данных более новой версии завершается ошибкой, а не мусором.
+ * Списки студентов версии не имеют - их версионирует содержащий формат.</p>
+ *
+ * <p>Длины строк и количество студентов берутся из потока, поэтому
+ * при чтении они ограничены ({@value #MAX_STRING_BYTES} байт на строку,
+ * {@value #MAX_STUDENTS} студентов): поврежденная запись завершается
+ * IOException, а не попыткой выделить гигабайты памяти. Запись данных,
+ * которые нельзя будет прочитать, тоже завершается ошибкой.</p>
+ *
+ * @version 1.2
+ * @author Маленков Станислав Владимирович
+ */
+public final class RecordCodec {
+
+    /**
+     * Текущая версия схемы ведомости.
+     */
+    public static final int SCHEMA_VERSION = 1;
+
+    private static final byte WIDE_SCORE = Byte.MIN_VALUE; // Далее следует оценка типа int
+    static final int MAX_STRING_BYTES = 1 << 20;           // Наибольшая длина строки в байтах UTF-8
+    private static final int MAX_STUDENTS = 1 << 24;       // Наибольшее число студентов в списке
+
+    private RecordCodec() {
+    }
+
+    /* Ведомость */
+
+    /**
+     * Записывает ведомость (версия схемы, предмет, дата, студенты).
+     *
+     * @param out    - поток вывода
+     * @param record - ведомость
+     * @throws IOException - при ошибке записи
+     */
+    public static void writeRecord(DataOutput out, ExamRecord record) throws IOException {
+        out.writeByte(SCHEMA_VERSION);
+        writeString(out, record.getSubject());
+        writeString(out, record.getDate());
+        writeStudents(out, record.getStudents());
+    }
+
+    /**
+     * Читает ведомость, записанную {@link #writeRecord}.
+     *
+     * @param in - поток ввода
+     * @return ExamRecord - ведомость
+     * @throws IOException - при ошибке чтения или неподдерживаемой версии схемы
+     */
+    public static ExamRecord readRecord(DataInput in) throws IOException {
+        int version = in.readUnsignedByte();
+        if (version < 1 || version > SCHEMA_VERSION) {
+            throw new IOException("Неподдерживаемая версия данных ведомости: " + version);
+        }
+
+        ExamRecord record = new ExamRecord(readString(in), readString(in));
+        for (Student student : readStudents(in)) {
+            record.addStudent(student);
+        }
+        return record;
+    }
+
+    /* Студенты */
+
+    /**
+     * Записывает список студентов.
+     *
+     * @param out      - поток вывода
+     * @param students - студенты
+     * @throws IOException - при ошибке записи
+     */
+    public static void writeStudents(DataOutput out, List<Student> students) throws IOException {
+        checkBound(students.size(), MAX_STUDENTS, "студентов");
+        writeLength(out, students.size());
+        for (Student student : students) {
+            writeString(out, student.getFullName());
+            writeScore(out, student.getScore());
+        }
+    }
+
+    /**
+     * Читает список студентов, записанный {@link #writeStudents}.
+     *
+     * @param in - поток ввода
+     * @return List<Student> - студенты
+     * @throws IOException - при ошибке чтения или поврежденных длинах
+     */
+    public static List<Student> readStudents(DataInput in) throws IOException {
+        int count = checkBound(readLength(in), MAX_STUDENTS, "студентов");
+        List<Student> students = new ArrayList<>(Math.min(count, 1 << 16)); // Список растет по мере чтения
+        byte[] buffer = new byte[64];
+
+        for (int i = 0; i < count; i++) {
+            int length = readLength(in);
+            String fullName = null;
+            if (length > 0) {
+                length = checkBound(length - 1, MAX_STRING_BYTES, "байт в строке");
+                if (buffer.length < length) {
+                    buffer = new byte[Math.max(length, buffer.length * 2)];
+                }
+                in.readFully(buffer, 0, length);
+                fullName = new String(buffer, 0, length, StandardCharsets.UTF_8);
+            }
+            students.add(new Student(fullName, readScore(in)));
+        }
+        return students;
+    }
+
+    /* Значения */
+
+    /**
+     * Записывает строку в UTF-8 с длиной (null допускается).
+     *
+     * @param out   - поток вывода
+     * @param value - строка или null
+     * @throws IOException - при ошибке записи
+     */
+    public static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            writeLength(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        checkBound(bytes.length, MAX_STRING_BYTES, "байт в строке");
+        writeLength(out, bytes.length + 1);
+        out.write(bytes);
+    }
+
+    /**
+     * Читает строку, записанную {@link #writeString}.
+     *
+     * @param in - поток ввода
+     * @return String - строка или null
+     * @throws IOException - при ошибке чтения или поврежденной длине
+     */
+    public static String readString(DataInput in) throws IOException {
+        int length = readLength(in);
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[checkBound(length - 1, MAX_STRING_BYTES, "байт в строке")];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeScore(DataOutput out, int score) throws IOException {
+        if (score > Byte.MIN_VALUE && score <= Byte.MAX_VALUE) {
+            out.writeByte(score);
+        } else {
+            out.writeByte(WIDE_SCORE);
+            out.writeInt(score);
+        }
+    }
+
+    private static int readScore(DataInput in) throws IOException {
+        byte score = in.readByte();
+        return score == WIDE_SCORE ? in.readInt() : score;
+    }
+
+    /**
+     * Записывает неотрицательное число переменной длины (7 бит на байт).
+     */
+    private static void writeLength(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    /**
+     * Проверяет длину или количество, прочитанные из потока или готовые к записи.
+     */
+    private static int checkBound(int value, int max, String what) throws IOException {
+        if (value > max) {
+            throw new IOException("Недопустимый размер данных: " + value + " " + what + ", допустимо не больше " + max);
+        }
+        return value;
+    }
+
+    private static int readLength(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (value < 0) break;
+                return value;
+            }
+        }
+        throw new IOException("Поврежденные данные: неверная длина");
+    }
+}
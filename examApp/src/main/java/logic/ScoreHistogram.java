@@ -0,0 +1,251 @@
+package logic;
+
+/**
+ * Гистограмма оценок ведомости.
+ * Оценки - целые числа от {@value #MIN_SCORE} до {@value #MAX_SCORE}, поэтому
+ * распределение хранится как счетчик на каждую оценку вместе с суммой оценок
+ * и суммой их квадратов. Все характеристики распределения (среднее, медиана,
+ * мода, стандартное отклонение, процентили, процентильный ранг) считаются
+ * по {@value #MAX_SCORE} + 1 счетчикам, то есть за постоянное время
+ * независимо от числа студентов.
+ *
+ * <p>Учитываются только студенты с оценкой. Для пустой гистограммы
+ * среднее, медиана, отклонение и процентили равны {@link Double#NaN},
+ * мода равна -1.</p>
+ *
+ * <p>Гистограмму ведет {@link ExamRecord}; наружу выдаются копии.</p>
+ *
+ * @version 1.0
+ * @author Маленков Станислав Владимирович
+ */
+public final class ScoreHistogram {
+
+    /**
+     * Наименьшая оценка.
+     */
+    public static final int MIN_SCORE = 0;
+
+    /**
+     * Наибольшая оценка.
+     */
+    public static final int MAX_SCORE = 10;
+
+    private final int[] counts = new int[MAX_SCORE - MIN_SCORE + 1]; // Студентов с каждой оценкой
+    private int total;          // Студентов с оценкой
+    private long sum;           // Сумма оценок
+    private long sumOfSquares;  // Сумма квадратов оценок
+
+    /**
+     * Создает пустую гистограмму.
+     */
+    ScoreHistogram() {
+    }
+
+    /**
+     * Создает копию гистограммы.
+     *
+     * @param other - исходная гистограмма
+     */
+    ScoreHistogram(ScoreHistogram other) {
+        System.arraycopy(other.counts, 0, counts, 0, counts.length);
+        this.total = other.total;
+        this.sum = other.sum;
+        this.sumOfSquares = other.sumOfSquares;
+    }
+
+    /**
+     * Проверяет, учитывается ли оценка в гистограмме.
+     *
+     * @param score - оценка
+     * @return boolean - true для оценок от MIN_SCORE до MAX_SCORE
+     */
+    static boolean isScore(int score) {
+        return score >= MIN_SCORE && score <= MAX_SCORE;
+    }
+
+    /**
+     * Добавляет (delta = 1) или убирает (delta = -1) оценку.
+     * Значения вне диапазона оценок не учитываются.
+     */
+    void add(int score, int delta) {
+        if (!isScore(score)) {
+            return;
+        }
+        counts[score - MIN_SCORE] += delta;
+        total += delta;
+        sum += (long) score * delta;
+        sumOfSquares += (long) score * score * delta;
+    }
+
+    /**
+     * Добавляет все оценки другой гистограммы (например, для итогов по нескольким ведомостям).
+     *
+     * @param other - добавляемая гистограмма
+     */
+    void addAll(ScoreHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+        sum += other.sum;
+        sumOfSquares += other.sumOfSquares;
+    }
+
+    /* Счетчики */
+
+    /**
+     * Возвращает количество студентов с оценкой.
+     *
+     * @return int - количество студентов
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * Возвращает количество студентов с указанной оценкой.
+     *
+     * @param score - оценка
+     * @return int - количество студентов (0 для оценок вне диапазона)
+     */
+    public int getCount(int score) {
+        return isScore(score) ? counts[score - MIN_SCORE] : 0;
+    }
+
+    /**
+     * Возвращает количество студентов с оценкой ниже указанной.
+     *
+     * @param score - оценка
+     * @return int - количество студентов
+     */
+    public int getCountBelow(int score) {
+        int below = 0;
+        for (int s = MIN_SCORE; s < score && s <= MAX_SCORE; s++) {
+            below += counts[s - MIN_SCORE];
+        }
+        return below;
+    }
+
+    /**
+     * Возвращает количество студентов с оценкой не ниже указанной.
+     *
+     * @param score - оценка
+     * @return int - количество студентов
+     */
+    public int getCountAtLeast(int score) {
+        return total - getCountBelow(score);
+    }
+
+    /* Характеристики распределения */
+
+    /**
+     * Возвращает средний балл.
+     *
+     * @return double - среднее или NaN, если оценок нет
+     */
+    public double getMean() {
+        return total > 0 ? (double) sum / total : Double.NaN;
+    }
+
+    /**
+     * Возвращает дисперсию оценок (по генеральной совокупности).
+     *
+     * @return double - дисперсия или NaN, если оценок нет
+     */
+    public double getVariance() {
+        if (total == 0) {
+            return Double.NaN;
+        }
+        double mean = (double) sum / total;
+        return Math.max(0, (double) sumOfSquares / total - mean * mean);
+    }
+
+    /**
+     * Возвращает стандартное отклонение оценок (по генеральной совокупности).
+     *
+     * @return double - отклонение или NaN, если оценок нет
+     */
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    /**
+     * Возвращает медиану оценок.
+     *
+     * @return double - медиана или NaN, если оценок нет
+     */
+    public double getMedian() {
+        return getPercentile(50);
+    }
+
+    /**
+     * Возвращает самую частую оценку (при равенстве - меньшую).
+     *
+     * @return int - мода или -1, если оценок нет
+     */
+    public int getMode() {
+        int mode = -1;
+        int best = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > best) {
+                best = counts[i];
+                mode = i + MIN_SCORE;
+            }
+        }
+        return mode;
+    }
+
+    /**
+     * Возвращает процентиль оценок с линейной интерполяцией между
+     * соседними по порядку оценками (как ПРОЦЕНТИЛЬ.ВКЛ в Excel).
+     *
+     * @param percent - процент от 0 до 100
+     * @return double - значение процентиля или NaN, если оценок нет
+     * @throws IllegalArgumentException - если процент вне диапазона 0-100
+     */
+    public double getPercentile(double percent) {
+        if (!(percent >= 0 && percent <= 100)) {
+            throw new IllegalArgumentException("Процент должен быть от 0 до 100: " + percent);
+        }
+        if (total == 0) {
+            return Double.NaN;
+        }
+
+        double position = percent / 100 * (total - 1); // Номер в упорядоченном списке оценок
+        int lower = (int) Math.floor(position);
+        double fraction = position - lower;
+        int lowerScore = scoreAt(lower);
+        if (fraction == 0) {
+            return lowerScore;
+        }
+        return lowerScore + fraction * (scoreAt(lower + 1) - lowerScore);
+    }
+
+    /**
+     * Возвращает процентильный ранг оценки: долю студентов с оценкой ниже
+     * указанной плюс половину студентов с такой же оценкой.
+     *
+     * @param score - оценка
+     * @return double - ранг от 0 до 100 или NaN, если оценок нет
+     */
+    public double getPercentileRank(int score) {
+        if (total == 0) {
+            return Double.NaN;
+        }
+        return (getCountBelow(score) + getCount(score) / 2.0) * 100 / total;
+    }
+
+    /**
+     * Возвращает оценку с указанным номером в упорядоченном списке оценок.
+     */
+    private int scoreAt(int index) {
+        int seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (index < seen) {
+                return i + MIN_SCORE;
+            }
+        }
+        return MAX_SCORE;
+    }
+}
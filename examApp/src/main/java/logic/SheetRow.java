@@ -0,0 +1,170 @@
+package logic;
+
+import java.util.Arrays;
+
+/**
+ * Строка листа Excel со значениями ячеек.
+ * Общее представление строки для обычного и потокового импорта.
+ * Числовые ячейки хранятся как числа и превращаются в строку только
+ * по запросу, поэтому чтение оценок обходится без лишних объектов.
+ * Объект может переиспользоваться для чтения следующих строк.
+ *
+ * @version 1.1
+ * @author Маленков Станислав Владимирович
+ */
+class SheetRow {
+    private int rowNum;         // Номер строки на листе (с нуля)
+    private String[] cells;     // Текстовые значения (null - ячейки нет)
+    private double[] numbers;   // Значения числовых ячеек
+    private boolean[] numeric;  // Признак числовой ячейки
+    private int cellCount;      // Номер последней ячейки + 1
+
+    /**
+     * Создает пустую строку.
+     */
+    SheetRow() {
+        this(8);
+    }
+
+    private SheetRow(int capacity) {
+        this.cells = new String[capacity];
+        this.numbers = new double[capacity];
+        this.numeric = new boolean[capacity];
+    }
+
+    /**
+     * Очищает строку перед чтением новых данных.
+     *
+     * @param rowNum - номер новой строки
+     */
+    void reset(int rowNum) {
+        Arrays.fill(cells, 0, cellCount, null);
+        Arrays.fill(numeric, 0, cellCount, false);
+        this.cellCount = 0;
+        this.rowNum = rowNum;
+    }
+
+    /**
+     * Устанавливает текстовое значение ячейки.
+     *
+     * @param column - номер колонки (с нуля)
+     * @param value  - текстовое значение ячейки без пробелов по краям
+     */
+    void setCell(int column, String value) {
+        if (!prepare(column)) return;
+
+        cells[column] = value;
+        numeric[column] = false;
+    }
+
+    /**
+     * Устанавливает числовое значение ячейки.
+     *
+     * @param column - номер колонки (с нуля)
+     * @param value  - числовое значение ячейки
+     */
+    void setNumber(int column, double value) {
+        if (!prepare(column)) return;
+
+        cells[column] = null;
+        numbers[column] = value;
+        numeric[column] = true;
+    }
+
+    /**
+     * Расширяет массивы под колонку и обновляет количество ячеек.
+     */
+    private boolean prepare(int column) {
+        if (column < 0) return false;
+
+        if (column >= cells.length) {
+            int capacity = Math.max(column + 1, cells.length * 2);
+            cells = Arrays.copyOf(cells, capacity);
+            numbers = Arrays.copyOf(numbers, capacity);
+            numeric = Arrays.copyOf(numeric, capacity);
+        }
+        if (column >= cellCount) {
+            cellCount = column + 1;
+        }
+        return true;
+    }
+
+    /**
+     * Возвращает номер строки на листе.
+     *
+     * @return int - номер строки (с нуля)
+     */
+    int getRowNum() {
+        return rowNum;
+    }
+
+    /**
+     * Возвращает количество ячеек (номер последней ячейки + 1).
+     *
+     * @return int - количество ячеек
+     */
+    int getCellCount() {
+        return cellCount;
+    }
+
+    /**
+     * Проверяет, есть ли в строке указанная ячейка.
+     *
+     * @param column - номер колонки
+     * @return boolean - true если ячейка существует
+     */
+    boolean hasCell(int column) {
+        return column >= 0 && column < cellCount && (cells[column] != null || numeric[column]);
+    }
+
+    /**
+     * Проверяет, является ли ячейка числовой.
+     *
+     * @param column - номер колонки
+     * @return boolean - true если ячейка хранит число
+     */
+    boolean isNumeric(int column) {
+        return column >= 0 && column < cellCount && numeric[column];
+    }
+
+    /**
+     * Возвращает значение числовой ячейки.
+     *
+     * @param column - номер колонки
+     * @return double - значение ячейки или 0, если ячейка не числовая
+     */
+    double getNumber(int column) {
+        return isNumeric(column) ? numbers[column] : 0;
+    }
+
+    /**
+     * Возвращает текстовое значение ячейки.
+     * Числовая ячейка форматируется при первом обращении.
+     *
+     * @param column - номер колонки
+     * @return String - значение ячейки или пустая строка
+     */
+    String getCell(int column) {
+        if (!hasCell(column)) return "";
+
+        if (cells[column] == null) {
+            cells[column] = ExcelExportService.formatNumericValue(numbers[column]);
+        }
+        return cells[column];
+    }
+
+    /**
+     * Создает независимую копию строки.
+     *
+     * @return SheetRow - копия строки
+     */
+    SheetRow copy() {
+        SheetRow copy = new SheetRow(Math.max(cellCount, 1));
+        copy.rowNum = rowNum;
+        copy.cellCount = cellCount;
+        System.arraycopy(cells, 0, copy.cells, 0, cellCount);
+        System.arraycopy(numbers, 0, copy.numbers, 0, cellCount);
+        System.arraycopy(numeric, 0, copy.numeric, 0, cellCount);
+        return copy;
+    }
+}
@@ -0,0 +1,441 @@
+package logic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Однопроходный классификатор строк листа ведомости.
+ * Каждая строка классифицируется один раз как метаданные, заголовок
+ * таблицы, студент, итоги или пустая строка. Строки поступают строго
+ * по возрастанию номеров, поэтому классификатор одинаково работает
+ * с обычным и с потоковым импортом.
+ *
+ * <p>Заголовок таблицы ищется в первых {@value #HEADER_LAST_ROW} + 1 строках.
+ * Пока это окно не закрыто, строки, похожие на данные, откладываются:
+ * если заголовок найдется, они окажутся частью шапки документа,
+ * иначе с первой из них начинается таблица студентов.</p>
+ *
+ * <p>Распознанные студенты могут сразу передаваться слушателю,
+ * не дожидаясь окончания разбора листа.</p>
+ *
+ * @version 1.3
+ * @author Маленков Станислав Владимирович
+ */
+class SheetRowClassifier {
+    private static final int METADATA_LAST_ROW = 10;   // Метаданные ищутся в строках 0-10
+    private static final int HEADER_LAST_ROW = 20;     // Заголовок ищется в строках 0-20
+    private static final int NO_SCORE = Integer.MIN_VALUE; // Ячейка не содержит целого числа
+
+    // Ключевые слова в нижнем регистре
+    private static final String[] HEADER_KEYWORDS = {"№", "фио", "оценка", "результат"};
+    private static final String[] SUMMARY_KEYWORDS = {"итог", "всего", "сдали", "не сдали",
+            "с оценкой:", "без оценки:", "средний балл:", "медиана:", "мода:", "стандартное отклонение:"};
+    private static final String[] NAME_STOP_WORDS = {"фио", "итог"};
+
+    /**
+     * Тип строки листа.
+     */
+    enum RowKind {
+        METADATA,   // Предмет, дата или email
+        HEADER,     // Заголовок таблицы студентов
+        STUDENT,    // Строка со студентом
+        SUMMARY,    // Итоговая строка
+        EMPTY,      // Пустая строка
+        OTHER       // Прочий текст вне таблицы
+    }
+
+    /**
+     * Состояние разбора листа.
+     */
+    private enum State {
+        PREAMBLE,   // Окно поиска заголовка открыто
+        SEEK_DATA,  // Заголовок не найден, ждем первую строку данных
+        TABLE       // Читаем таблицу студентов
+    }
+
+    private final ExcelImportResult result;
+    private final List<Student> students;
+    private final List<SheetRow> pending;   // Отложенные строки до закрытия окна заголовка
+    private final int[] kindCounts;         // Количество строк каждого типа
+    private final Consumer<Student> studentListener; // Получатель студентов (может быть null)
+    private State state;
+
+    /**
+     * Создает классификатор с пустым результатом.
+     */
+    SheetRowClassifier() {
+        this(null);
+    }
+
+    /**
+     * Создает классификатор, передающий студентов слушателю по мере распознавания.
+     *
+     * @param studentListener - получатель студентов (может быть null)
+     */
+    SheetRowClassifier(Consumer<Student> studentListener) {
+        this.studentListener = studentListener;
+        this.result = new ExcelImportResult();
+        this.result.setSubject("");
+        this.result.setDate("");
+        this.result.setEmail("");
+        this.students = new ArrayList<>();
+        this.pending = new ArrayList<>();
+        this.kindCounts = new int[RowKind.values().length];
+        this.state = State.PREAMBLE;
+    }
+
+    /**
+     * Классифицирует очередную строку листа.
+     * Строки должны поступать в порядке возрастания номеров.
+     *
+     * @param row - строка листа (может переиспользоваться вызывающим)
+     */
+    void accept(SheetRow row) {
+        if (state == State.PREAMBLE && row.getRowNum() > HEADER_LAST_ROW) {
+            closeHeaderWindow();
+        }
+
+        RowKind kind;
+        switch (state) {
+            case PREAMBLE:
+                kind = classifyPreambleRow(row);
+                break;
+            case SEEK_DATA:
+                kind = classifySeekDataRow(row);
+                break;
+            default:
+                kind = classifyTableRow(row);
+                break;
+        }
+
+        if (kind != null) {
+            kindCounts[kind.ordinal()]++;
+        }
+    }
+
+    /**
+     * Возвращает количество строк указанного типа.
+     * Отложенные строки учитываются после закрытия окна заголовка.
+     *
+     * @param kind - тип строки
+     * @return int - количество строк
+     */
+    int getRowCount(RowKind kind) {
+        return kindCounts[kind.ordinal()];
+    }
+
+    /**
+     * Завершает разбор листа и возвращает результат.
+     *
+     * @return ExcelImportResult - результат импорта
+     */
+    ExcelImportResult finish() {
+        if (state == State.PREAMBLE) {
+            closeHeaderWindow();
+        }
+        result.setStudents(students);
+        return result;
+    }
+
+    /**
+     * Классифицирует строку в окне поиска заголовка.
+     *
+     * @return RowKind - тип строки или null, если решение отложено
+     */
+    private RowKind classifyPreambleRow(SheetRow row) {
+        if (isEmptyRow(row)) {
+            return RowKind.EMPTY;
+        }
+        if (row.getRowNum() <= METADATA_LAST_ROW && readMetadataRow(row)) {
+            return RowKind.METADATA;
+        }
+        if (isTableHeader(row)) {
+            kindCounts[RowKind.OTHER.ordinal()] += pending.size();
+            pending.clear(); // Отложенные строки оказались шапкой документа
+            state = State.TABLE;
+            return RowKind.HEADER;
+        }
+        if (!pending.isEmpty() || isDataStartRow(row)) {
+            pending.add(row.copy());
+            return null; // Решение будет принято при закрытии окна
+        }
+        return RowKind.OTHER;
+    }
+
+    /**
+     * Классифицирует строку после окна заголовка, пока данные не начались.
+     */
+    private RowKind classifySeekDataRow(SheetRow row) {
+        if (isDataStartRow(row)) {
+            state = State.TABLE;
+            return classifyTableRow(row);
+        }
+        return isEmptyRow(row) ? RowKind.EMPTY : RowKind.OTHER;
+    }
+
+    /**
+     * Закрывает окно поиска заголовка: заголовка нет, поэтому таблица
+     * начинается с первой отложенной строки.
+     */
+    private void closeHeaderWindow() {
+        state = pending.isEmpty() ? State.SEEK_DATA : State.TABLE;
+        for (SheetRow row : pending) {
+            kindCounts[classifyTableRow(row).ordinal()]++;
+        }
+        pending.clear();
+    }
+
+    /**
+     * Классифицирует строку таблицы студентов.
+     */
+    private RowKind classifyTableRow(SheetRow row) {
+        if (isSummaryRow(row)) {
+            return RowKind.SUMMARY;
+        }
+        if (isEmptyRow(row)) {
+            return RowKind.EMPTY;
+        }
+
+        Student student = readStudentFromRow(row);
+        if (student == null) {
+            return RowKind.OTHER;
+        }
+        students.add(student);
+        if (studentListener != null) {
+            studentListener.accept(student);
+        }
+        return RowKind.STUDENT;
+    }
+
+    /**
+     * Читает метаданные из строки (метка в колонке A, значение в B).
+     *
+     * @return boolean - true если строка содержит метаданные
+     */
+    private boolean readMetadataRow(SheetRow row) {
+        if (!row.hasCell(0) || row.isNumeric(0)) return false;
+
+        String label = row.getCell(0);
+
+        if (containsIgnoreCase(label, "предмет:")) {
+            result.setSubject(row.getCell(1));
+        } else if (containsIgnoreCase(label, "дата") && containsIgnoreCase(label, "аттестации:")) {
+            result.setDate(row.getCell(1));
+        } else if (containsIgnoreCase(label, "email") || containsIgnoreCase(label, "почта")) {
+            result.setEmail(row.getCell(1));
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Проверяет, является ли строка заголовком таблицы.
+     */
+    private static boolean isTableHeader(SheetRow row) {
+        int matchCount = 0;
+
+        for (int i = 0; i < Math.min(4, row.getCellCount()); i++) {
+            if (row.hasCell(i) && !row.isNumeric(i) &&
+                    containsAnyIgnoreCase(row.getCell(i), HEADER_KEYWORDS)) {
+                matchCount++;
+            }
+        }
+
+        return matchCount >= 2; // Хотя бы 2 совпадения
+    }
+
+    /**
+     * Проверяет, похожа ли строка на первую строку данных (ФИО в колонке B).
+     */
+    private static boolean isDataStartRow(SheetRow row) {
+        if (!row.hasCell(1) || isNonNegativeInteger(row, 1)) return false;
+
+        String name = row.getCell(1).trim();
+        return !isBlank(name) && !isDigits(name) &&
+                !containsAnyIgnoreCase(name, NAME_STOP_WORDS) &&
+                name.length() > 2;
+    }
+
+    /**
+     * Проверяет, является ли строка итоговой.
+     */
+    private static boolean isSummaryRow(SheetRow row) {
+        return row.hasCell(0) && !row.isNumeric(0) &&
+                containsAnyIgnoreCase(row.getCell(0), SUMMARY_KEYWORDS);
+    }
+
+    /**
+     * Проверяет, является ли строка пустой.
+     */
+    private static boolean isEmptyRow(SheetRow row) {
+        for (int i = 0; i < row.getCellCount(); i++) {
+            if (row.isNumeric(i) || (row.hasCell(i) && !isBlank(row.getCell(i)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Читает данные студента из строки.
+     */
+    private static Student readStudentFromRow(SheetRow row) {
+        int nameColumn = 1; // ФИО в колонке B
+        if (!row.hasCell(nameColumn)) {
+            nameColumn = 0; // Пробуем колонку A
+            if (!row.hasCell(nameColumn)) return null;
+        }
+        if (isNonNegativeInteger(row, nameColumn)) {
+            return null; // Номер вместо ФИО
+        }
+
+        String fullName = row.getCell(nameColumn).trim();
+        if (isBlank(fullName) || isDigits(fullName) ||
+                containsAnyIgnoreCase(fullName, NAME_STOP_WORDS)) {
+            return null;
+        }
+
+        // Ищем оценку в колонках 2-3
+        int score = -1;
+        for (int i = 2; i <= 3; i++) {
+            if (row.hasCell(i)) {
+                int value = readScore(row, i);
+                if (value != NO_SCORE) {
+                    score = value;
+                    if (score >= 0 && score <= 10) {
+                        break; // Нашли валидную оценку
+                    }
+                }
+            }
+        }
+        return new Student(fullName, score);
+    }
+
+    /* Разбор значений без регулярных выражений и исключений */
+
+    /**
+     * Читает целое число из ячейки оценки.
+     * Числовая ячейка читается напрямую, без преобразования в строку.
+     *
+     * @return int - значение или NO_SCORE, если ячейка не содержит целого числа
+     */
+    private static int readScore(SheetRow row, int column) {
+        if (row.isNumeric(column)) {
+            double value = row.getNumber(column);
+            return value == Math.floor(value) ? (int) value : NO_SCORE;
+        }
+
+        String text = row.getCell(column).trim();
+        if (text.isEmpty() || text.equalsIgnoreCase("нет оценки")) {
+            return NO_SCORE;
+        }
+        return parseInteger(text);
+    }
+
+    /**
+     * Разбирает целое число со знаком (аналог Integer.parseInt без исключений).
+     *
+     * @return int - значение или NO_SCORE, если строка не является числом
+     */
+    private static int parseInteger(String text) {
+        int length = text.length();
+        int start = 0;
+        boolean negative = false;
+
+        char first = text.charAt(0);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            start = 1;
+        }
+        if (start == length || length - start > 10) {
+            return NO_SCORE; // Нет цифр или заведомое переполнение
+        }
+
+        long value = 0;
+        for (int i = start; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return NO_SCORE;
+            }
+            value = value * 10 + (c - '0');
+        }
+
+        value = negative ? -value : value;
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            return NO_SCORE;
+        }
+        return (int) value;
+    }
+
+    /**
+     * Проверяет, хранит ли ячейка неотрицательное целое число
+     * (его строковый вид состоит только из цифр).
+     */
+    private static boolean isNonNegativeInteger(SheetRow row, int column) {
+        if (!row.isNumeric(column)) return false;
+
+        double value = row.getNumber(column);
+        return value >= 0 && value == Math.floor(value);
+    }
+
+    /**
+     * Проверяет, состоит ли строка только из цифр (аналог matches("\\d+")).
+     */
+    private static boolean isDigits(String text) {
+        if (text.isEmpty()) return false;
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Проверяет, пуста ли строка после удаления пробелов (аналог trim().isEmpty()).
+     */
+    private static boolean isBlank(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Проверяет, содержит ли текст хотя бы одно из ключевых слов.
+     */
+    private static boolean containsAnyIgnoreCase(String text, String[] keywords) {
+        for (String keyword : keywords) {
+            if (containsIgnoreCase(text, keyword)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Ищет ключевое слово без учета регистра, не создавая новых строк.
+     *
+     * @param text    - текст ячейки
+     * @param keyword - ключевое слово в нижнем регистре
+     * @return boolean - true если слово найдено
+     */
+    private static boolean containsIgnoreCase(String text, String keyword) {
+        int length = keyword.length();
+        char first = keyword.charAt(0);
+
+        for (int i = 0; i <= text.length() - length; i++) {
+            if (Character.toLowerCase(text.charAt(i)) == first &&
+                    text.regionMatches(true, i, keyword, 0, length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
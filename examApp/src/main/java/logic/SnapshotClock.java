@@ -0,0 +1,126 @@
+package logic;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.TreeMap;
+
+/**
+ * Часы снимков ведомостей.
+ * Каждое изменение студента помечается текущей эпохой, а снимок
+ * ({@link ExamRecord#snapshot()}) забирает эпоху себе и переводит часы
+ * на следующую. Снимок видит значение студента, записанное в эпоху не позже
+ * его собственной; более поздние изменения для него невидимы.
+ *
+ * <p>Часы помнят эпохи живых снимков, чтобы студент сохранял прежнее значение,
+ * только если его еще может прочитать какой-либо снимок. Снимки отслеживаются
+ * через слабые ссылки: эпоха освобождается, когда снимок собран сборщиком мусора.</p>
+ *
+ * <p>Часы одни на процесс, а не на ведомость: студент может входить
+ * в несколько ведомостей, и его ревизии должны упорядочиваться относительно
+ * снимков каждой из них. Поэтому живой снимок любой ведомости заставляет
+ * сохранять прежние значения всех студентов, измененных после него, в том
+ * числе студентов других ведомостей. Такие ревизии отбрасываются при
+ * следующем изменении студента после того, как снимок собран.</p>
+ *
+ * <p>Изменения студентов читают часы без блокировки: эпохи живых снимков
+ * публикуются упорядоченным массивом через volatile-поле. Блокировка берется
+ * только при снимке и при освобождении эпох собранных снимков.</p>
+ *
+ * @version 1.2
+ * @author Маленков Станислав Владимирович
+ */
+final class SnapshotClock {
+
+    /**
+     * Слабая ссылка на снимок вместе с его эпохой.
+     */
+    private static final class EpochReference extends WeakReference<Object> {
+        private final long epoch;
+
+        EpochReference(Object snapshot, long epoch) {
+            super(snapshot, released);
+            this.epoch = epoch;
+        }
+    }
+
+    private static final ReferenceQueue<Object> released = new ReferenceQueue<>();
+    private static final TreeMap<Long, EpochReference> live = new TreeMap<>(); // Эпохи живых снимков
+    private static volatile long[] liveEpochs = {};                            // Копия ключей live для чтения
+    private static volatile long epoch = 1;                                    // Эпоха текущих изменений
+
+    private SnapshotClock() {
+    }
+
+    /**
+     * Возвращает эпоху текущих изменений.
+     *
+     * @return long - эпоха
+     */
+    static long current() {
+        return epoch;
+    }
+
+    /**
+     * Закрепляет текущую эпоху за снимком и переводит часы на следующую.
+     *
+     * @param snapshot - снимок; эпоха освобождается, когда он становится недостижим
+     * @return long - эпоха снимка
+     */
+    static synchronized long capture(Object snapshot) {
+        drain();
+        long captured = epoch;
+        live.put(captured, new EpochReference(snapshot, captured));
+        publish();
+        epoch = captured + 1; // После публикации: кто видит новую эпоху, видит и снимок
+        return captured;
+    }
+
+    /**
+     * Проверяет, есть ли живой снимок, видящий значение, которое
+     * было записано в эпоху from и заменено в эпоху to.
+     *
+     * @param from - эпоха записи значения
+     * @param to   - эпоха замены значения
+     * @return boolean - true если значение нужно сохранить
+     */
+    static boolean isVisible(long from, long to) {
+        expunge();
+        long[] epochs = liveEpochs;
+        int index = Arrays.binarySearch(epochs, from);
+        if (index < 0) {
+            index = -index - 1; // Первая эпоха не меньше from
+        }
+        return index < epochs.length && epochs[index] < to;
+    }
+
+    /**
+     * Забывает эпохи собранных снимков. Пустая очередь проверяется без блокировки.
+     */
+    private static void expunge() {
+        EpochReference reference = (EpochReference) released.poll();
+        if (reference != null) {
+            synchronized (SnapshotClock.class) {
+                live.remove(reference.epoch);
+                drain();
+                publish();
+            }
+        }
+    }
+
+    private static void drain() {
+        EpochReference reference;
+        while ((reference = (EpochReference) released.poll()) != null) {
+            live.remove(reference.epoch);
+        }
+    }
+
+    private static void publish() {
+        long[] epochs = new long[live.size()];
+        int i = 0;
+        for (long key : live.keySet()) {
+            epochs[i++] = key;
+        }
+        liveEpochs = epochs;
+    }
+}
@@ -0,0 +1,376 @@
+package logic;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * Список с неизменяемыми снимками за O(1).
+ * Элементы хранятся блоками по {@value #BLOCK_SIZE}, а список блоков -
+ * в оглавлении (массивы блоков и индексов их первых элементов).
+ * Метод {@link #snapshot()} ничего не копирует: снимок ссылается на то же
+ * оглавление и те же блоки и помнит свой размер.
+ *
+ * <p>Изменение, которое затронуло бы снимок (удаление, замена, вставка
+ * в середину), копирует только оглавление (один раз до следующего снимка)
+ * и изменяемый блок, а не весь список: O(n / {@value #BLOCK_SIZE} +
+ * {@value #BLOCK_SIZE}) вместо O(n). Остальные блоки остаются общими
+ * со снимками. Добавление в конец пишет за пределы размера любого снимка,
+ * поэтому ничего не копирует.</p>
+ *
+ * <p>Снимок - неизменяемый список с произвольным доступом; дальнейшие
+ * изменения исходного списка на него не влияют. Сами элементы не копируются:
+ * изменение состояния элемента (например, оценки студента) видно и в снимке.</p>
+ *
+ * <p>Класс не потокобезопасен; снимок можно передавать в другой поток.</p>
+ *
+ * @param <E> - тип элементов
+ * @version 1.1
+ * @author Маленков Станислав Владимирович
+ */
+public final class SnapshotList<E> extends AbstractList<E> implements RandomAccess {
+    private static final int BLOCK_SIZE = 128;                 // Размер блока при добавлении в конец
+    private static final int MAX_BLOCK_SIZE = 2 * BLOCK_SIZE;  // Больший блок делится пополам
+    private static final Object[][] NO_BLOCKS = {};
+    private static final int[] NO_STARTS = {};
+    private static final boolean[] NO_OWNED = {};
+
+    private Object[][] blocks = NO_BLOCKS; // Блоки элементов
+    private int[] starts = NO_STARTS;      // Индекс первого элемента каждого блока
+    private boolean[] owned = NO_OWNED;    // Блок не виден снимкам (только после отделения оглавления)
+    private int blockCount;
+    private int size;
+    private boolean frozen;                // Оглавление используется выданным снимком
+
+    /**
+     * Неизменяемый снимок списка.
+     */
+    private static final class Snapshot<E> extends AbstractList<E> implements RandomAccess {
+        private final Object[][] blocks;
+        private final int[] starts;
+        private final int blockCount;
+        private final int size;
+
+        Snapshot(Object[][] blocks, int[] starts, int blockCount, int size) {
+            this.blocks = blocks;
+            this.starts = starts;
+            this.blockCount = blockCount;
+            this.size = size;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Индекс: " + index + ", размер: " + size);
+            }
+            int block = findBlock(starts, blockCount, index);
+            return (E) blocks[block][index - starts[block]];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Проход по блокам подряд, без поиска блока для каждого элемента.
+         */
+        @Override
+        public Iterator<E> iterator() {
+            return new Iterator<E>() {
+                private int index;
+                private int block;
+                private int blockEnd = blockCount > 1 ? starts[1] : size;
+
+                @Override
+                public boolean hasNext() {
+                    return index < size;
+                }
+
+                @Override
+                @SuppressWarnings("unchecked")
+                public E next() {
+                    if (index >= size) {
+                        throw new NoSuchElementException();
+                    }
+                    if (index == blockEnd) {
+                        block++;
+                        blockEnd = block + 1 < blockCount ? starts[block + 1] : size;
+                    }
+                    E element = (E) blocks[block][index - starts[block]];
+                    index++;
+                    return element;
+                }
+            };
+        }
+    }
+
+    /**
+     * Возвращает неизменяемый снимок текущего содержимого без копирования.
+     *
+     * @return List<E> - снимок
+     */
+    public List<E> snapshot() {
+        if (size == 0) {
+            return new Snapshot<>(NO_BLOCKS, NO_STARTS, 0, 0);
+        }
+        frozen = true;
+        return new Snapshot<>(blocks, starts, blockCount, size);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        checkIndex(index);
+        int block = findBlock(starts, blockCount, index);
+        return (E) blocks[block][index - starts[block]];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E set(int index, E element) {
+        checkIndex(index);
+        int block = findBlock(starts, blockCount, index);
+        Object[] elements = writableBlock(block);
+        E old = (E) elements[index - starts[block]];
+        elements[index - starts[block]] = element;
+        return old;
+    }
+
+    @Override
+    public void add(int index, E element) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Индекс: " + index + ", размер: " + size);
+        }
+        modCount++;
+        if (index == size) {
+            append(element);
+            return;
+        }
+
+        int block = findBlock(starts, blockCount, index);
+        int length = blockLength(block);
+        Object[] elements = writableBlock(block);
+        if (length == elements.length) {
+            elements = Arrays.copyOf(elements, length + (length >> 1) + 1);
+            blocks[block] = elements;
+        }
+        int offset = index - starts[block];
+        System.arraycopy(elements, offset, elements, offset + 1, length - offset);
+        elements[offset] = element;
+        for (int i = block + 1; i < blockCount; i++) {
+            starts[i]++;
+        }
+        size++;
+
+        if (length + 1 > MAX_BLOCK_SIZE) {
+            split(block, length + 1);
+        }
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends E> collection) {
+        if (collection.isEmpty()) {
+            return false;
+        }
+        modCount++;
+        for (E element : collection) {
+            append(element);
+        }
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E remove(int index) {
+        checkIndex(index);
+        modCount++;
+        int block = findBlock(starts, blockCount, index);
+        int length = blockLength(block);
+        int offset = index - starts[block];
+        E old = (E) blocks[block][offset];
+
+        if (length == 1) {
+            removeBlock(block);
+        } else {
+            Object[] elements = writableBlock(block);
+            System.arraycopy(elements, offset + 1, elements, offset, length - offset - 1);
+            elements[length - 1] = null;
+            block++;
+        }
+        for (int i = block; i < blockCount; i++) {
+            starts[i]--;
+        }
+        size--;
+
+        // Соседние неполные блоки объединяются, чтобы блоков не становилось слишком много.
+        // Проверяется блок на месте удаления (или соседний, если блок удален целиком)
+        block = size > 0 ? findBlock(starts, blockCount, Math.min(index, size - 1)) : 0;
+        if (size > 0 && block + 1 < blockCount && blockLength(block) + blockLength(block + 1) <= BLOCK_SIZE) {
+            merge(block);
+        }
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        modCount++;
+        blocks = NO_BLOCKS; // Прежние блоки остаются у снимков
+        starts = NO_STARTS;
+        owned = NO_OWNED;
+        blockCount = 0;
+        size = 0;
+        frozen = false;
+    }
+
+    /**
+     * Добавляет элемент в конец: в последний блок, пока в нем есть место,
+     * иначе в новый блок. Запись идет за пределы размера любого снимка.
+     */
+    private void append(Object element) {
+        if (blockCount > 0) {
+            int last = blockCount - 1;
+            int length = size - starts[last];
+            if (length < BLOCK_SIZE) {
+                Object[] elements = blocks[last];
+                if (length == elements.length) {
+                    thaw(); // Замена блока в оглавлении видна снимкам
+                    elements = Arrays.copyOf(elements, BLOCK_SIZE);
+                    blocks[last] = elements;
+                    owned[last] = true;
+                }
+                elements[length] = element;
+                size++;
+                return;
+            }
+        }
+
+        Object[] elements = new Object[BLOCK_SIZE];
+        elements[0] = element;
+        insertBlock(blockCount, elements, size);
+        size++;
+    }
+
+    /**
+     * Делит переполненный блок пополам.
+     */
+    private void split(int block, int length) {
+        Object[] elements = blocks[block]; // Уже принадлежит списку
+        int half = length >>> 1;
+        Object[] tail = Arrays.copyOfRange(elements, half, Math.max(length, half + BLOCK_SIZE));
+        Arrays.fill(elements, half, length, null);
+        insertBlock(block + 1, tail, starts[block] + half);
+    }
+
+    /**
+     * Объединяет блок со следующим в новый блок.
+     */
+    private void merge(int block) {
+        int first = blockLength(block);
+        int second = blockLength(block + 1);
+        Object[] merged = new Object[BLOCK_SIZE];
+        System.arraycopy(blocks[block], 0, merged, 0, first);
+        System.arraycopy(blocks[block + 1], 0, merged, first, second);
+        removeBlock(block + 1); // Отделяет оглавление
+        blocks[block] = merged;
+        owned[block] = true;
+    }
+
+    /**
+     * Вставляет блок в оглавление.
+     */
+    private void insertBlock(int block, Object[] elements, int start) {
+        if (block < blockCount || blockCount == blocks.length) {
+            thaw(); // Добавление в конец оглавления с запасом места снимкам не видно
+        }
+        if (blockCount == blocks.length) {
+            int capacity = Math.max(4, blocks.length + (blocks.length >> 1));
+            blocks = Arrays.copyOf(blocks, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            owned = Arrays.copyOf(owned, capacity);
+        }
+        System.arraycopy(blocks, block, blocks, block + 1, blockCount - block);
+        System.arraycopy(starts, block, starts, block + 1, blockCount - block);
+        System.arraycopy(owned, block, owned, block + 1, blockCount - block);
+        blocks[block] = elements;
+        starts[block] = start;
+        owned[block] = true;
+        blockCount++;
+    }
+
+    /**
+     * Удаляет блок из оглавления. Индексы первых элементов следующих
+     * блоков не меняются: их поправляет вызывающий метод.
+     */
+    private void removeBlock(int block) {
+        thaw();
+        System.arraycopy(blocks, block + 1, blocks, block, blockCount - block - 1);
+        System.arraycopy(starts, block + 1, starts, block, blockCount - block - 1);
+        System.arraycopy(owned, block + 1, owned, block, blockCount - block - 1);
+        blockCount--;
+        blocks[blockCount] = null;
+    }
+
+    /**
+     * Возвращает блок, который можно менять на месте:
+     * отделяет оглавление от снимков и копирует блок, если его видят снимки.
+     */
+    private Object[] writableBlock(int block) {
+        thaw();
+        if (!owned[block]) {
+            blocks[block] = blocks[block].clone();
+            owned[block] = true;
+        }
+        return blocks[block];
+    }
+
+    /**
+     * Отделяет оглавление от выданных снимков перед его изменением.
+     * После этого ни один блок не считается принадлежащим только списку.
+     */
+    private void thaw() {
+        if (frozen) {
+            blocks = blocks.clone();
+            starts = starts.clone();
+            owned = new boolean[blocks.length];
+            frozen = false;
+        }
+    }
+
+    private int blockLength(int block) {
+        return (block + 1 < blockCount ? starts[block + 1] : size) - starts[block];
+    }
+
+    /**
+     * Находит блок, содержащий элемент с указанным индексом (двоичный поиск).
+     */
+    private static int findBlock(int[] starts, int blockCount, int index) {
+        int low = 0;
+        int high = blockCount - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (starts[middle] <= index) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Индекс: " + index + ", размер: " + size);
+        }
+    }
+}
@@ -7,16 +7,59 @@ import java.io.Serializable;
  * Хранит информацию о ФИО, оценке и результате аттестации.
  * Поддерживает сериализацию.
  *
- * @version 1.0
+ * <p>Студент знает ведомость, которой принадлежит, и меняет оценку
+ * через нее, чтобы ведомость обновила свою статистику.</p>
+ *
+ * <p>Для снимков ведомости ({@link ExamRecord#snapshot()}) студент помнит
+ * эпоху последнего изменения ({@link SnapshotClock}). Если прежнее значение
+ * еще может прочитать живой снимок, перед изменением оно сохраняется
+ * в цепочке ревизий; ревизии, не нужные ни одному снимку, отбрасываются.
+ * Изменение и чтение значения для снимка синхронизированы, поэтому снимок
+ * можно читать в другом потоке, пока студента редактируют.</p>
+ *
+ * <p>ФИО студента ведомости тоже меняется через ведомость, чтобы потокобезопасная
+ * ведомость ({@link ConcurrentExamRecord}) не выдала снимок посреди изменения.</p>
+ *
+ * <p>Колоночная ведомость ({@link ColumnarExamRecord}) выдает подклассы-представления:
+ * они читают и меняют значения в колонках ведомости и не ведут ревизий.</p>
+ *
+ * @version 1.9
  * @author Маленков Станислав Владимирович
  */
 public class Student implements Serializable {
     private static final long serialVersionUID = 1L; // Для сериализации
 
+    /**
+     * Наименьшая положительная оценка.
+     */
+    public static final int PASSING_SCORE = 4;
+
     private String fullName;      // ФИО студента
     private int score;            // Оценка (0-10, -1 = не указана)
     private boolean passed;       // Результат сдачи
     private boolean hasGrade;     // Флаг наличия оценки
+    private transient ExamRecord owner; // Ведомость, через которую меняется оценка
+    private transient long version = SnapshotClock.current(); // Эпоха последнего изменения
+    private transient Revision revisions; // Прежние значения для снимков (сначала новые)
+
+    /**
+     * Прежнее значение студента, действовавшее с эпохи version до эпохи until.
+     */
+    private static final class Revision {
+        private final long version;
+        private final long until;
+        private final String fullName;
+        private final int score;
+        private final Revision next;
+
+        Revision(long version, long until, String fullName, int score, Revision next) {
+            this.version = version;
+            this.until = until;
+            this.fullName = fullName;
+            this.score = score;
+            this.next = next;
+        }
+    }
 
     /**
      * Создает нового студента.
@@ -40,7 +83,7 @@ public class Student implements Serializable {
         if (!hasGrade) {
             return false; // Без оценки - не сдал
         }
-        return score >= 4; // Сдал если оценка >= 4
+        return score >= PASSING_SCORE; // Сдал если оценка >= 4
     }
 
     /* Геттеры и сеттеры */
@@ -49,7 +92,25 @@ public class Student implements Serializable {
         return fullName;
     }
 
+    /**
+     * Устанавливает ФИО. Если студент принадлежит ведомости,
+     * ФИО записывает ведомость, как и оценку.
+     */
     public void setFullName(String fullName) {
+        synchronized (this) {
+            if (owner != null) {
+                owner.updateName(this, fullName);
+            } else {
+                storeName(fullName);
+            }
+        }
+    }
+
+    /**
+     * Сохраняет ФИО без участия ведомости.
+     */
+    synchronized void storeName(String fullName) {
+        preserve();
         this.fullName = fullName;
     }
 
@@ -59,13 +120,119 @@ public class Student implements Serializable {
 
     /**
      * Устанавливает оценку и пересчитывает результат.
+     * Если студент принадлежит ведомости, оценку записывает сама ведомость
+     * вместе с обновлением статистики. Все происходит под монитором студента,
+     * поэтому изменения одного студента учитываются в том порядке, в котором сделаны.
      */
     public void setScore(int score) {
+        synchronized (this) {
+            if (owner != null) {
+                owner.updateScore(this, score);
+            } else {
+                storeScore(score);
+            }
+        }
+    }
+
+    /**
+     * Сохраняет оценку и результат без участия ведомости.
+     */
+    synchronized void storeScore(int score) {
+        preserve();
         this.score = score;
         this.hasGrade = (score >= 0 && score <= 10);
         this.passed = calculatePassed();
     }
 
+    /**
+     * Возвращает копию значения студента, которое видит снимок с указанной эпохой.
+     *
+     * @param epoch - эпоха снимка
+     * @return Student - отдельный от ведомости студент
+     */
+    synchronized Student valueAt(long epoch) {
+        if (version <= epoch) {
+            return new Student(fullName, score);
+        }
+        for (Revision revision = revisions; revision != null; revision = revision.next) {
+            if (revision.version <= epoch) {
+                return new Student(revision.fullName, revision.score);
+            }
+        }
+        return new Student(fullName, score); // Студент создан после снимка
+    }
+
+    /**
+     * Перед изменением сохраняет текущее значение, если его видит живой снимок,
+     * и отбрасывает ревизии, которые больше никому не нужны.
+     *
+     * <p>Эпоха читается без блокировки часов, поэтому решение проверяется
+     * как в seqlock: если во время решения часы сдвинул новый снимок,
+     * решение принимается заново с новой эпохой. Иначе изменение, сделанное
+     * после снимка, получило бы эпоху снимка и попало бы в него. Сама запись
+     * идет под тем же монитором, под которым снимок читает значение.</p>
+     */
+    private void preserve() {
+        while (true) {
+            long now = SnapshotClock.current();
+            if (version == now && revisions == null) {
+                return; // С прошлого изменения снимков не было
+            }
+            Revision kept = prune(revisions);
+            if (version != now && SnapshotClock.isVisible(version, now)) {
+                kept = new Revision(version, now, fullName, score, kept);
+            }
+            if (SnapshotClock.current() == now) {
+                revisions = kept;
+                version = now;
+                return;
+            }
+        }
+    }
+
+    private static Revision prune(Revision revision) {
+        if (revision == null) {
+            return null;
+        }
+        Revision next = prune(revision.next);
+        if (!SnapshotClock.isVisible(revision.version, revision.until)) {
+            return next;
+        }
+        return next == revision.next ? revision
+                : new Revision(revision.version, revision.until, revision.fullName, revision.score, next);
+    }
+
+    /**
+     * Возвращает число сохраненных для снимков ревизий.
+     *
+     * @return int - количество ревизий
+     */
+    synchronized int getRevisionCount() {
+        int count = 0;
+        for (Revision revision = revisions; revision != null; revision = revision.next) {
+            count++;
+        }
+        return count;
+    }
+
+    ExamRecord getOwner() {
+        return owner;
+    }
+
+    void setOwner(ExamRecord owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * Проверяет, является ли объект представлением студента колоночной
+     * ведомости ({@link ColumnarExamRecord}), а не самим студентом.
+     *
+     * @return boolean - true для представления
+     */
+    boolean isView() {
+        return false;
+    }
+
     public boolean isPassed() {
         return passed;
     }
@@ -80,10 +247,10 @@ public class Student implements Serializable {
      * @return String - "Сдал", "Не сдал" или "Ожидает оценки"
      */
     public String getResultText() {
-        if (!hasGrade) {
+        if (!hasGrade()) {
             return "Ожидает оценки";
         }
-        return passed ? "Сдал" : "Не сдал";
+        return isPassed() ? "Сдал" : "Не сдал";
     }
 
     /**
@@ -92,9 +259,9 @@ public class Student implements Serializable {
      * @return String - числовая оценка или "Нет оценки"
      */
     public String getGradeText() {
-        if (!hasGrade) {
+        if (!hasGrade()) {
             return "Нет оценки";
         }
-        return String.valueOf(score);
+        return String.valueOf(getScore());
     }
 }
\ No newline at end of file
@@ -0,0 +1,579 @@
+package logic;
+
+import java.io.ObjectStreamException;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Колоночное хранилище студентов для {@link ColumnarExamRecord}.
+ * Вместо отдельного объекта на студента данные лежат в нескольких массивах:
+ *
+ * <ul>
+ *   <li>оценки - по одному байту; при первой оценке вне диапазона байта
+ *       колонка расширяется до int, как в двоичном формате .exam;</li>
+ *   <li>наличие оценки и результат сдачи - битовые множества в long[];</li>
+ *   <li>ФИО - байты UTF-8 подряд в одном массиве и индекс смещений и длин.</li>
+ * </ul>
+ *
+ * <p>Каждый студент занимает ячейку с постоянным номером; порядок студентов
+ * в ведомости задается отдельным массивом номеров ячеек, поэтому удаление
+ * сдвигает только этот массив. Ячейка удаленного студента используется
+ * повторно, а ее поколение увеличивается.</p>
+ *
+ * <p>Студенты выдаются как легковесные представления {@link Student}: объект
+ * хранит номер ячейки и ее поколение, чтение и запись идут в колонки.
+ * Представление остается верным, пока студент в ведомости, в том числе после
+ * удаления других студентов. После удаления самого студента (или очистки
+ * ведомости) обращение к представлению бросает {@link IllegalStateException}.
+ * Каждое обращение к ведомости создает новое представление; представления
+ * одного студента равны по {@code equals}.</p>
+ *
+ * <p>Новое ФИО дописывается в конец массива имен; место прежнего освобождается
+ * при уплотнении, когда неиспользуемые байты составляют больше половины массива.</p>
+ *
+ * <p>Снимок хранилища ({@link #freeze}) создается за O(1): он ссылается на те же
+ * массивы. Живое хранилище копирует колонку перед первой записью после снимка,
+ * которую снимок мог бы увидеть; добавление в новую ячейку и дописывание имени
+ * в конец массива имен ничего не копируют. Снимок изменять нельзя.</p>
+ *
+ * @version 1.3
+ * @author Маленков Станислав Владимирович
+ */
+final class StudentColumns {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int NULL_NAME = -1;    // Длина имени, равного null
+    private static final int[] NO_SLOTS = {};
+
+    private ScoreHistogram histogram;           // Распределение оценок
+    private final boolean frozen;               // Хранилище - снимок
+    private int size;                           // Студентов в ведомости
+
+    private int[] order;                        // Номер ячейки студента по его месту в ведомости
+    private int[] generations;                  // Поколение каждой ячейки (растет при удалении)
+    private int slotCount;                      // Ячеек когда-либо занято
+    private int[] freeSlots = NO_SLOTS;         // Освобожденные ячейки
+    private int freeCount;
+
+    private byte[] scores;
+    private int[] wideScores;                   // Оценки типа int (после расширения колонки)
+    private long[] graded;
+    private long[] passed;
+
+    private int[] nameOffsets;
+    private int[] nameLengths;
+    private byte[] names = new byte[INITIAL_CAPACITY * 32];
+    private int namesUsed;                      // Занято байтов в массиве имен
+    private int namesGarbage;                   // Из них не используется
+
+    private boolean orderShared;                // Порядок и поколения видны выданному списку или снимку
+    private boolean valuesShared;               // Оценки и битовые множества видны снимку
+    private boolean namesShared;                // Индекс имен виден снимку
+    private int frozenSlots;                    // Ячейки с меньшими номерами видны снимку
+
+    /**
+     * Создает пустое хранилище.
+     */
+    StudentColumns() {
+        this.histogram = new ScoreHistogram();
+        this.frozen = false;
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Создает снимок, разделяющий массивы с исходным хранилищем.
+     */
+    private StudentColumns(StudentColumns source) {
+        this.histogram = new ScoreHistogram(source.histogram);
+        this.frozen = true;
+        this.size = source.size;
+        this.order = source.order;
+        this.generations = source.generations;
+        this.slotCount = source.slotCount;
+        this.scores = source.scores;
+        this.wideScores = source.wideScores;
+        this.graded = source.graded;
+        this.passed = source.passed;
+        this.nameOffsets = source.nameOffsets;
+        this.nameLengths = source.nameLengths;
+        this.names = source.names;
+        this.namesUsed = source.namesUsed;
+    }
+
+    /**
+     * Возвращает неизменяемый снимок хранилища без копирования колонок.
+     *
+     * @return StudentColumns - снимок
+     */
+    StudentColumns freeze() {
+        if (frozen) {
+            return this;
+        }
+        orderShared = true;
+        valuesShared = true;
+        namesShared = true;
+        frozenSlots = slotCount;
+        return new StudentColumns(this);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Возвращает гистограмму хранилища (не копию).
+     *
+     * @return ScoreHistogram - распределение оценок
+     */
+    ScoreHistogram histogram() {
+        return histogram;
+    }
+
+    /* Изменение */
+
+    /**
+     * Добавляет студента в конец. Сохраняются только значения: объект
+     * студента не запоминается, его дальнейшие изменения не отражаются.
+     *
+     * @param fullName - ФИО (может быть null)
+     * @param score    - оценка
+     */
+    void add(String fullName, int score) {
+        checkNotFrozen();
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            ensureCapacity(slotCount + 1);
+            slot = slotCount++;
+        }
+        order[size++] = slot; // За пределами размера любого выданного списка
+        writeName(slot, fullName);
+        writeScore(slot, score);
+        histogram.add(score, 1);
+    }
+
+    /**
+     * Удаляет студента, сдвигая следующих. Представления удаленного
+     * студента становятся недействительными.
+     *
+     * @param index - место студента в ведомости
+     */
+    void remove(int index) {
+        checkNotFrozen();
+        checkIndex(index);
+        unshareOrder();
+        int slot = order[index];
+        System.arraycopy(order, index + 1, order, index, size - index - 1);
+        size--;
+        generations[slot]++;
+
+        histogram.add(getScore(slot), -1);
+        if (nameLengths[slot] > 0) {
+            namesGarbage += nameLengths[slot];
+        }
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, Math.max(INITIAL_CAPACITY, freeCount * 2));
+        }
+        freeSlots[freeCount++] = slot;
+        compactNamesIfNeeded();
+    }
+
+    /**
+     * Удаляет всех студентов. Все выданные представления становятся недействительными.
+     */
+    void clear() {
+        checkNotFrozen();
+        unshareOrder();
+        for (int i = 0; i < size; i++) {
+            generations[order[i]]++;
+        }
+        for (int i = 0; i < freeCount; i++) {
+            generations[freeSlots[i]]++; // Ячейки используются заново с номера 0
+        }
+        size = 0;
+        slotCount = 0;
+        freeCount = 0;
+
+        names = new byte[INITIAL_CAPACITY * 32]; // Прежний массив имен остается снимкам
+        namesUsed = 0;
+        namesGarbage = 0;
+        histogram = new ScoreHistogram();
+    }
+
+    /**
+     * Изменяет оценку студента и обновляет гистограмму.
+     */
+    void setScore(int slot, int score) {
+        checkNotFrozen();
+        histogram.add(getScore(slot), -1);
+        writeScore(slot, score);
+        histogram.add(score, 1);
+    }
+
+    void setFullName(int slot, String fullName) {
+        checkNotFrozen();
+        if (namesShared && slot < frozenSlots) {
+            unshareNames();
+        }
+        if (nameLengths[slot] > 0) {
+            namesGarbage += nameLengths[slot];
+        }
+        writeName(slot, fullName);
+        compactNamesIfNeeded();
+    }
+
+    /* Чтение по номеру ячейки */
+
+    int getScore(int slot) {
+        return wideScores != null ? wideScores[slot] : scores[slot];
+    }
+
+    boolean hasGrade(int slot) {
+        return (graded[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    boolean isPassed(int slot) {
+        return (passed[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    String getFullName(int slot) {
+        int length = nameLengths[slot];
+        if (length == NULL_NAME) {
+            return null;
+        }
+        return new String(names, nameOffsets[slot], length, StandardCharsets.UTF_8);
+    }
+
+    /* Представления */
+
+    /**
+     * Возвращает легковесное представление студента.
+     *
+     * @param index - место студента в ведомости
+     * @return Student - представление, читающее и пишущее колонки
+     * @throws IndexOutOfBoundsException - если индекс вне ведомости
+     */
+    Student view(int index) {
+        checkIndex(index);
+        int slot = order[index];
+        return new View(this, slot, generations[slot]);
+    }
+
+    /**
+     * Возвращает неизменяемый список студентов без копирования колонок.
+     * Список фиксирует состав на момент вызова, значения студентов читаются
+     * из колонок при обращении. Представления создаются при обращении
+     * к элементу; представление студента, удаленного после выдачи списка,
+     * бросает {@link IllegalStateException}.
+     *
+     * @return List<Student> - список представлений
+     */
+    List<Student> students() {
+        if (!frozen) {
+            orderShared = true;
+        }
+        return new ViewList(this, order, generations, size);
+    }
+
+    /* Внутреннее устройство */
+
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new UnsupportedOperationException("Снимок ведомости изменять нельзя");
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Индекс: " + index + ", студентов: " + size);
+        }
+    }
+
+    /**
+     * Проверяет, что представление ссылается на студента ведомости.
+     */
+    private void checkSlot(int slot, int generation) {
+        if (!frozen && generations[slot] != generation) {
+            throw new IllegalStateException("Студент удален из ведомости");
+        }
+    }
+
+    private void unshareOrder() {
+        if (orderShared) {
+            order = order.clone();
+            generations = generations.clone();
+            orderShared = false;
+        }
+    }
+
+    private void unshareValues() {
+        if (wideScores != null) {
+            wideScores = wideScores.clone();
+        } else {
+            scores = scores.clone();
+        }
+        graded = graded.clone();
+        passed = passed.clone();
+        valuesShared = false;
+    }
+
+    private void unshareNames() {
+        nameOffsets = nameOffsets.clone();
+        nameLengths = nameLengths.clone();
+        namesShared = false;
+    }
+
+    private void writeScore(int slot, int score) {
+        if (valuesShared && slot < frozenSlots) {
+            unshareValues();
+        }
+        if (wideScores == null && (score < Byte.MIN_VALUE || score > Byte.MAX_VALUE)) {
+            widenScores();
+        }
+        if (wideScores != null) {
+            wideScores[slot] = score;
+        } else {
+            scores[slot] = (byte) score;
+        }
+
+        // Правила те же, что в Student
+        boolean hasGrade = score >= 0 && score <= 10;
+        setBit(graded, slot, hasGrade);
+        setBit(passed, slot, hasGrade && score >= Student.PASSING_SCORE);
+    }
+
+    /**
+     * Расширяет колонку оценок до int.
+     */
+    private void widenScores() {
+        wideScores = new int[scores.length];
+        for (int i = 0; i < slotCount; i++) {
+            wideScores[i] = scores[i];
+        }
+        scores = null;
+    }
+
+    /**
+     * Дописывает ФИО в конец массива имен: байты, видимые снимкам, не меняются.
+     */
+    private void writeName(int slot, String fullName) {
+        if (namesShared && slot < frozenSlots) {
+            unshareNames();
+        }
+        if (fullName == null) {
+            nameOffsets[slot] = namesUsed;
+            nameLengths[slot] = NULL_NAME;
+            return;
+        }
+
+        byte[] bytes = fullName.getBytes(StandardCharsets.UTF_8);
+        if (names.length - namesUsed < bytes.length) {
+            long required = (long) namesUsed + bytes.length;
+            if (required > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("Слишком большой объем ФИО для колоночной ведомости");
+            }
+            names = Arrays.copyOf(names, (int) Math.min(Integer.MAX_VALUE - 8,
+                    Math.max(required, (long) names.length * 2)));
+        }
+        System.arraycopy(bytes, 0, names, namesUsed, bytes.length);
+        nameOffsets[slot] = namesUsed;
+        nameLengths[slot] = bytes.length;
+        namesUsed += bytes.length;
+    }
+
+    /**
+     * Переписывает имена подряд в новый массив, если больше половины
+     * массива - освобожденное место. Прежний массив остается снимкам.
+     */
+    private void compactNamesIfNeeded() {
+        if (namesGarbage <= namesUsed / 2) {
+            return;
+        }
+        if (namesShared) {
+            unshareNames();
+        }
+
+        byte[] compacted = new byte[Math.max(INITIAL_CAPACITY, namesUsed - namesGarbage)];
+        int used = 0;
+        for (int i = 0; i < size; i++) {
+            int slot = order[i];
+            int length = nameLengths[slot];
+            if (length > 0) {
+                System.arraycopy(names, nameOffsets[slot], compacted, used, length);
+            }
+            nameOffsets[slot] = used;
+            used += Math.max(length, 0);
+        }
+        names = compacted;
+        namesUsed = used;
+        namesGarbage = 0;
+    }
+
+    private void allocate(int capacity) {
+        order = new int[capacity];
+        generations = new int[capacity];
+        scores = new byte[capacity];
+        graded = new long[bitWords(capacity)];
+        passed = new long[bitWords(capacity)];
+        nameOffsets = new int[capacity];
+        nameLengths = new int[capacity];
+    }
+
+    /**
+     * Расширяет колонки. Новые массивы принадлежат только хранилищу.
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity <= order.length) {
+            return;
+        }
+
+        int newCapacity = Math.max(capacity, order.length + (order.length >> 1));
+        order = Arrays.copyOf(order, newCapacity);
+        generations = Arrays.copyOf(generations, newCapacity);
+        if (wideScores != null) {
+            wideScores = Arrays.copyOf(wideScores, newCapacity);
+        } else {
+            scores = Arrays.copyOf(scores, newCapacity);
+        }
+        graded = Arrays.copyOf(graded, bitWords(newCapacity));
+        passed = Arrays.copyOf(passed, bitWords(newCapacity));
+        nameOffsets = Arrays.copyOf(nameOffsets, newCapacity);
+        nameLengths = Arrays.copyOf(nameLengths, newCapacity);
+        orderShared = false;
+        valuesShared = false;
+        namesShared = false;
+    }
+
+    private static int bitWords(int bits) {
+        return (bits + 63) >>> 6;
+    }
+
+    private static void setBit(long[] bits, int index, boolean value) {
+        if (value) {
+            bits[index >>> 6] |= 1L << index;
+        } else {
+            bits[index >>> 6] &= ~(1L << index);
+        }
+    }
+
+    /**
+     * Список представлений, выданный методом {@link #students()}.
+     */
+    private static final class ViewList extends AbstractList<Student> implements RandomAccess {
+        private final StudentColumns columns;
+        private final int[] order;          // Порядок ячеек на момент выдачи
+        private final int[] generations;    // Поколения ячеек на момент выдачи
+        private final int size;
+
+        ViewList(StudentColumns columns, int[] order, int[] generations, int size) {
+            this.columns = columns;
+            this.order = order;
+            this.generations = generations;
+            this.size = size;
+        }
+
+        @Override
+        public Student get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Индекс: " + index + ", размер: " + size);
+            }
+            int slot = order[index];
+            return new View(columns, slot, generations[slot]);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Представление студента колоночной ведомости.
+     */
+    private static final class View extends Student {
+        private static final long serialVersionUID = 1L;
+
+        private final transient StudentColumns columns;
+        private final transient int slot;
+        private final transient int generation;
+
+        View(StudentColumns columns, int slot, int generation) {
+            super(null, -1);
+            this.columns = columns;
+            this.slot = slot;
+            this.generation = generation;
+        }
+
+        private int slot() {
+            columns.checkSlot(slot, generation);
+            return slot;
+        }
+
+        @Override
+        boolean isView() {
+            return true;
+        }
+
+        @Override
+        Student valueAt(long epoch) {
+            return new Student(getFullName(), getScore()); // Представление ревизий не ведет
+        }
+
+        @Override
+        public String getFullName() {
+            return columns.getFullName(slot());
+        }
+
+        @Override
+        void storeName(String fullName) {
+            columns.setFullName(slot(), fullName);
+        }
+
+        @Override
+        public int getScore() {
+            return columns.getScore(slot());
+        }
+
+        @Override
+        void storeScore(int score) {
+            columns.setScore(slot(), score);
+        }
+
+        @Override
+        public boolean isPassed() {
+            return columns.isPassed(slot());
+        }
+
+        @Override
+        public boolean hasGrade() {
+            return columns.hasGrade(slot());
+        }
+
+        /**
+         * Представления равны, если указывают на одного студента одного хранилища.
+         */
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof View)) {
+                return false;
+            }
+            View view = (View) other;
+            return view.columns == columns && view.slot == slot && view.generation == generation;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * System.identityHashCode(columns) + slot) + generation;
+        }
+
+        /**
+         * При сериализации представление заменяется обычным студентом.
+         */
+        private Object writeReplace() throws ObjectStreamException {
+            return new Student(getFullName(), getScore());
+        }
+    }
+}
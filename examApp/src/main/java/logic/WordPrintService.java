@@ -11,7 +11,7 @@ import java.time.format.DateTimeFormatter;
  * Упрощенный сервис для печати ведомости в текстовый файл
  * Используется, если не установлены библиотеки Apache POI
  *
- * @version 1.0
+ * @version 1.1
  * @author Маленков Станислав Владимирович
  */
 public class WordPrintService {
@@ -67,6 +67,9 @@ public class WordPrintService {
                 double percentage = (passed * 100.0) / withGrade;
                 content.append(String.format("Процент сдачи (от имеющих оценку): %.1f%%\n", percentage));
             }
+            for (String line : GradeCalculator.getDistributionLines(record.getHistogram())) {
+                content.append(line).append("\n");
+            }
 
             content.append("\n\n");
             content.append("Преподаватель: ___________________\n");
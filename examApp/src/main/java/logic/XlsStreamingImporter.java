@@ -0,0 +1,296 @@
+package logic;
+
+import org.apache.poi.hssf.eventusermodel.AbortableHSSFListener;
+import org.apache.poi.hssf.eventusermodel.FormatTrackingHSSFListener;
+import org.apache.poi.hssf.eventusermodel.HSSFEventFactory;
+import org.apache.poi.hssf.eventusermodel.HSSFRequest;
+import org.apache.poi.hssf.record.BOFRecord;
+import org.apache.poi.hssf.record.BlankRecord;
+import org.apache.poi.hssf.record.BoundSheetRecord;
+import org.apache.poi.hssf.record.BoolErrRecord;
+import org.apache.poi.hssf.record.CellValueRecordInterface;
+import org.apache.poi.hssf.record.EOFRecord;
+import org.apache.poi.hssf.record.FormulaRecord;
+import org.apache.poi.hssf.record.LabelRecord;
+import org.apache.poi.hssf.record.LabelSSTRecord;
+import org.apache.poi.hssf.record.MulBlankRecord;
+import org.apache.poi.hssf.record.NumberRecord;
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.hssf.record.SSTRecord;
+import org.apache.poi.hssf.record.StringRecord;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DateUtil;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Потоковый импорт файлов .xls на основе событийной модели HSSF.
+ * Записи книги обрабатываются слушателем по мере чтения, поэтому
+ * объект HSSFWorkbook не создается. При импорте первого листа чтение
+ * прекращается после его окончания.
+ *
+ * <p>Формат .xls хранит книгу одним потоком записей, поэтому все листы
+ * читаются за один последовательный проход, у каждого листа свой
+ * классификатор.</p>
+ *
+ * @version 1.3
+ * @author Маленков Станислав Владимирович
+ */
+final class XlsStreamingImporter {
+
+    private XlsStreamingImporter() {
+    }
+
+    /**
+     * Импортирует первый лист файла .xls.
+     *
+     * @param filePath        - путь к файлу
+     * @param studentListener - получатель студентов по мере чтения (может быть null)
+     * @return ExcelImportResult - результат импорта
+     * @throws Exception - при ошибке чтения или разбора файла
+     */
+    static ExcelImportResult importFirstSheet(String filePath, Consumer<Student> studentListener)
+            throws Exception {
+        RecordListener listener = new RecordListener(false, studentListener);
+        processWorkbook(filePath, listener);
+
+        List<ExcelImportResult> results = listener.getResults();
+        return results.isEmpty() ? new SheetRowClassifier().finish() : results.get(0);
+    }
+
+    /**
+     * Импортирует все листы файла .xls за один проход.
+     *
+     * @param filePath - путь к файлу
+     * @return List<ExcelImportResult> - результаты по листам в порядке следования листов
+     * @throws Exception - при ошибке чтения или разбора файла
+     */
+    static List<ExcelImportResult> importAllSheets(String filePath) throws Exception {
+        RecordListener listener = new RecordListener(true, null);
+        processWorkbook(filePath, listener);
+        return listener.getResults();
+    }
+
+    private static void processWorkbook(String filePath, RecordListener listener) throws Exception {
+        try (POIFSFileSystem fs = new POIFSFileSystem(new File(filePath), true)) {
+            HSSFRequest request = new HSSFRequest();
+            request.addListenerForAllRecords(listener);
+            new HSSFEventFactory().abortableProcessWorkbookEvents(request, fs);
+        }
+    }
+
+    /**
+     * Собирает значения ячеек листов в строки.
+     */
+    private static class RecordListener extends AbortableHSSFListener {
+        private static final short CONTINUE = 0;
+        private static final short STOP = 1;
+
+        private final boolean allSheets;   // Читать все листы, а не только первый
+        private final Consumer<Student> studentListener;
+        private final FormatTrackingHSSFListener formats;
+        private final SheetRow row = new SheetRow();
+        private final List<BoundSheetRecord> boundSheets = new ArrayList<>();
+        private final List<ExcelImportResult> results = new ArrayList<>();
+        private BoundSheetRecord[] sheetsInOrder;  // Листы в порядке следования в файле
+        private SSTRecord sharedStrings;
+        private SheetRowClassifier classifier;     // Классификатор текущего листа
+        private int depth;                 // Вложенность блоков BOF/EOF
+        private int bofIndex = -1;         // Номер текущего блока листа (включая диаграммы)
+        private long sheetStart;           // Время начала чтения листа
+        private boolean rowStarted;        // В строке есть хотя бы одна ячейка
+        private int pendingStringColumn = -1;
+
+        RecordListener(boolean allSheets, Consumer<Student> studentListener) {
+            this.allSheets = allSheets;
+            this.studentListener = studentListener;
+            this.formats = new FormatTrackingHSSFListener(record -> { });
+        }
+
+        List<ExcelImportResult> getResults() {
+            return results;
+        }
+
+        @Override
+        public short abortableProcessRecord(Record record) {
+            formats.processRecordInternally(record); // Запоминаем форматы чисел
+
+            switch (record.getSid()) {
+                case BOFRecord.sid:
+                    depth++;
+                    if (depth == 1) {
+                        startSheet((BOFRecord) record);
+                    }
+                    break;
+                case EOFRecord.sid:
+                    depth--;
+                    if (depth == 0 && classifier != null) {
+                        finishSheet();
+                        if (!allSheets) {
+                            return STOP; // Первый лист прочитан
+                        }
+                    }
+                    break;
+                case BoundSheetRecord.sid:
+                    boundSheets.add((BoundSheetRecord) record);
+                    break;
+                case SSTRecord.sid:
+                    sharedStrings = (SSTRecord) record;
+                    break;
+                default:
+                    if (depth == 1 && classifier != null) {
+                        processCellRecord(record);
+                    }
+                    break;
+            }
+            return CONTINUE;
+        }
+
+        /**
+         * Начинает блок листа: для рабочего листа создается классификатор.
+         */
+        private void startSheet(BOFRecord bof) {
+            if (bof.getType() == BOFRecord.TYPE_WORKBOOK) return;
+
+            bofIndex++;
+            if (bof.getType() == BOFRecord.TYPE_WORKSHEET) {
+                classifier = new SheetRowClassifier(studentListener);
+                sheetStart = System.nanoTime();
+            }
+        }
+
+        /**
+         * Завершает текущий лист и сохраняет его результат.
+         */
+        private void finishSheet() {
+            flushRow();
+
+            ExcelImportResult result = classifier.finish();
+            result.setSheetName(sheetName(bofIndex));
+            result.setParseTimeMillis((System.nanoTime() - sheetStart) / 1_000_000);
+            results.add(result);
+            classifier = null;
+        }
+
+        /**
+         * Возвращает имя листа по номеру его блока в файле.
+         */
+        private String sheetName(int index) {
+            if (sheetsInOrder == null) {
+                sheetsInOrder = BoundSheetRecord.orderByBofPosition(boundSheets);
+            }
+            return index < sheetsInOrder.length ? sheetsInOrder[index].getSheetname() : null;
+        }
+
+        /**
+         * Обрабатывает запись со значением ячейки.
+         */
+        private void processCellRecord(Record record) {
+            switch (record.getSid()) {
+                case LabelSSTRecord.sid:
+                    LabelSSTRecord label = (LabelSSTRecord) record;
+                    setCell(label, sharedStrings.getString(label.getSSTIndex()).getString().trim());
+                    break;
+                case LabelRecord.sid:
+                    LabelRecord text = (LabelRecord) record;
+                    setCell(text, text.getValue().trim());
+                    break;
+                case NumberRecord.sid:
+                    NumberRecord number = (NumberRecord) record;
+                    setNumber(number, number.getValue());
+                    break;
+                case BoolErrRecord.sid:
+                    BoolErrRecord bool = (BoolErrRecord) record;
+                    setCell(bool, bool.isBoolean() ? String.valueOf(bool.getBooleanValue()) : "");
+                    break;
+                case BlankRecord.sid:
+                    setCell((BlankRecord) record, "");
+                    break;
+                case MulBlankRecord.sid:
+                    MulBlankRecord blanks = (MulBlankRecord) record;
+                    moveToRow(blanks.getRow());
+                    for (int col = blanks.getFirstColumn(); col <= blanks.getLastColumn(); col++) {
+                        row.setCell(col, "");
+                    }
+                    break;
+                case FormulaRecord.sid:
+                    processFormula((FormulaRecord) record);
+                    break;
+                case StringRecord.sid:
+                    // Строковый результат формулы идет следующей записью
+                    if (pendingStringColumn != -1) {
+                        row.setCell(pendingStringColumn, ((StringRecord) record).getString().trim());
+                        pendingStringColumn = -1;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        /**
+         * Берет сохраненный в файле результат формулы.
+         */
+        private void processFormula(FormulaRecord formula) {
+            CellType type = formula.getCachedResultTypeEnum();
+            switch (type) {
+                case NUMERIC:
+                    setNumber(formula, formula.getValue());
+                    break;
+                case STRING:
+                    setCell(formula, "");
+                    pendingStringColumn = formula.getColumn();
+                    break;
+                case BOOLEAN:
+                    setCell(formula, String.valueOf(formula.getCachedBooleanValue()));
+                    break;
+                default:
+                    setCell(formula, "");
+                    break;
+            }
+        }
+
+        /**
+         * Передает число как есть, а даты - в виде строки, как обычный импорт.
+         */
+        private void setNumber(CellValueRecordInterface cell, double value) {
+            int formatIndex = formats.getFormatIndex(cell);
+            String formatString = formats.getFormatString(cell);
+
+            if (DateUtil.isADateFormat(formatIndex, formatString) && DateUtil.isValidExcelDate(value)) {
+                setCell(cell, ExcelExportService.formatNumericValue(value, formatIndex, formatString));
+            } else {
+                moveToRow(cell.getRow());
+                row.setNumber(cell.getColumn(), value);
+            }
+        }
+
+        private void setCell(CellValueRecordInterface cell, String value) {
+            moveToRow(cell.getRow());
+            row.setCell(cell.getColumn(), value);
+        }
+
+        /**
+         * Переходит к строке с указанным номером, передавая предыдущую классификатору.
+         */
+        private void moveToRow(int rowNum) {
+            if (rowStarted && row.getRowNum() == rowNum) return;
+
+            flushRow();
+            row.reset(rowNum);
+            rowStarted = true;
+        }
+
+        private void flushRow() {
+            if (rowStarted) {
+                classifier.accept(row);
+                rowStarted = false;
+            }
+            pendingStringColumn = -1;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package logic;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Потоковый импорт файлов .xlsx на основе событийной модели XSSF.
+ * Лист разбирается SAX-парсером строка за строкой, поэтому книга
+ * целиком в память не загружается.
+ *
+ * <p>Листы книги могут разбираться параллельно: таблица общих строк
+ * и стили читаются один раз и только читаются потоками, а у каждого
+ * листа свой SAX-парсер и классификатор.</p>
+ *
+ * @version 1.2
+ * @author Маленков Станислав Владимирович
+ */
+final class XlsxStreamingImporter {
+
+    private XlsxStreamingImporter() {
+    }
+
+    /**
+     * Импортирует первый лист файла .xlsx.
+     *
+     * @param filePath        - путь к файлу
+     * @param studentListener - получатель студентов по мере чтения (может быть null)
+     * @return ExcelImportResult - результат импорта
+     * @throws Exception - при ошибке чтения или разбора файла
+     */
+    static ExcelImportResult importFirstSheet(String filePath, Consumer<Student> studentListener)
+            throws Exception {
+        SheetRowClassifier classifier = new SheetRowClassifier(studentListener);
+
+        OPCPackage pkg = OPCPackage.open(filePath, PackageAccess.READ);
+        try {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg, false);
+            StylesTable styles = reader.getStylesTable();
+
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (sheets.hasNext()) {
+                try (InputStream sheet = sheets.next()) {
+                    parseSheet(sheet, styles, strings, classifier);
+                }
+            }
+        } finally {
+            pkg.revert(); // Пакет открыт только для чтения
+        }
+
+        return classifier.finish();
+    }
+
+    /**
+     * Импортирует все листы файла .xlsx, разбирая их параллельно.
+     *
+     * @param filePath - путь к файлу
+     * @param executor - пул потоков для разбора листов
+     * @return List<ExcelImportResult> - результаты по листам в порядке следования листов
+     * @throws Exception - при ошибке чтения или разбора файла
+     */
+    static List<ExcelImportResult> importAllSheets(String filePath, ExecutorService executor)
+            throws Exception {
+        OPCPackage pkg = OPCPackage.open(filePath, PackageAccess.READ);
+        try {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg, false);
+            StylesTable styles = reader.getStylesTable();
+
+            List<Future<ExcelImportResult>> futures = new ArrayList<>();
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            while (sheets.hasNext()) {
+                sheets.next().close(); // Лист будет открыт заново в своем потоке
+                String sheetName = sheets.getSheetName();
+                PackagePart part = sheets.getSheetPart();
+
+                futures.add(executor.submit(() -> {
+                    long start = System.nanoTime();
+                    SheetRowClassifier classifier = new SheetRowClassifier();
+                    try (InputStream sheet = part.getInputStream()) {
+                        parseSheet(sheet, styles, strings, classifier);
+                    }
+
+                    ExcelImportResult result = classifier.finish();
+                    result.setSheetName(sheetName);
+                    result.setParseTimeMillis((System.nanoTime() - start) / 1_000_000);
+                    return result;
+                }));
+            }
+
+            List<ExcelImportResult> results = new ArrayList<>(futures.size());
+            try {
+                for (Future<ExcelImportResult> future : futures) {
+                    results.add(future.get());
+                }
+            } catch (ExecutionException e) {
+                futures.forEach(future -> future.cancel(true));
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            }
+            return results;
+        } finally {
+            pkg.revert(); // Пакет открыт только для чтения
+        }
+    }
+
+    /**
+     * Разбирает XML одного листа и передает строки классификатору.
+     */
+    private static void parseSheet(InputStream sheet, StylesTable styles, ReadOnlySharedStringsTable strings,
+                                   SheetRowClassifier classifier) throws Exception {
+        XMLReader parser = XMLHelper.newXMLReader();
+        parser.setContentHandler(new XSSFSheetXMLHandler(styles, strings,
+                new RowHandler(classifier), new RawValueFormatter(), false));
+        parser.parse(new InputSource(sheet));
+    }
+
+    /**
+     * Собирает ячейки SAX-событий в строки и передает их классификатору.
+     */
+    private static class RowHandler implements XSSFSheetXMLHandler.SheetContentsHandler {
+        private final SheetRowClassifier classifier;
+        private final SheetRow row = new SheetRow();
+        private int lastColumn;
+
+        RowHandler(SheetRowClassifier classifier) {
+            this.classifier = classifier;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            row.reset(rowNum);
+            lastColumn = -1;
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            classifier.accept(row);
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int column = cellReference != null ? columnOf(cellReference) : lastColumn + 1;
+            lastColumn = column;
+            row.setCell(column, formattedValue == null ? "" : formattedValue.trim());
+        }
+
+        /**
+         * Вычисляет номер колонки по адресу ячейки (например, "C12" - 2).
+         */
+        private static int columnOf(String cellReference) {
+            int column = 0;
+            for (int i = 0; i < cellReference.length(); i++) {
+                char c = cellReference.charAt(i);
+                if (c < 'A' || c > 'Z') break;
+                column = column * 26 + (c - 'A' + 1);
+            }
+            return column - 1;
+        }
+    }
+
+    /**
+     * Форматирует числа так же, как обычный импорт,
+     * чтобы оба способа давали одинаковые строки.
+     */
+    private static class RawValueFormatter extends DataFormatter {
+        @Override
+        public String formatRawCellContents(double value, int formatIndex, String formatString) {
+            return ExcelExportService.formatNumericValue(value, formatIndex, formatString);
+        }
+
+        @Override
+        public String formatRawCellContents(double value, int formatIndex, String formatString,
+                                            boolean use1904Windowing) {
+            return ExcelExportService.formatNumericValue(value, formatIndex, formatString);
+        }
+    }
+}
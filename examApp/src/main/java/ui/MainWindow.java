@@ -7,11 +7,17 @@ import java.awt.*;
 import java.awt.event.InputEvent;
 import java.awt.event.KeyEvent;
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Главное окно приложения для управления экзаменационной ведомостью.
  *
- * @version 3.2
+ * @version 3.14
  * @author Маленков Станислав Владимирович
  */
 public class MainWindow {
@@ -26,6 +32,14 @@ public class MainWindow {
     private File currentFile;
     private File originalFile;
     private boolean isDataModified = false;
+    private SwingWorker<ExcelImportResult, Student> loadWorker; // Текущая фоновая загрузка файла
+    private List<Student> studentsBeforeLoad; // Таблица до первой из подряд идущих загрузок
+    private boolean modifiedBeforeLoad;       // Признак изменений до первой из загрузок
+    private final AsyncSaveService saveService = new AsyncSaveService();
+    private int modificationCount;   // Номер последнего изменения данных
+    private EditJournal journal;     // Журнал несохраненных правок (null - недоступен)
+    private boolean replaying;       // Идет восстановление правок из журнала
+    private File templateFile;       // Последний выбранный шаблон экспорта
 
     public MainWindow() {
         initialize();
@@ -33,14 +47,211 @@ public class MainWindow {
 
     private void initialize() {
         examRecord = new ExamRecord("Программирование на Java", "15.12.2025");
-        tableModel = new StudentTableModel();
+        tableModel = new StudentTableModel(examRecord); // Таблица меняет ведомость напрямую
         tableModel.setMainWindow(this);
 
         createMainWindow();
         setupUI();
+        openJournal(); // После строки состояния: о недоступном журнале сообщается в ней
         updateWindowTitle();
 
         frame.setVisible(true);
+        recoverEdits();
+    }
+
+    /**
+     * Открывает журнал правок. Без журнала приложение работает,
+     * но не сможет восстановить изменения после сбоя.
+     */
+    private void openJournal() {
+        try {
+            journal = EditJournal.openDefault();
+            journal.setFailureListener(e -> SwingUtilities.invokeLater(() -> showWarningDialog(
+                    "Журнал правок больше не записывается: " + e.getMessage() +
+                    "\nНесохраненные изменения не удастся восстановить после сбоя. Сохраните ведомость.")));
+            tableModel.setJournal(journal);
+        } catch (IOException e) {
+            journal = null;
+            updateStatus("Журнал правок недоступен: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Предлагает восстановить несохраненные правки прошлого запуска.
+     * Последний сохраненный файл читается заново (повторное чтение
+     * обслуживает кэш импорта), затем поверх него воспроизводится журнал.
+     * Если файл изменился после начала журнала (сохранен другой программой
+     * или сбой случился во время сохранения), правки к нему не относятся
+     * и не воспроизводятся.
+     */
+    private void recoverEdits() {
+        if (journal == null || !journal.hasEdits()) return;
+
+        String basePath = journal.getBasePath();
+        String baseSheet = journal.getBaseSheet();
+        String baseName = basePath.isEmpty() ? "новая ведомость" : new File(basePath).getName();
+
+        if (!journal.isBaseUnchanged()) {
+            showWarningDialog("Найдены несохраненные изменения (" + journal.getEditCount() + "), но файл " +
+                    baseName + " изменен после их внесения.\n" +
+                    "Изменения нельзя наложить на новое содержимое файла и они не будут восстановлены.");
+            resetJournal(currentFile, null);
+            return;
+        }
+
+        int choice = JOptionPane.showConfirmDialog(frame,
+                "Найдены несохраненные изменения (" + journal.getEditCount() + ", " + baseName + ").\n" +
+                        "Восстановить несохраненные изменения?",
+                "Восстановление", JOptionPane.YES_NO_OPTION, JOptionPane.QUESTION_MESSAGE);
+        if (choice != JOptionPane.YES_OPTION) {
+            resetJournal(currentFile, null);
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            List<Student> students = new ArrayList<>();
+            String[] fields = {subjectField.getText(), dateField.getText(), emailField.getText()};
+            File baseFile = null;
+
+            if (!basePath.isEmpty()) {
+                baseFile = new File(basePath);
+                ExcelImportResult base = readJournalBase(baseFile, baseSheet);
+                students.addAll(base.getStudents());
+                if (base.getSubject() != null && !base.getSubject().trim().isEmpty()) fields[0] = base.getSubject();
+                if (base.getDate() != null && !base.getDate().trim().isEmpty()) fields[1] = base.getDate();
+                if (base.getEmail() != null && !base.getEmail().trim().isEmpty()) fields[2] = base.getEmail();
+            }
+
+            journal.replay(new EditJournal.Handler() {
+                public void studentAdded(String fullName, int score) {
+                    students.add(new Student(fullName, score));
+                }
+
+                public void studentRemoved(int index) {
+                    if (index >= 0 && index < students.size()) students.remove(index);
+                }
+
+                public void nameChanged(int index, String fullName) {
+                    if (index >= 0 && index < students.size()) students.get(index).setFullName(fullName);
+                }
+
+                public void scoreChanged(int index, int score) {
+                    if (index >= 0 && index < students.size()) students.get(index).setScore(score);
+                }
+
+                public void cleared() {
+                    students.clear();
+                }
+
+                public void fieldChanged(int field, String value) {
+                    if (field >= 0 && field < fields.length) fields[field] = value;
+                }
+            });
+
+            replaying = true; // Восстановленные значения уже есть в журнале
+            try {
+                tableModel.clear();
+                tableModel.addStudents(students);
+                subjectField.setText(fields[0]);
+                dateField.setText(fields[1]);
+                emailField.setText(fields[2]);
+            } finally {
+                replaying = false;
+            }
+
+            currentFile = baseSheet.isEmpty() ? baseFile : null;
+            originalFile = baseFile;
+            markDataModified();
+            updateStudentCount();
+            updateWindowTitle();
+            updateStatus("Восстановлено изменений: " + journal.getEditCount() +
+                    " за " + (System.nanoTime() - start) / 1_000_000 + " мс");
+        } catch (Exception e) {
+            showErrorDialog("Не удалось восстановить изменения: " + e.getMessage());
+            resetJournal(null, null);
+        }
+    }
+
+    /**
+     * Читает файл (или лист книги), поверх которого ведется журнал.
+     */
+    private ExcelImportResult readJournalBase(File file, String sheetName) throws Exception {
+        if (sheetName.isEmpty()) {
+            return ExcelExportService.readExcelFile(file.getAbsolutePath(), null);
+        }
+        for (ExcelImportResult sheet : ExcelExportService.readAllSheets(file.getAbsolutePath())) {
+            if (sheetName.equals(sheet.getSheetName())) {
+                return sheet;
+            }
+        }
+        throw new IOException("Лист \"" + sheetName + "\" не найден в файле " + file.getName());
+    }
+
+    /**
+     * Начинает журнал заново от файла, содержимое которого совпадает с таблицей.
+     *
+     * @param base  - загруженный или сохраненный файл (null для новой ведомости)
+     * @param sheet - имя листа книги или null
+     */
+    private void resetJournal(File base, String sheet) {
+        if (journal == null) return;
+        try {
+            journal.reset(base, sheet);
+        } catch (IOException e) {
+            disableJournal(e); // Журнал не совпадает с таблицей
+        }
+    }
+
+    /**
+     * Начинает журнал от сохраненного файла, оставляя правки после отметки.
+     */
+    private void rebaseJournal(File base, EditJournal.Mark mark) {
+        if (journal == null) return;
+        try {
+            journal.rebase(base, null, mark);
+        } catch (IOException e) {
+            disableJournal(e); // Журнал не совпадает с файлом
+        }
+    }
+
+    /**
+     * Отключает журнал, который больше не совпадает с таблицей,
+     * и сообщает об этом в строке состояния.
+     */
+    private void disableJournal(IOException cause) {
+        closeJournal();
+        journal = null;
+        tableModel.setJournal(null);
+        updateStatus("Журнал правок отключен: " + cause.getMessage());
+    }
+
+    /**
+     * Обрабатывает правку поля ведомости.
+     */
+    private void fieldEdited(int field, JTextField textField) {
+        if (field == EditJournal.FIELD_SUBJECT) {
+            examRecord.setSubject(textField.getText());
+        } else if (field == EditJournal.FIELD_DATE) {
+            examRecord.setDate(textField.getText());
+        }
+        markDataModified();
+        if (journal != null && !replaying) {
+            journal.logFieldChanged(field, textField.getText());
+        }
+    }
+
+    /**
+     * Записывает оставшиеся правки журнала перед выходом.
+     */
+    private void closeJournal() {
+        if (journal == null) return;
+        try {
+            journal.close();
+        } catch (IOException e) {
+            // Журнал закрывается при выходе или отключении: последние правки
+            // могут не попасть в него, но на работу с таблицей это не влияет
+        }
     }
 
     private void createMainWindow() {
@@ -89,6 +300,7 @@ public class MainWindow {
     }
 
     protected void markDataModified() {
+        modificationCount++;
         if (!isDataModified) {
             isDataModified = true;
             updateWindowTitle();
@@ -117,6 +329,14 @@ public class MainWindow {
         openItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_O, InputEvent.CTRL_DOWN_MASK));
         openItem.addActionListener(e -> openFile());
 
+        JMenuItem openSheetsItem = new JMenuItem("Открыть лист книги...");
+        openSheetsItem.setMnemonic('л');
+        openSheetsItem.addActionListener(e -> openWorkbookSheets());
+
+        JMenuItem batchImportItem = new JMenuItem("Пакетный импорт папки...");
+        batchImportItem.setMnemonic('к');
+        batchImportItem.addActionListener(e -> importDirectory());
+
         JMenuItem saveItem = new JMenuItem("Сохранить");
         saveItem.setMnemonic('С');
         saveItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_S, InputEvent.CTRL_DOWN_MASK));
@@ -135,7 +355,11 @@ public class MainWindow {
         JMenuItem exportEmailItem = new JMenuItem("Отправить по email...");
         exportEmailItem.addActionListener(e -> sendEmail());
 
+        JMenuItem exportTemplateItem = new JMenuItem("В Excel по шаблону...");
+        exportTemplateItem.addActionListener(e -> exportWithTemplate());
+
         exportMenu.add(exportExcelItem);
+        exportMenu.add(exportTemplateItem);
         exportMenu.add(exportEmailItem);
 
         JMenuItem printItem = new JMenuItem("Печать ведомости...");
@@ -152,6 +376,8 @@ public class MainWindow {
         fileMenu.add(newRecordItem);
         fileMenu.addSeparator();
         fileMenu.add(openItem);
+        fileMenu.add(openSheetsItem);
+        fileMenu.add(batchImportItem);
         fileMenu.add(saveItem);
         fileMenu.add(saveAsItem);
         fileMenu.addSeparator();
@@ -254,27 +480,27 @@ public class MainWindow {
         panel.add(new JLabel("Предмет:"));
         subjectField = new JTextField("Программирование на Java");
         subjectField.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
-            public void changedUpdate(javax.swing.event.DocumentEvent e) { markDataModified(); }
-            public void removeUpdate(javax.swing.event.DocumentEvent e) { markDataModified(); }
-            public void insertUpdate(javax.swing.event.DocumentEvent e) { markDataModified(); }
+            public void changedUpdate(javax.swing.event.DocumentEvent e) { fieldEdited(EditJournal.FIELD_SUBJECT, subjectField); }
+            public void removeUpdate(javax.swing.event.DocumentEvent e) { fieldEdited(EditJournal.FIELD_SUBJECT, subjectField); }
+            public void insertUpdate(javax.swing.event.DocumentEvent e) { fieldEdited(EditJournal.FIELD_SUBJECT, subjectField); }
         });
         panel.add(subjectField);
 
         panel.add(new JLabel("Дата аттестации:"));
         dateField = new JTextField("15.12.2025");
         dateField.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
-            public void changedUpdate(javax.swing.event.DocumentEvent e) { markDataModified(); }
-            public void removeUpdate(javax.swing.event.DocumentEvent e) { markDataModified(); }
-            public void insertUpdate(javax.swing.event.DocumentEvent e) { markDataModified(); }
+            public void changedUpdate(javax.swing.event.DocumentEvent e) { fieldEdited(EditJournal.FIELD_DATE, dateField); }
+            public void removeUpdate(javax.swing.event.DocumentEvent e) { fieldEdited(EditJournal.FIELD_DATE, dateField); }
+            public void insertUpdate(javax.swing.event.DocumentEvent e) { fieldEdited(EditJournal.FIELD_DATE, dateField); }
         });
         panel.add(dateField);
 
         panel.add(new JLabel("Email для отправки:"));
         emailField = new JTextField("teacher@bntu.by");
         emailField.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
-            public void changedUpdate(javax.swing.event.DocumentEvent e) { markDataModified(); }
-            public void removeUpdate(javax.swing.event.DocumentEvent e) { markDataModified(); }
-            public void insertUpdate(javax.swing.event.DocumentEvent e) { markDataModified(); }
+            public void changedUpdate(javax.swing.event.DocumentEvent e) { fieldEdited(EditJournal.FIELD_EMAIL, emailField); }
+            public void removeUpdate(javax.swing.event.DocumentEvent e) { fieldEdited(EditJournal.FIELD_EMAIL, emailField); }
+            public void insertUpdate(javax.swing.event.DocumentEvent e) { fieldEdited(EditJournal.FIELD_EMAIL, emailField); }
         });
         panel.add(emailField);
 
@@ -416,6 +642,140 @@ public class MainWindow {
     }
 
     private void openFile() {
+        if (!confirmDiscardChanges()) return;
+
+        File file = chooseExcelFile();
+        if (file != null) {
+            loadFromExcelFile(file);
+        }
+    }
+
+    /**
+     * Открывает книгу, в которой каждая группа занимает отдельный лист.
+     * Все листы читаются в фоне, затем пользователь выбирает лист для работы.
+     */
+    private void openWorkbookSheets() {
+        if (!confirmDiscardChanges()) return;
+
+        File file = chooseExcelFile();
+        if (file == null) return;
+
+        updateStatus("Чтение листов книги: " + file.getName() + "...");
+        long start = System.nanoTime();
+
+        new SwingWorker<List<ExcelImportResult>, Void>() {
+            @Override
+            protected List<ExcelImportResult> doInBackground() throws Exception {
+                return ExcelExportService.readAllSheets(file.getAbsolutePath());
+            }
+
+            @Override
+            protected void done() {
+                List<ExcelImportResult> sheets;
+                try {
+                    sheets = get();
+                } catch (Exception e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    showErrorDialog("Ошибка при загрузке файла Excel: " + cause.getMessage());
+                    updateStatus("Файл не загружен");
+                    return;
+                }
+                chooseSheet(file, sheets, (System.nanoTime() - start) / 1_000_000);
+            }
+        }.execute();
+    }
+
+    /**
+     * Показывает листы книги со временем разбора и загружает выбранный лист.
+     * Книга не становится текущим файлом, чтобы сохранение не перезаписало
+     * остальные листы.
+     */
+    private void chooseSheet(File file, List<ExcelImportResult> sheets, long totalMillis) {
+        if (sheets.isEmpty()) {
+            showWarningDialog("В книге нет листов с данными");
+            updateStatus("Файл не загружен");
+            return;
+        }
+
+        String[] items = new String[sheets.size()];
+        for (int i = 0; i < sheets.size(); i++) {
+            ExcelImportResult sheet = sheets.get(i);
+            items[i] = sheet.getSheetName() + " - студентов: " + sheet.getStudents().size() +
+                    ", " + sheet.getParseTimeMillis() + " мс";
+        }
+
+        JComboBox<String> sheetBox = new JComboBox<>(items);
+        JPanel panel = new JPanel(new BorderLayout(0, 5));
+        panel.add(new JLabel("Листов: " + sheets.size() + ", время чтения книги: " + totalMillis + " мс"),
+                BorderLayout.NORTH);
+        panel.add(sheetBox, BorderLayout.CENTER);
+
+        int choice = JOptionPane.showConfirmDialog(frame, panel, "Выбор листа",
+                JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (choice != JOptionPane.OK_OPTION) {
+            updateStatus("Файл не загружен");
+            return;
+        }
+
+        ExcelImportResult result = sheets.get(sheetBox.getSelectedIndex());
+        tableModel.clear();
+        tableModel.addStudents(result.getStudents());
+        applyLoadedFile(file, result, result.getSheetName()); // Журнал запомнит выбранный лист
+
+        currentFile = null; // Сохранять отдельный лист - только через "Сохранить как"
+        updateWindowTitle();
+        updateStatus("Загружен лист \"" + result.getSheetName() + "\" из файла " + file.getName());
+    }
+
+    /**
+     * Импортирует в фоне все ведомости из выбранной папки
+     * и показывает отчет о скорости импорта.
+     */
+    private void importDirectory() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+        if (fileChooser.showOpenDialog(frame) != JFileChooser.APPROVE_OPTION) return;
+
+        File directory = fileChooser.getSelectedFile();
+        updateStatus("Пакетный импорт папки: " + directory.getName() + "...");
+
+        new SwingWorker<BatchImportReport, Void>() {
+            @Override
+            protected BatchImportReport doInBackground() throws Exception {
+                return BatchImportService.importDirectory(directory);
+            }
+
+            @Override
+            protected void done() {
+                BatchImportReport report;
+                try {
+                    report = get();
+                } catch (Exception e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    showErrorDialog("Ошибка пакетного импорта: " + cause.getMessage());
+                    updateStatus("Пакетный импорт не выполнен");
+                    return;
+                }
+
+                JTextArea reportArea = new JTextArea(report.format());
+                reportArea.setEditable(false);
+                reportArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
+                JScrollPane scrollPane = new JScrollPane(reportArea);
+                scrollPane.setPreferredSize(new Dimension(500, 300));
+
+                JOptionPane.showMessageDialog(frame, scrollPane, "Пакетный импорт", JOptionPane.INFORMATION_MESSAGE);
+                updateStatus("Пакетный импорт: ведомостей " + report.getRecords().size() +
+                        ", студентов " + report.getTotalRows());
+            }
+        }.execute();
+    }
+
+    /**
+     * Предлагает сохранить несохраненные изменения.
+     *
+     * @return boolean - true если можно продолжать
+     */
+    private boolean confirmDiscardChanges() {
         if (isDataModified) {
             int choice = JOptionPane.showConfirmDialog(frame,
                     "Есть несохраненные изменения. Сохранить перед открытием нового файла?",
@@ -424,13 +784,62 @@ public class MainWindow {
                     JOptionPane.WARNING_MESSAGE);
 
             if (choice == JOptionPane.YES_OPTION) {
-                saveFile();
-                if (isDataModified) return;
+                saveFile(true);
+                if (isDataModified) return false;
             } else if (choice == JOptionPane.CANCEL_OPTION) {
-                return;
+                return false;
             }
         }
+        return true;
+    }
 
+    /**
+     * Показывает диалог выбора файла Excel.
+     *
+     * @return File - выбранный файл или null
+     */
+    private static String removeExtension(String path, String extension) {
+        if (path.toLowerCase().endsWith(extension)) {
+            return path.substring(0, path.length() - extension.length());
+        }
+        return path;
+    }
+
+    /**
+     * Фильтр выбора файлов для текстовых ведомостей CSV и TSV.
+     */
+    private javax.swing.filechooser.FileFilter createCsvFileFilter() {
+        return new javax.swing.filechooser.FileFilter() {
+            @Override
+            public boolean accept(File f) {
+                return f.isDirectory() || CsvExportService.isCsvFile(f.getName());
+            }
+
+            @Override
+            public String getDescription() {
+                return "Текстовые файлы (*.csv, *.tsv)";
+            }
+        };
+    }
+
+    /**
+     * Фильтр выбора файлов для ведомостей в двоичном формате.
+     */
+    private javax.swing.filechooser.FileFilter createBinaryFileFilter() {
+        return new javax.swing.filechooser.FileFilter() {
+            @Override
+            public boolean accept(File f) {
+                return f.isDirectory() || BinaryRecordService.isBinaryFile(f.getName());
+            }
+
+            @Override
+            public String getDescription() {
+                return "Ведомости (*" + BinaryRecordService.EXTENSION + ")";
+            }
+        };
+    }
+
+    private File chooseExcelFile() {
         JFileChooser fileChooser = new JFileChooser();
         fileChooser.setFileFilter(new javax.swing.filechooser.FileFilter() {
             @Override
@@ -444,58 +853,150 @@ public class MainWindow {
                 return "Файлы Excel (*.xlsx, *.xls)";
             }
         });
+        fileChooser.addChoosableFileFilter(createCsvFileFilter());
+        fileChooser.addChoosableFileFilter(createBinaryFileFilter());
 
         if (fileChooser.showOpenDialog(frame) == JFileChooser.APPROVE_OPTION) {
-            File file = fileChooser.getSelectedFile();
-            loadFromExcelFile(file);
+            return fileChooser.getSelectedFile();
         }
+        return null;
     }
 
+    /**
+     * Загружает файл Excel в фоновом потоке.
+     * Студенты появляются в таблице порциями по мере разбора файла,
+     * поэтому первые строки видны сразу, а окно не блокируется.
+     * Если загрузить данные не удалось, таблица возвращается к прежнему виду.
+     * Прежний вид запоминается один раз, до первой загрузки: если загрузка
+     * отменена новой, в таблице уже часть файла, и ее восстанавливать нельзя.
+     */
     private void loadFromExcelFile(File file) {
-        try {
-            ExcelImportResult result = ExcelExportService.importFromExcel(file.getAbsolutePath());
+        if (loadWorker != null) {
+            loadWorker.cancel(true); // Предыдущая загрузка больше не нужна
+        } else {
+            studentsBeforeLoad = tableModel.getStudents();
+            modifiedBeforeLoad = isDataModified;
+        }
 
-            if (result.hasData()) {
-                String subject = result.getSubject();
-                String date = result.getDate();
-                String email = result.getEmail();
+        List<Student> previousStudents = studentsBeforeLoad;
+        boolean previousModified = modifiedBeforeLoad;
 
-                if (subject == null || subject.trim().isEmpty()) subject = "Программирование на Java";
-                if (date == null || date.trim().isEmpty()) date = "15.12.2025";
-                if (email == null || email.trim().isEmpty()) email = "teacher@bntu.by";
+        tableModel.clear();
+        updateStatus("Загрузка файла Excel: " + file.getName() + "...");
 
-                subjectField.setText(subject);
-                dateField.setText(date);
-                emailField.setText(email);
+        loadWorker = new SwingWorker<ExcelImportResult, Student>() {
+            private int shownCount; // Сколько студентов уже добавлено в таблицу
 
-                tableModel.clear();
-                for (Student student : result.getStudents()) {
-                    tableModel.addStudent(student);
+            @Override
+            protected ExcelImportResult doInBackground() throws Exception {
+                return ExcelExportService.readExcelFile(file.getAbsolutePath(), student -> {
+                    if (isCancelled()) {
+                        throw new CancellationException();
+                    }
+                    publish(student);
+                });
+            }
+
+            @Override
+            protected void process(List<Student> chunk) {
+                if (isCancelled() || isDone()) return;
+
+                tableModel.addStudents(chunk); // Одно событие вставки на порцию
+                shownCount += chunk.size();
+                updateStatus("Загрузка файла Excel: " + file.getName() + "...");
+            }
+
+            @Override
+            protected void done() {
+                if (isCancelled()) return;
+                loadWorker = null;
+                studentsBeforeLoad = null;
+
+                ExcelImportResult result;
+                try {
+                    result = get();
+                } catch (Exception e) {
+                    restoreTable(previousStudents, previousModified);
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    showErrorDialog("Ошибка при загрузке файла Excel: " + cause.getMessage());
+                    return;
+                }
+
+                if (!result.hasData()) {
+                    restoreTable(previousStudents, previousModified);
+                    showWarningDialog("Не удалось загрузить данные из файла Excel");
+                    return;
                 }
 
-                currentFile = file;
-                originalFile = file;
-                isDataModified = false;
-                updateWindowTitle();
-                updateExamRecordFromTable();
-                updateStatus("Файл Excel загружен: " + file.getName());
-            } else {
-                showWarningDialog("Не удалось загрузить данные из файла Excel");
+                // Последние порции могли еще не дойти до process()
+                List<Student> students = result.getStudents();
+                tableModel.addStudents(students.subList(shownCount, students.size()));
+                applyLoadedFile(file, result, null);
             }
-        } catch (Exception e) {
-            showErrorDialog("Ошибка при загрузке файла Excel: " + e.getMessage());
-        }
+        };
+        loadWorker.execute();
+    }
+
+    /**
+     * Заполняет поля ведомости после успешной загрузки файла.
+     *
+     * @param sheet - имя выбранного листа книги или null, если загружена вся ведомость
+     */
+    private void applyLoadedFile(File file, ExcelImportResult result, String sheet) {
+        String subject = result.getSubject();
+        String date = result.getDate();
+        String email = result.getEmail();
+
+        if (subject == null || subject.trim().isEmpty()) subject = "Программирование на Java";
+        if (date == null || date.trim().isEmpty()) date = "15.12.2025";
+        if (email == null || email.trim().isEmpty()) email = "teacher@bntu.by";
+
+        subjectField.setText(subject);
+        dateField.setText(date);
+        emailField.setText(email);
+
+        currentFile = file;
+        originalFile = file;
+        isDataModified = false;
+        resetJournal(file, sheet); // Правки отсчитываются от загруженного файла
+        updateWindowTitle();
+        updateStudentCount();
+        updateStatus("Файл Excel загружен: " + file.getName());
+    }
+
+    /**
+     * Возвращает в таблицу студентов, которые были в ней до загрузки.
+     */
+    private void restoreTable(List<Student> students, boolean modified) {
+        tableModel.clear();
+        tableModel.addStudents(students);
+        isDataModified = modified;
+        updateWindowTitle();
+        updateStatus("Файл не загружен");
     }
 
     private void saveFile() {
+        saveFile(false);
+    }
+
+    /**
+     * Сохраняет ведомость в текущий файл.
+     *
+     * @param wait - true чтобы дождаться окончания записи (перед выходом)
+     */
+    private void saveFile(boolean wait) {
         if (currentFile == null) {
-            saveFileAs();
+            saveFileAs(wait);
         } else {
-            saveToExcelFile(currentFile, true);
+            saveToExcelFile(currentFile, true, wait);
         }
     }
 
     private void saveFileAs() {
+        saveFileAs(false);
+    }
+
+    private void saveFileAs(boolean wait) {
         JFileChooser fileChooser = new JFileChooser();
         fileChooser.setFileFilter(new javax.swing.filechooser.FileFilter() {
             @Override
@@ -509,6 +1010,10 @@ public class MainWindow {
                 return "Файлы Excel (*.xlsx, *.xls)";
             }
         });
+        javax.swing.filechooser.FileFilter csvFilter = createCsvFileFilter();
+        javax.swing.filechooser.FileFilter binaryFilter = createBinaryFileFilter();
+        fileChooser.addChoosableFileFilter(csvFilter);
+        fileChooser.addChoosableFileFilter(binaryFilter);
 
         String defaultName = ExcelExportService.generateFileName(examRecord.getSubject());
         fileChooser.setSelectedFile(new File(defaultName));
@@ -517,32 +1022,86 @@ public class MainWindow {
             File selectedFile = fileChooser.getSelectedFile();
             String path = selectedFile.getAbsolutePath();
 
-            if (!path.toLowerCase().endsWith(".xlsx") && !path.toLowerCase().endsWith(".xls")) {
+            // Имя по умолчанию получает расширение выбранного формата
+            if (fileChooser.getFileFilter() == binaryFilter && !BinaryRecordService.isBinaryFile(path)) {
+                selectedFile = new File(removeExtension(path, ".xlsx") + BinaryRecordService.EXTENSION);
+            } else if (fileChooser.getFileFilter() == csvFilter && !CsvExportService.isCsvFile(path)) {
+                selectedFile = new File(removeExtension(path, ".xlsx") + ".csv");
+            } else if (!path.toLowerCase().endsWith(".xlsx") && !path.toLowerCase().endsWith(".xls") &&
+                    !CsvExportService.isCsvFile(path) && !BinaryRecordService.isBinaryFile(path)) {
                 selectedFile = new File(path + ".xlsx");
             }
 
-            saveToExcelFile(selectedFile, false);
+            saveToExcelFile(selectedFile, false, wait);
+        }
+    }
+
+    /**
+     * Сохраняет ведомость в файл Excel в фоновом потоке.
+     * Сохраняется снимок ведомости (создается за O(1)), поэтому
+     * редактирование можно продолжать.
+     * Повторные сохранения, не успевшие начаться, объединяются.
+     *
+     * @param file              - файл для сохранения
+     * @param updateCurrentFile - true если файл становится текущим
+     * @param wait              - true чтобы дождаться окончания записи
+     */
+    private void saveToExcelFile(File file, boolean updateCurrentFile, boolean wait) {
+        updateStudentCount();
+
+        ExamRecord snapshot = examRecord.snapshot();
+        int savedModification = modificationCount;
+        EditJournal.Mark mark = journal != null ? journal.mark() : null; // Правки, вошедшие в снимок
+
+        CompletableFuture<ExamRecord> save = saveService.save(snapshot, emailField.getText(), file);
+        if (wait) {
+            ExamRecord written = null;
+            Throwable error = null;
+            try {
+                written = save.join();
+            } catch (CompletionException e) {
+                error = e.getCause();
+            }
+            finishSave(file, updateCurrentFile, savedModification, mark, written == snapshot, error);
+        } else {
+            updateStatus("Сохранение файла: " + file.getName() + "...");
+            save.whenComplete((written, error) -> SwingUtilities.invokeLater(
+                    () -> finishSave(file, updateCurrentFile, savedModification, mark, written == snapshot, error)));
         }
     }
 
-    private void saveToExcelFile(File file, boolean updateCurrentFile) {
-        updateExamRecordFromTable();
-        boolean success = ExcelExportService.exportToExcel(examRecord, emailField.getText(), file.getAbsolutePath());
+    /**
+     * Обрабатывает окончание сохранения.
+     * Признак изменений снимается, только если после начала
+     * сохранения данные больше не менялись. Журнал начинается
+     * от сохраненного файла: в нем остаются только правки, сделанные
+     * после снимка. Если снимок был заменен более поздним сохранением
+     * того же файла, все делает окончание того сохранения.
+     */
+    private void finishSave(File file, boolean updateCurrentFile, int savedModification,
+                            EditJournal.Mark mark, boolean ownSnapshot, Throwable error) {
+        if (error != null) {
+            showErrorDialog("Не удалось сохранить файл в формате Excel: " + error.getMessage());
+            updateStatus("Файл не сохранен: " + file.getName());
+            return;
+        }
+        if (!ownSnapshot) return; // В файле более поздний снимок
 
-        if (success) {
-            if (updateCurrentFile) currentFile = file;
+        if (updateCurrentFile) currentFile = file;
+        if (modificationCount == savedModification) {
             markDataSaved();
-            updateStatus("Файл сохранен: " + file.getName() + (updateCurrentFile ? " (текущий)" : " (копия)"));
         } else {
-            showErrorDialog("Не удалось сохранить файл в формате Excel");
+            updateWindowTitle();
         }
+        rebaseJournal(file, mark);
+        updateStatus("Файл сохранен: " + file.getName() + (updateCurrentFile ? " (текущий)" : " (копия)"));
     }
 
     private void addStudent() {
         Student student = new Student("Новый студент", -1);
         tableModel.addStudent(student);
         markDataModified();
-        updateExamRecordFromTable();
+        updateStudentCount();
         updateStatus("Добавлен новый студент. Отредактируйте данные в таблице.");
 
         int lastRow = tableModel.getRowCount() - 1;
@@ -563,7 +1122,7 @@ public class MainWindow {
                 if (confirm == JOptionPane.YES_OPTION) {
                     tableModel.removeStudent(modelRow);
                     markDataModified();
-                    updateExamRecordFromTable();
+                    updateStudentCount();
                     updateStatus("Студент удален");
                 }
             }
@@ -573,14 +1132,14 @@ public class MainWindow {
     }
 
     private void calculateResults() {
-        updateExamRecordFromTable();
+        updateStudentCount();
         String results = GradeCalculator.calculateResults(examRecord);
         JOptionPane.showMessageDialog(frame, results, "Итоги аттестации", JOptionPane.INFORMATION_MESSAGE);
         updateStatus("Рассчитаны итоги аттестации");
     }
 
     private void sendEmail() {
-        updateExamRecordFromTable();
+        updateStudentCount();
         String email = emailField.getText().trim();
         if (email.isEmpty()) {
             showErrorDialog("Введите email адрес");
@@ -597,7 +1156,7 @@ public class MainWindow {
     }
 
     private void printRecord() {
-        updateExamRecordFromTable();
+        updateStudentCount();
         if (examRecord.getTotalStudents() == 0) {
             showWarningDialog("Нет данных для печати");
             return;
@@ -612,6 +1171,58 @@ public class MainWindow {
         saveFileAs();
     }
 
+    /**
+     * Экспортирует ведомость по выбранной книге-шаблону.
+     * Шаблон разбирается при первом выборе и дальше берется из памяти.
+     */
+    private void exportWithTemplate() {
+        updateStudentCount();
+
+        JFileChooser templateChooser = new JFileChooser();
+        templateChooser.setDialogTitle("Выберите шаблон ведомости");
+        templateChooser.setFileFilter(new javax.swing.filechooser.FileFilter() {
+            @Override
+            public boolean accept(File f) {
+                return f.isDirectory() || f.getName().toLowerCase().endsWith(".xlsx") ||
+                        f.getName().toLowerCase().endsWith(".xls");
+            }
+
+            @Override
+            public String getDescription() {
+                return "Файлы Excel (*.xlsx, *.xls)";
+            }
+        });
+        if (templateFile != null) {
+            templateChooser.setSelectedFile(templateFile);
+        }
+        if (templateChooser.showOpenDialog(frame) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+
+        ExportTemplate template;
+        try {
+            template = ExportTemplate.load(templateChooser.getSelectedFile().getAbsolutePath());
+        } catch (IOException e) {
+            showErrorDialog("Не удалось загрузить шаблон: " + e.getMessage());
+            return;
+        }
+        templateFile = templateChooser.getSelectedFile();
+
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setSelectedFile(new File(ExcelExportService.generateFileName(examRecord.getSubject())));
+        if (fileChooser.showSaveDialog(frame) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+
+        File file = fileChooser.getSelectedFile();
+        if (!file.getName().toLowerCase().endsWith(".xlsx")) {
+            file = new File(removeExtension(file.getAbsolutePath(), ".xls") + ".xlsx");
+        }
+        if (ExcelExportService.exportToExcel(examRecord, emailField.getText(), file.getAbsolutePath(), template)) {
+            updateStatus("Ведомость экспортирована по шаблону: " + file.getName());
+        }
+    }
+
     private void clearData() {
         if (tableModel.getRowCount() == 0) {
             showInfoDialog("Таблица уже пуста");
@@ -624,8 +1235,9 @@ public class MainWindow {
 
         if (result == JOptionPane.YES_OPTION) {
             tableModel.clear();
+            if (journal != null) journal.logCleared();
             markDataModified();
-            updateExamRecordFromTable();
+            updateStudentCount();
             updateStatus("Таблица очищена");
         }
     }
@@ -650,7 +1262,8 @@ public class MainWindow {
             currentFile = null;
             originalFile = null;
             isDataModified = true;
-            updateExamRecordFromTable();
+            resetJournal(null, null);
+            updateStudentCount();
             updateWindowTitle();
             updateStatus("Все данные очищены");
         }
@@ -665,27 +1278,29 @@ public class MainWindow {
                     JOptionPane.QUESTION_MESSAGE);
 
             if (choice == JOptionPane.YES_OPTION) {
-                saveFile();
-                if (!isDataModified) System.exit(0);
+                saveFile(true);
+                if (!isDataModified) {
+                    closeJournal();
+                    System.exit(0);
+                }
             } else if (choice == JOptionPane.NO_OPTION) {
+                saveService.awaitIdle(); // Не прерываем уже начатые сохранения
+                resetJournal(originalFile, null); // Изменения отброшены пользователем
+                closeJournal();
                 System.exit(0);
             }
         } else {
+            saveService.awaitIdle();
+            closeJournal();
             System.exit(0);
         }
     }
 
-    private void updateExamRecordFromTable() {
-        examRecord.setSubject(subjectField.getText());
-        examRecord.setDate(dateField.getText());
-
-        ExamRecord newRecord = new ExamRecord(subjectField.getText(), dateField.getText());
-        for (Student student : tableModel.getStudents()) {
-            newRecord.addStudent(student);
-        }
-        examRecord = newRecord;
-
-        // Обновляем счетчик в статусной строке
+    /**
+     * Обновляет счетчик студентов в статусной строке.
+     * Ведомость пересобирать не нужно: таблица меняет ее при каждой правке.
+     */
+    private void updateStudentCount() {
         Component[] components = ((JPanel)frame.getContentPane().getComponent(0)).getComponents();
         for (Component comp : components) {
             if (comp instanceof JPanel) {
@@ -1,6 +1,7 @@
 package ui;
 
 import logic.ExamRecord;
+import logic.GradeCalculator;
 import logic.Student;
 import javax.swing.*;
 import java.awt.*;
@@ -37,6 +38,9 @@ public class PrintTemplate {
         sb.append("Без оценки: ").append(record.getStudentsWithoutGrade()).append("\n");
         sb.append("Сдали: ").append(record.getPassedCount()).append("\n");
         sb.append("Не сдали: ").append(record.getFailedCount()).append("\n");
+        for (String line : GradeCalculator.getDistributionLines(record.getHistogram())) {
+            sb.append(line).append("\n");
+        }
 
         // Показываем в диалоговом окне
         JTextArea textArea = new JTextArea(sb.toString());
@@ -1,26 +1,48 @@
 package ui;
 
+import logic.EditJournal;
+import logic.ExamRecord;
 import logic.Student;
 import javax.swing.table.AbstractTableModel;
-import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Модель данных для таблицы студентов.
  * Поддерживает inline-редактирование ячеек.
  *
- * @version 3.0
+ * <p>Строки таблицы хранятся в ведомости {@link ExamRecord}: каждое добавление,
+ * удаление и правка меняет ее сразу, поэтому статистика ведомости всегда
+ * соответствует таблице и не пересчитывается.</p>
+ *
+ * @version 3.5
  * @author Маленков Станислав Владимирович
  */
 public class StudentTableModel extends AbstractTableModel {
-    private List<Student> students;
+    private final ExamRecord record;
     private final String[] columnNames = {"№", "ФИО студента", "Оценка", "Результат"};
 
     // Ссылка на главное окно для уведомления об изменениях
     private MainWindow mainWindow;
 
-    public StudentTableModel() {
-        this.students = new ArrayList<>();
+    // Журнал правок (null - правки не журналируются)
+    private transient EditJournal journal;
+
+    /**
+     * Создает модель таблицы поверх ведомости.
+     *
+     * @param record - ведомость, в которой хранятся строки таблицы
+     */
+    public StudentTableModel(ExamRecord record) {
+        this.record = record;
+    }
+
+    /**
+     * Возвращает ведомость, в которой хранятся строки таблицы.
+     *
+     * @return ExamRecord - ведомость таблицы
+     */
+    public ExamRecord getRecord() {
+        return record;
     }
 
     /**
@@ -30,42 +52,90 @@ public class StudentTableModel extends AbstractTableModel {
         this.mainWindow = mainWindow;
     }
 
+    /**
+     * Устанавливает журнал, в который записываются правки пользователя.
+     * Массовые операции (загрузка группы, очистка) не журналируются:
+     * загрузка начинает журнал заново, а очистку записывает главное окно.
+     *
+     * @param journal - журнал правок или null
+     */
+    public void setJournal(EditJournal journal) {
+        this.journal = journal;
+    }
+
     public void addStudent(Student student) {
-        students.add(student);
-        fireTableRowsInserted(students.size() - 1, students.size() - 1);
+        record.addStudent(student);
+        int row = record.getTotalStudents() - 1;
+        fireTableRowsInserted(row, row);
+        if (journal != null) {
+            journal.logStudentAdded(student.getFullName(), student.getScore());
+        }
+        notifyDataModified();
+    }
+
+    /**
+     * Добавляет группу студентов в конец таблицы.
+     * Таблица получает одно событие вставки на всю группу.
+     *
+     * @param newStudents - добавляемые студенты
+     */
+    public void addStudents(List<Student> newStudents) {
+        if (newStudents.isEmpty()) return;
+
+        int firstRow = record.getTotalStudents();
+        for (Student student : newStudents) {
+            record.addStudent(student);
+        }
+        fireTableRowsInserted(firstRow, record.getTotalStudents() - 1);
         notifyDataModified();
     }
 
     public void removeStudent(int rowIndex) {
-        if (rowIndex >= 0 && rowIndex < students.size()) {
-            students.remove(rowIndex);
+        if (rowIndex >= 0 && rowIndex < record.getTotalStudents()) {
+            record.removeStudent(rowIndex);
             fireTableRowsDeleted(rowIndex, rowIndex);
+            if (journal != null) {
+                journal.logStudentRemoved(rowIndex);
+            }
             notifyDataModified();
         }
     }
 
+    /**
+     * Заменяет значения студента в строке значениями переданного студента.
+     */
     public void updateStudent(int rowIndex, Student student) {
-        if (rowIndex >= 0 && rowIndex < students.size()) {
-            students.set(rowIndex, student);
+        if (rowIndex >= 0 && rowIndex < record.getTotalStudents()) {
+            Student current = record.getStudent(rowIndex);
+            current.setFullName(student.getFullName());
+            current.setScore(student.getScore());
             fireTableRowsUpdated(rowIndex, rowIndex);
+            if (journal != null) {
+                journal.logNameChanged(rowIndex, student.getFullName());
+                journal.logScoreChanged(rowIndex, student.getScore());
+            }
             notifyDataModified();
         }
     }
 
     public Student getStudent(int rowIndex) {
-        if (rowIndex >= 0 && rowIndex < students.size()) {
-            return students.get(rowIndex);
+        if (rowIndex >= 0 && rowIndex < record.getTotalStudents()) {
+            return record.getStudent(rowIndex);
         }
         return null;
     }
 
+    /**
+     * Возвращает неизменяемый снимок списка студентов без копирования.
+     * Дальнейшие изменения таблицы на снимок не влияют.
+     */
     public List<Student> getStudents() {
-        return new ArrayList<>(students);
+        return record.getStudents();
     }
 
     @Override
     public int getRowCount() {
-        return students.size();
+        return record.getTotalStudents();
     }
 
     @Override
@@ -80,7 +150,7 @@ public class StudentTableModel extends AbstractTableModel {
 
     @Override
     public Object getValueAt(int rowIndex, int columnIndex) {
-        Student student = students.get(rowIndex);
+        Student student = record.getStudent(rowIndex);
         switch (columnIndex) {
             case 0: return rowIndex + 1; // № (не редактируемый)
             case 1: return student.getFullName(); // ФИО
@@ -98,7 +168,7 @@ public class StudentTableModel extends AbstractTableModel {
 
     @Override
     public void setValueAt(Object value, int rowIndex, int columnIndex) {
-        Student student = students.get(rowIndex);
+        Student student = record.getStudent(rowIndex);
 
         if (value == null) return;
 
@@ -110,6 +180,9 @@ public class StudentTableModel extends AbstractTableModel {
                     fireTableCellUpdated(rowIndex, columnIndex);
                     // Автоматически обновляем результат
                     fireTableCellUpdated(rowIndex, 3);
+                    if (journal != null) {
+                        journal.logNameChanged(rowIndex, newName);
+                    }
                     notifyDataModified();
                 }
                 break;
@@ -122,6 +195,7 @@ public class StudentTableModel extends AbstractTableModel {
                             student.setScore(score);
                             fireTableCellUpdated(rowIndex, columnIndex);
                             fireTableCellUpdated(rowIndex, 3);
+                            logScoreChanged(rowIndex, student);
                             notifyDataModified();
                         }
                     } else if (value instanceof String) {
@@ -131,6 +205,7 @@ public class StudentTableModel extends AbstractTableModel {
                                 student.setScore(-1);
                                 fireTableCellUpdated(rowIndex, columnIndex);
                                 fireTableCellUpdated(rowIndex, 3);
+                                logScoreChanged(rowIndex, student);
                                 notifyDataModified();
                             }
                         } else {
@@ -139,6 +214,7 @@ public class StudentTableModel extends AbstractTableModel {
                                 student.setScore(score);
                                 fireTableCellUpdated(rowIndex, columnIndex);
                                 fireTableCellUpdated(rowIndex, 3);
+                                logScoreChanged(rowIndex, student);
                                 notifyDataModified();
                             }
                         }
@@ -150,6 +226,12 @@ public class StudentTableModel extends AbstractTableModel {
         }
     }
 
+    private void logScoreChanged(int rowIndex, Student student) {
+        if (journal != null) {
+            journal.logScoreChanged(rowIndex, student.getScore());
+        }
+    }
+
     /**
      * Уведомляет главное окно об изменении данных.
      */
@@ -177,9 +259,9 @@ public class StudentTableModel extends AbstractTableModel {
     }
 
     public void clear() {
-        int size = students.size();
+        int size = record.getTotalStudents();
         if (size > 0) {
-            students.clear();
+            record.clear();
             fireTableRowsDeleted(0, size - 1);
             notifyDataModified();
         }
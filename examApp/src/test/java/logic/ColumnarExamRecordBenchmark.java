@@ -0,0 +1,156 @@
+package logic;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение списочной ({@link ExamRecord}) и колоночной ({@link ColumnarExamRecord})
+ * ведомостей на миллионе студентов: занимаемая память и время заполнения,
+ * прохода по оценкам, прохода по ФИО и изменения оценок.
+ *
+ * <p>Память ({@code retainedHeap}) - прирост занятой кучи после полной сборки
+ * мусора, вызванной до и после заполнения ведомости; выводится счетчиком
+ * {@code bytes} (одно измерение, поэтому сумма по итерациям равна значению).</p>
+ *
+ * <p>Запуск:</p>
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.includeScope=test -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) org.openjdk.jmh.Main ColumnarExamRecordBenchmark
+ * </pre>
+ *
+ * @version 1.0
+ * @author Маленков Станислав Владимирович
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class ColumnarExamRecordBenchmark {
+    private static final int UPDATES = 10000;
+
+    @Param({"list", "columnar"})
+    private String backend;
+
+    @Param("1000000")
+    private int students;
+
+    private String[] names;
+    private int[] scores;
+    private int[] updateIndexes;
+    private ExamRecord record;
+
+    /**
+     * Прирост занятой кучи в байтах.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class HeapCounter {
+        public long bytes;
+    }
+
+    @Setup(Level.Trial)
+    public void prepare() {
+        Random random = new Random(22);
+        names = new String[students];
+        scores = new int[students];
+        for (int i = 0; i < students; i++) {
+            names[i] = name(i);
+            scores[i] = random.nextInt(12) - 1;
+        }
+        updateIndexes = random.ints(UPDATES, 0, students).toArray();
+        record = build(names);
+    }
+
+    @Benchmark
+    public ExamRecord fill() {
+        return build(names);
+    }
+
+    @Benchmark
+    public long scanScores() {
+        long sum = 0;
+        for (Student student : record.getStudents()) {
+            if (student.isPassed()) {
+                sum += student.getScore();
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long scanNames() {
+        long length = 0;
+        for (Student student : record.getStudents()) {
+            length += student.getFullName().length();
+        }
+        return length;
+    }
+
+    @Benchmark
+    public int updateScores() {
+        for (int i = 0; i < UPDATES; i++) {
+            int index = updateIndexes[i];
+            record.getStudent(index).setScore((scores[index] + i) % 11);
+        }
+        return record.getPassedCount();
+    }
+
+    /**
+     * Заполняет ведомость новыми строками ФИО, чтобы в прирост кучи
+     * списочной ведомости вошли и строки.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    public void retainedHeap(HeapCounter counter) {
+        String[] fresh = new String[students];
+        long before = usedHeap();
+        for (int i = 0; i < students; i++) {
+            fresh[i] = name(i);
+        }
+        ExamRecord built = build(fresh);
+        fresh = null;
+        counter.bytes = usedHeap() - before;
+        Reference.reachabilityFence(built);
+    }
+
+    private ExamRecord build(String[] fullNames) {
+        ExamRecord built = "columnar".equals(backend)
+                ? new ColumnarExamRecord("Математический анализ", "20.01.2025")
+                : new ExamRecord("Математический анализ", "20.01.2025");
+        for (int i = 0; i < students; i++) {
+            built.addStudent(new Student(fullNames[i], scores[i]));
+        }
+        return built;
+    }
+
+    private static String name(int index) {
+        return "Студентов Студент Студентович " + index;
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,179 @@
+package logic;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверяет колоночную ведомость: совпадение со списочной ведомостью
+ * при случайных изменениях, представления студентов после удалений,
+ * снимки и сериализацию.
+ *
+ * @version 1.0
+ * @author Маленков Станислав Владимирович
+ */
+class ColumnarExamRecordTest {
+
+    @Test
+    void matchesListRecordUnderRandomChanges() {
+        Random random = new Random(22);
+        ExamRecord expected = new ExamRecord("Предмет", "01.01.2025");
+        ColumnarExamRecord actual = new ColumnarExamRecord("Предмет", "01.01.2025");
+        List<ExamRecord> snapshots = new ArrayList<>();
+        List<List<String>> snapshotValues = new ArrayList<>();
+
+        for (int step = 0; step < 20000; step++) {
+            int size = expected.getTotalStudents();
+            int action = random.nextInt(100);
+            if (action < 40 || size == 0) {
+                String name = random.nextInt(20) == 0 ? null : "Студент Ёжиков " + step;
+                int score = random.nextInt(50) == 0 ? 1000 + step : random.nextInt(12) - 1;
+                expected.addStudent(new Student(name, score));
+                actual.addStudent(new Student(name, score));
+            } else if (action < 60) {
+                int index = random.nextInt(size);
+                expected.removeStudent(index);
+                actual.removeStudent(index);
+            } else if (action < 80) {
+                int index = random.nextInt(size);
+                int score = random.nextInt(12) - 1;
+                expected.getStudent(index).setScore(score);
+                actual.getStudent(index).setScore(score);
+            } else if (action < 95) {
+                int index = random.nextInt(size);
+                String name = "Переименованный " + step;
+                expected.getStudent(index).setFullName(name);
+                actual.getStudent(index).setFullName(name);
+            } else if (action < 99) {
+                ExamRecord snapshot = actual.snapshot();
+                snapshots.add(snapshot);
+                snapshotValues.add(values(expected));
+            } else {
+                expected.clear();
+                actual.clear();
+            }
+            if (step % 500 == 0) {
+                assertSameRecord(expected, actual);
+            }
+        }
+        assertSameRecord(expected, actual);
+        for (int i = 0; i < snapshots.size(); i++) {
+            assertEquals(snapshotValues.get(i), values(snapshots.get(i)), "Снимок " + i);
+        }
+    }
+
+    @Test
+    void viewSurvivesRemovalOfOtherStudentsAndFailsAfterOwnRemoval() {
+        ColumnarExamRecord record = new ColumnarExamRecord("Предмет", "01.01.2025");
+        record.addStudent(new Student("Иванов Иван Иванович", 8));
+        record.addStudent(new Student("Петров Петр Петрович", 3));
+        record.addStudent(new Student("Сидоров Сидор Сидорович", 5));
+
+        Student petrov = record.getStudent(1);
+        Student sidorov = record.getStudent(2);
+        List<Student> students = record.getStudents();
+        record.removeStudent(0);
+
+        assertEquals("Петров Петр Петрович", petrov.getFullName());
+        assertEquals(petrov, record.getStudent(0));
+        assertNotSame(petrov, record.getStudent(0));
+        petrov.setScore(9);
+        assertEquals(9, record.getStudent(0).getScore());
+        assertEquals(2, record.getPassedCount());
+
+        // Ячейка удаленного студента занята новым, но старые представления на него не указывают
+        record.removeStudent(1);
+        record.addStudent(new Student("Кузнецов Кузьма Кузьмич", 2));
+        IllegalStateException error = assertThrows(IllegalStateException.class, sidorov::getScore);
+        assertEquals("Студент удален из ведомости", error.getMessage());
+        assertThrows(IllegalStateException.class, () -> students.get(2).getFullName());
+        assertThrows(IllegalStateException.class, () -> students.get(0).setScore(1));
+        assertEquals(9, students.get(1).getScore());
+        assertEquals("Кузнецов Кузьма Кузьмич", record.getStudent(1).getFullName());
+
+        record.clear();
+        assertThrows(IllegalStateException.class, petrov::getFullName);
+    }
+
+    @Test
+    void snapshotIsFrozenAndReadOnly() {
+        ColumnarExamRecord record = new ColumnarExamRecord("Предмет", "01.01.2025");
+        record.addStudent(new Student("Иванов Иван Иванович", 8));
+        record.addStudent(new Student(null, -1));
+
+        ExamRecord snapshot = record.snapshot();
+        record.getStudent(0).setScore(2);
+        record.getStudent(0).setFullName("Иванов-Петров Иван Иванович");
+        record.getStudent(1).setScore(300); // Колонка оценок расширяется до int
+        record.removeStudent(1);
+        record.setSubject("Другой предмет");
+
+        assertEquals(List.of("Иванов Иван Иванович 8", "null -1"), values(snapshot));
+        assertEquals("Предмет", snapshot.getSubject());
+        assertEquals(1, snapshot.getPassedCount());
+        assertEquals(List.of("Иванов-Петров Иван Иванович 2"), values(record));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.getStudent(0).setScore(5));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.addStudent(new Student("А", 5)));
+    }
+
+    @Test
+    void serializationAndCopyToListRecordTakeValues() throws IOException, ClassNotFoundException {
+        ColumnarExamRecord record = new ColumnarExamRecord("Предмет", "01.01.2025");
+        record.addStudent(new Student("Иванов Иван Иванович", 8));
+        record.addStudent(new Student("Петров Петр Петрович", -1));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(record);
+        }
+        ExamRecord read;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            read = (ExamRecord) in.readObject();
+        }
+        assertInstanceOf(ColumnarExamRecord.class, read);
+        assertEquals(values(record), values(read));
+        assertEquals(1, read.getStudentsWithGrade());
+
+        // Списочная ведомость получает копию: представление не ведет ревизий для снимков
+        ExamRecord list = new ExamRecord("Предмет", "01.01.2025");
+        list.addStudent(record.getStudent(0));
+        assertFalse(list.getStudent(0).isView());
+        record.getStudent(0).setScore(3);
+        assertEquals(8, list.getStudent(0).getScore());
+        assertTrue(record.getStudent(0).isView());
+    }
+
+    private static void assertSameRecord(ExamRecord expected, ExamRecord actual) {
+        assertEquals(values(expected), values(actual));
+        assertEquals(expected.getTotalStudents(), actual.getTotalStudents());
+        assertEquals(expected.getStudentsWithGrade(), actual.getStudentsWithGrade());
+        assertEquals(expected.getPassedCount(), actual.getPassedCount());
+        assertEquals(expected.getFailedCount(), actual.getFailedCount());
+        for (int i = 0; i < expected.getTotalStudents(); i++) {
+            assertEquals(expected.getStudent(i).isPassed(), actual.getStudent(i).isPassed());
+            assertEquals(expected.getStudent(i).hasGrade(), actual.getStudent(i).hasGrade());
+        }
+    }
+
+    private static List<String> values(ExamRecord record) {
+        List<String> values = new ArrayList<>();
+        for (Student student : record.getStudents()) {
+            values.add(student.getFullName() + " " + student.getScore());
+        }
+        return values;
+    }
+}
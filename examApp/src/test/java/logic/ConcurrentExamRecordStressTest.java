@@ -0,0 +1,136 @@
+package logic;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Нагрузочная проверка {@link ConcurrentExamRecord}: несколько потоков меняют
+ * состав, оценки и ФИО, другие читают статистику и снимки. Статистика снимка
+ * должна совпадать с его студентами, а повторное чтение снимка - с первым.
+ * Другая ведомость по ходу проверки забирает студентов, и статистика
+ * переходит с гистограммы на проход по списку во время чтения.
+ *
+ * @version 1.1
+ * @author Маленков Станислав Владимирович
+ */
+class ConcurrentExamRecordStressTest {
+    private static final long DURATION_MILLIS = 2000;
+
+    @Test
+    void snapshotsStayConsistentUnderConcurrentEdits() throws InterruptedException {
+        ConcurrentExamRecord record = new ConcurrentExamRecord("Предмет", "01.01.2025");
+        ConcurrentExamRecord other = new ConcurrentExamRecord("Другой предмет", "01.01.2025");
+        for (int i = 0; i < 2000; i++) {
+            record.addStudent(new Student("Студент " + i, i % 11));
+        }
+
+        AtomicBoolean stop = new AtomicBoolean();
+        Queue<Throwable> errors = new ConcurrentLinkedQueue<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Random random = new Random(i);
+            threads.add(new Thread(() -> run(stop, errors, () -> edit(record, other, random))));
+        }
+        for (int i = 0; i < 3; i++) {
+            threads.add(new Thread(() -> run(stop, errors, () -> read(record))));
+        }
+
+        threads.forEach(Thread::start);
+        Thread.sleep(DURATION_MILLIS);
+        stop.set(true);
+        for (Thread thread : threads) {
+            thread.join(10_000);
+            assertFalse(thread.isAlive(), "Поток не завершился: возможна взаимная блокировка");
+        }
+
+        assertTrue(errors.isEmpty(), () -> errors.peek().toString());
+        assertTrue(record.isShared(), "Другая ведомость не забрала ни одного студента");
+        checkStatistics(record);
+        checkStatistics(record.snapshot());
+    }
+
+    private static void edit(ConcurrentExamRecord record, ConcurrentExamRecord other, Random random) {
+        int size = record.getTotalStudents();
+        int operation = random.nextInt(100);
+        try {
+            if (operation < 10) {
+                record.addStudent(new Student("Новый", random.nextInt(12) - 1));
+            } else if (operation < 20) {
+                record.removeStudent(random.nextInt(Math.max(1, size)));
+            } else if (operation < 75) {
+                record.getStudent(random.nextInt(Math.max(1, size))).setScore(random.nextInt(12) - 1);
+            } else if (operation < 95) {
+                record.getStudent(random.nextInt(Math.max(1, size))).setFullName("Имя " + random.nextInt());
+            } else if (operation < 99) {
+                record.setSubject("Предмет " + operation);
+            } else if (random.nextInt(50) == 0) {
+                other.addStudent(record.getStudent(random.nextInt(Math.max(1, size)))); // Ведомость становится общей
+            }
+        } catch (IndexOutOfBoundsException e) {
+            // Студента удалил другой поток
+        }
+    }
+
+    private static void read(ConcurrentExamRecord record) {
+        assertTrue(record.getFailedCount() >= 0);
+        assertTrue(record.getStudentsWithoutGrade() >= 0);
+
+        ExamRecord snapshot = record.snapshot();
+        List<String> first = values(snapshot);
+        checkStatistics(snapshot);
+        Thread.yield(); // Даем писателям изменить студентов снимка
+        assertEquals(first, values(snapshot));
+    }
+
+    private static List<String> values(ExamRecord record) {
+        List<String> values = new ArrayList<>();
+        for (Student student : record.getStudents()) {
+            values.add(student.getFullName() + " " + student.getScore());
+        }
+        return values;
+    }
+
+    private static void checkStatistics(ExamRecord record) {
+        List<Student> students = record.getStudents();
+        ScoreHistogram counted = new ScoreHistogram();
+        int withGrade = 0;
+        int passed = 0;
+        for (Student student : students) {
+            counted.add(student.getScore(), 1);
+            if (student.hasGrade()) {
+                withGrade++;
+                if (student.isPassed()) {
+                    passed++;
+                }
+            }
+        }
+
+        ScoreHistogram histogram = record.getHistogram();
+        for (int score = 0; score <= 10; score++) {
+            assertEquals(counted.getCount(score), histogram.getCount(score), "Оценка " + score);
+        }
+        assertEquals(students.size(), record.getTotalStudents());
+        assertEquals(withGrade, record.getStudentsWithGrade());
+        assertEquals(passed, record.getPassedCount());
+    }
+
+    private static void run(AtomicBoolean stop, Queue<Throwable> errors, Runnable step) {
+        try {
+            while (!stop.get()) {
+                step.run();
+            }
+        } catch (Throwable t) {
+            errors.add(t);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package logic;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Сравнение обмена ведомостью через CSV ({@link CsvExportService}) и xlsx
+ * ({@link ExcelExportService}): время записи и чтения файла с диска.
+ * Файлы xlsx пишутся и читаются так же, как в программе для больших
+ * ведомостей: потоковой книгой SXSSF и SAX-парсером, без кэша импорта.
+ *
+ * <p>Запуск:</p>
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.includeScope=test -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) org.openjdk.jmh.Main CsvBenchmark
+ * </pre>
+ *
+ * @version 1.0
+ * @author Маленков Станислав Владимирович
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CsvBenchmark {
+    private static final String EMAIL = "dean@example.org";
+
+    @Param({"10000", "100000"})
+    private int students;
+
+    private ExamRecord record;
+    private Path directory;
+    private String csvFile;
+    private String xlsxFile;
+
+    @Setup(Level.Trial)
+    public void prepare() throws IOException {
+        Random random = new Random(15);
+        record = new ExamRecord("Математический анализ", "20.01.2025");
+        for (int i = 0; i < students; i++) {
+            record.addStudent(new Student("Студентов Студент Студентович " + i, random.nextInt(12) - 1));
+        }
+
+        directory = Files.createTempDirectory("csv-benchmark");
+        csvFile = directory.resolve("read.csv").toString();
+        xlsxFile = directory.resolve("read.xlsx").toString();
+        CsvExportService.writeCsv(record, EMAIL, csvFile);
+        ExcelExportService.writeExcel(record, EMAIL, xlsxFile);
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanUp() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public void writeCsv() throws IOException {
+        CsvExportService.writeCsv(record, EMAIL, directory.resolve("write.csv").toString());
+    }
+
+    @Benchmark
+    public void writeXlsx() throws IOException {
+        ExcelExportService.writeExcel(record, EMAIL, directory.resolve("write.xlsx").toString());
+    }
+
+    @Benchmark
+    public ExcelImportResult readCsv() throws IOException {
+        return CsvExportService.readCsvFile(csvFile, null);
+    }
+
+    @Benchmark
+    public ExcelImportResult readXlsx() throws Exception {
+        return XlsxStreamingImporter.importFirstSheet(xlsxFile, null);
+    }
+}
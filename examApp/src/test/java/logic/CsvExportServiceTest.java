@@ -0,0 +1,122 @@
+package logic;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверяет запись и чтение ведомостей CSV и TSV: поля в кавычках,
+ * переводы строки внутри полей, \r\n на границе блоков чтения,
+ * последнюю строку без перевода строки и файлы не в UTF-8.
+ *
+ * @version 1.0
+ * @author Маленков Станислав Владимирович
+ */
+class CsvExportServiceTest {
+    private static final String BOM = "\uFEFF";
+    private static final String HEADER = "№,ФИО студента,Оценка (0-10),Результат\r\n";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void roundTripKeepsQuotedFieldsAndEmbeddedNewlines() throws IOException {
+        ExamRecord record = new ExamRecord("Анализ, \"углубленный\"", "20.01.2025");
+        record.addStudent(new Student("Иванов, Иван Иванович", 8));
+        record.addStudent(new Student("Петров \"Петя\" Петрович", 3));
+        record.addStudent(new Student("Сидоров\nСидор Сидорович", -1));
+        record.addStudent(new Student("Кузнецов\r\nКузьма;\tКузьмич", 10));
+        for (int i = 0; i < 3000; i++) { // Больше нескольких блоков чтения, кириллица на их границах
+            record.addStudent(new Student("Студентов Студент Студентович " + i, i % 12 - 1));
+        }
+
+        for (String name : new String[]{"sheet.csv", "sheet.tsv"}) {
+            Path file = directory.resolve(name);
+            CsvExportService.writeCsv(record, "dean@example.org", file.toString());
+            assertTrue(Files.size(file) > 2 * CsvExportService.BYTE_BUFFER_SIZE);
+
+            List<Student> streamed = new ArrayList<>();
+            ExcelImportResult result = CsvExportService.readCsvFile(file.toString(), streamed::add);
+            assertEquals(record.getSubject(), result.getSubject());
+            assertEquals(record.getDate(), result.getDate());
+            assertEquals("dean@example.org", result.getEmail());
+            assertEquals(values(record.getStudents()), values(result.getStudents()), name);
+            assertEquals(values(result.getStudents()), values(streamed));
+        }
+    }
+
+    @Test
+    void crlfSplitAcrossBufferBoundaries() throws IOException {
+        // \r - последний символ блока разбора (или блока чтения файла), \n - первый символ следующего.
+        // Лишняя пустая строка сдвинула бы строку email за пределы строк метаданных (0-10)
+        readWithSubjectEndingAt(CsvExportService.CHAR_BUFFER_SIZE - 1, false);
+        readWithSubjectEndingAt(CsvExportService.BYTE_BUFFER_SIZE - 1, true);
+    }
+
+    @Test
+    void lastRowWithoutNewlineIsRead() throws IOException {
+        String text = BOM + HEADER +
+                "1,Иванов Иван Иванович,8\r\n" +
+                "2,\"Петров, Петр Петрович\"";
+
+        ExcelImportResult result = read(text.getBytes(StandardCharsets.UTF_8));
+        assertEquals(List.of("Иванов Иван Иванович 8", "Петров, Петр Петрович -1"),
+                values(result.getStudents()));
+    }
+
+    @Test
+    void invalidUtf8IsRejected() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.writeBytes((BOM + HEADER + "1,Иванов ").getBytes(StandardCharsets.UTF_8));
+        bytes.write(0xC3); // Начало двухбайтовой последовательности без продолжения
+        bytes.write('(');
+        bytes.writeBytes(",8\r\n".getBytes(StandardCharsets.UTF_8));
+
+        IOException error = assertThrows(IOException.class, () -> read(bytes.toByteArray()));
+        assertTrue(error.getMessage().contains("UTF-8"), error.getMessage());
+    }
+
+    /**
+     * Читает файл, в котором \r после предмета стоит на указанной позиции
+     * (в символах или в байтах UTF-8 от начала файла), а email - в строке 10.
+     */
+    private void readWithSubjectEndingAt(int position, boolean inBytes) throws IOException {
+        String prefix = BOM + "Предмет:,Subject ";
+        int length = inBytes ? prefix.getBytes(StandardCharsets.UTF_8).length : prefix.length();
+        String subject = "Subject " + "x".repeat(position - length);
+        String text = BOM + "Предмет:," + subject + "\r\n" +
+                "\r\n".repeat(9) +
+                "Email:,dean@example.org\r\n" +
+                HEADER +
+                "1,Иванов Иван Иванович,8\r\n";
+
+        ExcelImportResult result = read(text.getBytes(StandardCharsets.UTF_8));
+        assertEquals(subject, result.getSubject());
+        assertEquals("dean@example.org", result.getEmail(), "Перевод строки на границе блоков прочитан дважды");
+        assertEquals(List.of("Иванов Иван Иванович 8"), values(result.getStudents()));
+    }
+
+    private ExcelImportResult read(byte[] content) throws IOException {
+        Path file = Files.write(directory.resolve("input.csv"), content);
+        return CsvExportService.readCsvFile(file.toString(), null);
+    }
+
+    private static List<String> values(List<Student> students) {
+        List<String> values = new ArrayList<>();
+        for (Student student : students) {
+            values.add(student.getFullName() + " " + student.getScore());
+        }
+        return values;
+    }
+}
@@ -0,0 +1,185 @@
+package logic;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверяет привязку журнала правок к базовому файлу, перенос правок
+ * после снимка на сохраненный файл, длинные строки и поврежденные записи.
+ *
+ * @version 1.1
+ * @author Маленков Станислав Владимирович
+ */
+class EditJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void rebaseKeepsOnlyEditsAfterMark() throws IOException {
+        File journalFile = directory.resolve("edits.journal").toFile();
+        File saved = Files.writeString(directory.resolve("saved.exam"), "снимок").toFile();
+
+        try (EditJournal journal = new EditJournal(journalFile)) {
+            journal.logStudentAdded("Иванов Иван Иванович", 8);
+            journal.logStudentAdded("Петров Петр Петрович", 5);
+            EditJournal.Mark mark = journal.mark(); // Снимок ушел на сохранение
+            journal.logScoreChanged(1, 9);
+            journal.logStudentAdded("Сидоров Сидор Сидорович", -1);
+
+            journal.rebase(saved, null, mark);
+            journal.logNameChanged(2, "Сидоров С. С.");
+        }
+
+        try (EditJournal journal = new EditJournal(journalFile)) {
+            assertEquals(saved.getAbsolutePath(), journal.getBasePath());
+            assertTrue(journal.isBaseUnchanged());
+            assertEquals(List.of("score 1 9", "add Сидоров Сидор Сидорович -1", "name 2 Сидоров С. С."),
+                    replay(journal));
+        }
+    }
+
+    @Test
+    void rebaseAfterNewBaseDoesNothing() throws IOException {
+        File journalFile = directory.resolve("edits.journal").toFile();
+        File saved = Files.writeString(directory.resolve("saved.exam"), "снимок").toFile();
+        File loaded = Files.writeString(directory.resolve("loaded.exam"), "другой файл").toFile();
+
+        try (EditJournal journal = new EditJournal(journalFile)) {
+            journal.logStudentAdded("Иванов Иван Иванович", 8);
+            EditJournal.Mark mark = journal.mark();
+            journal.reset(loaded, null); // Пока шло сохранение, загружен другой файл
+            journal.logScoreChanged(0, 4);
+
+            journal.rebase(saved, null, mark);
+            assertEquals(loaded.getAbsolutePath(), journal.getBasePath());
+            assertEquals(List.of("score 0 4"), replay(journal));
+        }
+    }
+
+    @Test
+    void changedBaseIsDetected() throws IOException {
+        File journalFile = directory.resolve("edits.journal").toFile();
+        Path base = Files.writeString(directory.resolve("base.exam"), "исходное содержимое");
+
+        try (EditJournal journal = new EditJournal(journalFile)) {
+            journal.reset(base.toFile(), null);
+            journal.logStudentRemoved(0);
+        }
+        Files.writeString(base, "содержимое, сохраненное другой программой");
+
+        try (EditJournal journal = new EditJournal(journalFile)) {
+            assertTrue(journal.hasEdits());
+            assertFalse(journal.isBaseUnchanged());
+        }
+    }
+
+    @Test
+    void namesLongerThanWriteUtfLimitAreReplayed() throws IOException {
+        File journalFile = directory.resolve("edits.journal").toFile();
+        String longName = "Я".repeat(40_000); // 80 000 байт UTF-8 - больше предела writeUTF
+
+        try (EditJournal journal = new EditJournal(journalFile)) {
+            journal.logStudentAdded(longName, 7);
+            journal.logNameChanged(0, longName + "!");
+        }
+
+        try (EditJournal journal = new EditJournal(journalFile)) {
+            assertEquals(List.of("add " + longName + " 7", "name 0 " + longName + "!"), replay(journal));
+        }
+    }
+
+    @Test
+    void corruptRecordDropsItAndAllLaterRecords() throws IOException {
+        File journalFile = directory.resolve("edits.journal").toFile();
+        long firstEnd;
+
+        try (EditJournal journal = new EditJournal(journalFile)) {
+            journal.logStudentAdded("Иванов Иван Иванович", 8);
+            journal.flush();
+            firstEnd = journalFile.length();
+            journal.logStudentAdded("Петров Петр Петрович", 5);
+            journal.logScoreChanged(0, 9);
+        }
+        try (RandomAccessFile raw = new RandomAccessFile(journalFile, "rw")) {
+            long position = firstEnd + 4 + 1 + 1 + 2; // Длина, операция, длина имени, первые байты имени
+            raw.seek(position);
+            int value = raw.read();
+            raw.seek(position);
+            raw.write(value ^ 0xFF);
+        }
+
+        // Следующие записи ссылаются на строки с учетом поврежденной, поэтому отбрасываются вместе с ней
+        try (EditJournal journal = new EditJournal(journalFile)) {
+            assertEquals(firstEnd, journalFile.length());
+            assertEquals(1, journal.getEditCount());
+            journal.logScoreChanged(0, 4);
+        }
+        try (EditJournal journal = new EditJournal(journalFile)) {
+            assertEquals(List.of("add Иванов Иван Иванович 8", "score 0 4"), replay(journal));
+        }
+    }
+
+    @Test
+    void failedWriteIsReportedAndStopsJournalUntilReset() throws IOException {
+        File journalFile = directory.resolve("edits.journal").toFile();
+        AtomicInteger failures = new AtomicInteger();
+
+        try (EditJournal journal = new EditJournal(journalFile)) {
+            journal.setFailureListener(e -> failures.incrementAndGet());
+            journal.logStudentAdded("Иванов Иван Иванович", 8);
+            journal.logNameChanged(0, "Я".repeat(1 << 20)); // Длиннее допустимой строки
+            journal.logScoreChanged(0, 3);
+            assertEquals(1, failures.get());
+            assertEquals(1, journal.getEditCount());
+
+            journal.reset(null, null);
+            journal.logScoreChanged(0, 6);
+            assertEquals(List.of("score 0 6"), replay(journal));
+        }
+        assertEquals(1, failures.get());
+    }
+
+    private static List<String> replay(EditJournal journal) throws IOException {
+        List<String> operations = new ArrayList<>();
+        journal.replay(new EditJournal.Handler() {
+            public void studentAdded(String fullName, int score) {
+                operations.add("add " + fullName + " " + score);
+            }
+
+            public void studentRemoved(int index) {
+                operations.add("remove " + index);
+            }
+
+            public void nameChanged(int index, String fullName) {
+                operations.add("name " + index + " " + fullName);
+            }
+
+            public void scoreChanged(int index, int score) {
+                operations.add("score " + index + " " + score);
+            }
+
+            public void cleared() {
+                operations.add("clear");
+            }
+
+            public void fieldChanged(int field, String value) {
+                operations.add("field " + field + " " + value);
+            }
+        });
+        return operations;
+    }
+}
@@ -0,0 +1,24 @@
+package logic;
+
+/**
+ * Доступ тестов других пакетов к внутреннему состоянию ведомости.
+ *
+ * @version 1.0
+ * @author Маленков Станислав Владимирович
+ */
+public final class ExamRecordAccess {
+
+    private ExamRecordAccess() {
+    }
+
+    /**
+     * Проверяет, считает ли ведомость статистику проходом по списку
+     * вместо гистограммы.
+     *
+     * @param record - ведомость
+     * @return boolean - true если гистограмма не ведется
+     */
+    public static boolean isShared(ExamRecord record) {
+        return record.isShared();
+    }
+}
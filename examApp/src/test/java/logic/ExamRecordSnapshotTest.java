@@ -0,0 +1,62 @@
+package logic;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Проверяет студентов снимка ведомости и общие для всех ведомостей
+ * часы снимков ({@link SnapshotClock}).
+ *
+ * @version 1.0
+ * @author Маленков Станислав Владимирович
+ */
+class ExamRecordSnapshotTest {
+
+    @Test
+    void snapshotReturnsSameStudentOnEveryRead() {
+        ExamRecord record = new ExamRecord("Предмет", "01.01.2025");
+        record.addStudent(new Student("Иванов Иван Иванович", 8));
+        record.addStudent(new Student("Петров Петр Петрович", 3));
+
+        ExamRecord snapshot = record.snapshot();
+        record.getStudent(0).setScore(2);
+
+        Student first = snapshot.getStudent(0);
+        assertSame(first, snapshot.getStudent(0));
+        assertSame(first, snapshot.getStudents().get(0));
+        assertSame(first, snapshot.getStudents().iterator().next());
+        assertEquals(8, first.getScore());
+    }
+
+    @Test
+    void snapshotOfOneRecordKeepsRevisionsOfAnotherUntilCollected() throws InterruptedException {
+        ExamRecord other = new ExamRecord("Другой предмет", "01.01.2025");
+        Student student = new Student("Иванов Иван Иванович", 8);
+        other.addStudent(student);
+        student.setScore(7);
+        assertEquals(0, student.getRevisionCount());
+
+        // Часы общие: снимок ведомости без этого студента тоже держит его прежнее значение
+        ExamRecord record = new ExamRecord("Предмет", "01.01.2025");
+        ExamRecord snapshot = record.snapshot();
+        student.setScore(6);
+        assertEquals(1, student.getRevisionCount());
+
+        WeakReference<ExamRecord> probe = new WeakReference<>(snapshot);
+        snapshot = null;
+        for (int attempt = 0; attempt < 100 && student.getRevisionCount() > 0; attempt++) {
+            System.gc();
+            Thread.sleep(10); // Ссылка попадает в очередь в отдельном потоке
+            student.setScore(5 + attempt % 2); // Следующее изменение отбрасывает ненужную ревизию
+        }
+        assertNull(probe.get(), "Снимок не собран сборщиком мусора");
+        assertEquals(0, student.getRevisionCount());
+        assertEquals(List.of(student), other.getStudents());
+    }
+}
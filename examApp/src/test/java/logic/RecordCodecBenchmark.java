@@ -0,0 +1,106 @@
+package logic;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение {@link RecordCodec} со стандартной сериализацией Java
+ * на списке студентов: время записи и чтения.
+ *
+ * <p>Запуск:</p>
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.includeScope=test -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) org.openjdk.jmh.Main RecordCodecBenchmark
+ * </pre>
+ *
+ * @version 1.1
+ * @author Маленков Станислав Владимирович
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecordCodecBenchmark {
+
+    @Param({"1000", "100000"})
+    private int students;
+
+    @Param({"short", "long"})
+    private String names;
+
+    private ArrayList<Student> list;
+    private byte[] codecBytes;
+    private byte[] serializedBytes;
+
+    @Setup(Level.Trial)
+    public void prepare() throws IOException {
+        Random random = new Random(42);
+        list = new ArrayList<>(students);
+        for (int i = 0; i < students; i++) {
+            String name = names.equals("long")
+                    ? "Константинопольский-Преображенский Александр Вячеславович " + i
+                    : "Иванов И. " + i;
+            list.add(new Student(name, random.nextInt(12) - 1));
+        }
+
+        codecBytes = writeCodec();
+        serializedBytes = writeSerialized();
+    }
+
+    @Benchmark
+    public byte[] writeCodec() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            RecordCodec.writeStudents(out, list);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] writeSerialized() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(list);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public List<Student> readCodec() throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(codecBytes))) {
+            return RecordCodec.readStudents(in);
+        }
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public List<Student> readSerialized() throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serializedBytes))) {
+            return (List<Student>) in.readObject();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package logic;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Проверяет чтение и запись {@link RecordCodec},
+ * в том числе поврежденные длины в потоке.
+ *
+ * @version 1.0
+ * @author Маленков Станислав Владимирович
+ */
+class RecordCodecTest {
+
+    @Test
+    void studentsRoundTrip() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        RecordCodec.writeStudents(out, List.of(new Student("Иванов Иван Иванович", 8),
+                new Student(null, -1), new Student("Петров Петр Петрович", 1000)));
+
+        List<Student> read = RecordCodec.readStudents(input(bytes.toByteArray()));
+        assertEquals(3, read.size());
+        assertEquals("Иванов Иван Иванович", read.get(0).getFullName());
+        assertNull(read.get(1).getFullName());
+        assertEquals(1000, read.get(2).getScore());
+    }
+
+    @Test
+    void corruptStringLengthIsRejected() {
+        // Длина 0x7FFFFFFF в 7-битной записи, за ней данных нет
+        byte[] corrupt = {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07};
+        assertThrows(IOException.class, () -> RecordCodec.readString(input(corrupt)));
+    }
+
+    @Test
+    void corruptStudentCountIsRejected() {
+        byte[] corrupt = {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07};
+        assertThrows(IOException.class, () -> RecordCodec.readStudents(input(corrupt)));
+    }
+
+    @Test
+    void corruptNameLengthIsRejected() {
+        // Один студент, длина имени около 256 МБ
+        byte[] corrupt = {0x01, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x01};
+        assertThrows(IOException.class, () -> RecordCodec.readStudents(input(corrupt)));
+    }
+
+    private static DataInputStream input(byte[] bytes) {
+        return new DataInputStream(new ByteArrayInputStream(bytes));
+    }
+}
@@ -0,0 +1,300 @@
+package logic;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение чтения строк импорта: {@link SheetRowClassifier} с числовыми
+ * ячейками и сопоставлением ключевых слов без новых строк против прежнего
+ * способа (каждая ячейка - строка, toLowerCase, matches("\\d+"),
+ * Integer.parseInt с исключением). Прежний способ воспроизведен в {@link Legacy}.
+ *
+ * <p>Лист генерируется в памяти: шапка, заголовок таблицы, студенты
+ * (номер и оценка - числа, у части студентов оценки нет) и итоговые строки.
+ * {@code classify*} разбирают заранее прочитанные строки, {@code readSheet*}
+ * читают лист POI и разбирают его за один проход.</p>
+ *
+ * <p>Запуск (объем выделенной памяти на строку - gc.alloc.rate.norm, деленный
+ * на число строк):</p>
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.includeScope=test -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) org.openjdk.jmh.Main SheetRowClassifierBenchmark -prof gc
+ * </pre>
+ *
+ * @version 1.0
+ * @author Маленков Станислав Владимирович
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SheetRowClassifierBenchmark {
+
+    @Param({"100000"})
+    private int students;
+
+    private XSSFWorkbook workbook;
+    private Sheet sheet;
+    private List<SheetRow> numericRows; // Строки в нынешнем виде: числа - числами
+    private List<SheetRow> textRows;    // Строки в прежнем виде: все ячейки - строки
+
+    @Setup(Level.Trial)
+    public void prepare() {
+        workbook = new XSSFWorkbook();
+        sheet = workbook.createSheet("Ведомость");
+        Random random = new Random(4);
+        int rowNum = 0;
+
+        textRow(sheet.createRow(rowNum++), "Предмет:", "Математический анализ");
+        textRow(sheet.createRow(rowNum++), "Дата аттестации:", "20.01.2025");
+        textRow(sheet.createRow(rowNum++), "Email:", "dean@example.org");
+        rowNum++;
+        textRow(sheet.createRow(rowNum++), "№", "ФИО", "Оценка", "Результат");
+        for (int i = 1; i <= students; i++) {
+            Row row = sheet.createRow(rowNum++);
+            row.createCell(0).setCellValue(i);
+            row.createCell(1).setCellValue("Студентов Студент Студентович " + i);
+            int score = random.nextInt(12) - 1;
+            if (score >= 0) {
+                row.createCell(2).setCellValue(score);
+                row.createCell(3).setCellValue(score >= Student.PASSING_SCORE ? "Сдал" : "Не сдал");
+            } else {
+                row.createCell(2).setCellValue("Нет оценки");
+                row.createCell(3).setCellValue("Ожидает оценки");
+            }
+        }
+        rowNum++;
+        textRow(sheet.createRow(rowNum++), "Итого студентов:", String.valueOf(students));
+        textRow(sheet.createRow(rowNum), "Сдали:", "-");
+
+        numericRows = new ArrayList<>();
+        textRows = new ArrayList<>();
+        for (Row row : sheet) {
+            SheetRow numeric = new SheetRow();
+            SheetRow text = new SheetRow();
+            numeric.reset(row.getRowNum());
+            text.reset(row.getRowNum());
+            for (int i = 0; i < row.getLastCellNum(); i++) {
+                Cell cell = row.getCell(i);
+                if (cell == null) continue;
+                if (cell.getCellType() == CellType.NUMERIC) {
+                    numeric.setNumber(i, cell.getNumericCellValue());
+                } else {
+                    numeric.setCell(i, cell.getStringCellValue().trim());
+                }
+                text.setCell(i, Legacy.getCellValueAsString(cell));
+            }
+            numericRows.add(numeric);
+            textRows.add(text);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws IOException {
+        workbook.close();
+    }
+
+    @Benchmark
+    public ExcelImportResult classify() {
+        SheetRowClassifier classifier = new SheetRowClassifier();
+        for (SheetRow row : numericRows) {
+            classifier.accept(row);
+        }
+        return classifier.finish();
+    }
+
+    @Benchmark
+    public ExcelImportResult classifyLegacy() {
+        Legacy classifier = new Legacy();
+        for (SheetRow row : textRows) {
+            classifier.accept(row);
+        }
+        return classifier.finish();
+    }
+
+    @Benchmark
+    public ExcelImportResult readSheet() {
+        return ExcelExportService.readSheet(sheet, null);
+    }
+
+    @Benchmark
+    public ExcelImportResult readSheetLegacy() {
+        Legacy classifier = new Legacy();
+        SheetRow sheetRow = new SheetRow();
+        for (Row row : sheet) {
+            sheetRow.reset(row.getRowNum());
+            for (int i = 0; i < row.getLastCellNum(); i++) {
+                Cell cell = row.getCell(i);
+                if (cell != null) {
+                    sheetRow.setCell(i, Legacy.getCellValueAsString(cell));
+                }
+            }
+            classifier.accept(sheetRow);
+        }
+        return classifier.finish();
+    }
+
+    private static void textRow(Row row, String... values) {
+        for (int i = 0; i < values.length; i++) {
+            row.createCell(i).setCellValue(values[i]);
+        }
+    }
+
+    /**
+     * Прежний разбор строк (до чтения чисел напрямую): метаданные и заголовок
+     * в первых 21 строке, затем строки таблицы. Проверки повторяют прежний код
+     * дословно, вместе с выделением памяти на каждую ячейку.
+     */
+    private static final class Legacy {
+        private final ExcelImportResult result = new ExcelImportResult();
+        private final List<Student> students = new ArrayList<>();
+        private boolean table;
+
+        void accept(SheetRow row) {
+            if (!table) {
+                if (row.getRowNum() <= 10 && readMetadataRow(row)) return;
+                if (isTableHeader(row)) {
+                    table = true;
+                }
+                return;
+            }
+            if (isSummaryRow(row) || isEmptyRow(row)) return;
+
+            Student student = readStudentFromRow(row);
+            if (student != null) {
+                students.add(student);
+            }
+        }
+
+        ExcelImportResult finish() {
+            result.setStudents(students);
+            return result;
+        }
+
+        private boolean readMetadataRow(SheetRow row) {
+            if (!row.hasCell(0)) return false;
+
+            String cellValue = row.getCell(0).toLowerCase();
+            if (cellValue.contains("предмет:")) {
+                result.setSubject(row.getCell(1));
+            } else if (cellValue.contains("дата") && cellValue.contains("аттестации:")) {
+                result.setDate(row.getCell(1));
+            } else if (cellValue.contains("email") || cellValue.contains("почта")) {
+                result.setEmail(row.getCell(1));
+            } else {
+                return false;
+            }
+            return true;
+        }
+
+        private static boolean isTableHeader(SheetRow row) {
+            String[] expectedHeaders = {"№", "фио", "оценка", "результат"};
+            int matchCount = 0;
+            for (int i = 0; i < Math.min(4, row.getCellCount()); i++) {
+                if (row.hasCell(i)) {
+                    String cellValue = row.getCell(i).toLowerCase();
+                    for (String header : expectedHeaders) {
+                        if (cellValue.contains(header)) {
+                            matchCount++;
+                            break;
+                        }
+                    }
+                }
+            }
+            return matchCount >= 2;
+        }
+
+        private static boolean isSummaryRow(SheetRow row) {
+            if (row.hasCell(0)) {
+                String value = row.getCell(0).toLowerCase();
+                return value.contains("итог") || value.contains("всего") ||
+                        value.contains("сдали") || value.contains("не сдали");
+            }
+            return false;
+        }
+
+        private static boolean isEmptyRow(SheetRow row) {
+            for (int i = 0; i < row.getCellCount(); i++) {
+                if (!row.getCell(i).trim().isEmpty()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static Student readStudentFromRow(SheetRow row) {
+            int nameColumn = 1;
+            if (!row.hasCell(nameColumn)) {
+                nameColumn = 0;
+                if (!row.hasCell(nameColumn)) return null;
+            }
+
+            String fullName = row.getCell(nameColumn).trim();
+            if (fullName.isEmpty() || fullName.matches("\\d+") ||
+                    fullName.toLowerCase().contains("фио") ||
+                    fullName.toLowerCase().contains("итог")) {
+                return null;
+            }
+
+            int score = -1;
+            for (int i = 2; i <= 3; i++) {
+                if (row.hasCell(i)) {
+                    String scoreText = row.getCell(i).trim();
+                    if (!scoreText.isEmpty() && !scoreText.equalsIgnoreCase("нет оценки")) {
+                        try {
+                            score = Integer.parseInt(scoreText);
+                            if (score >= 0 && score <= 10) {
+                                break;
+                            }
+                        } catch (NumberFormatException e) {
+                            // Пропускаем, пробуем следующую колонку
+                        }
+                    }
+                }
+            }
+            return new Student(fullName, score);
+        }
+
+        static String getCellValueAsString(Cell cell) {
+            switch (cell.getCellType()) {
+                case STRING:
+                    return cell.getStringCellValue().trim();
+                case NUMERIC:
+                    if (DateUtil.isCellDateFormatted(cell)) {
+                        return cell.getDateCellValue().toString();
+                    }
+                    double value = cell.getNumericCellValue();
+                    return value == Math.floor(value) ? String.valueOf((int) value) : String.valueOf(value);
+                case BOOLEAN:
+                    return String.valueOf(cell.getBooleanCellValue());
+                default:
+                    return "";
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package logic;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Сверяет {@link SnapshotList} с {@link ArrayList} на случайных изменениях
+ * и проверяет, что ранее выданные снимки при этом не меняются.
+ *
+ * @version 1.0
+ * @author Маленков Станислав Владимирович
+ */
+class SnapshotListTest {
+
+    @Test
+    void randomEditsKeepSnapshotsIntact() {
+        Random random = new Random(24);
+        SnapshotList<Integer> list = new SnapshotList<>();
+        List<Integer> expected = new ArrayList<>();
+        List<List<Integer>> snapshots = new ArrayList<>();
+        List<List<Integer>> contents = new ArrayList<>();
+        int next = 0;
+
+        for (int step = 0; step < 200_000; step++) {
+            // Список растет до нескольких тысяч и сжимается, чтобы блоки делились и объединялись
+            int operation = random.nextInt(100);
+            if ((step / 20_000) % 2 == 1 && operation < 50) {
+                operation = 55; // Сжатие: половина операций - удаление
+            }
+            if (operation < 40 || expected.isEmpty()) {
+                list.add(next);
+                expected.add(next++);
+            } else if (operation < 55) {
+                int index = random.nextInt(expected.size() + 1);
+                list.add(index, next);
+                expected.add(index, next++);
+            } else if (operation < 75) {
+                int index = random.nextInt(expected.size());
+                assertEquals(expected.remove(index), list.remove(index));
+            } else if (operation < 90) {
+                int index = random.nextInt(expected.size());
+                assertEquals(expected.set(index, next), list.set(index, next));
+                next++;
+            } else if (operation < 99) {
+                snapshots.add(list.snapshot());
+                contents.add(new ArrayList<>(expected));
+            } else if (random.nextInt(20) == 0) {
+                list.clear();
+                expected.clear();
+            } else {
+                List<Integer> added = List.of(next, next + 1, next + 2);
+                next += 3;
+                list.addAll(added);
+                expected.addAll(added);
+            }
+
+            if (step % 1000 == 0) {
+                assertEquals(expected, list);
+                assertEquals(expected, list.snapshot());
+            }
+        }
+
+        assertEquals(expected, list);
+        for (int i = 0; i < snapshots.size(); i++) {
+            List<Integer> snapshot = snapshots.get(i);
+            assertEquals(contents.get(i), snapshot);
+            assertEquals(contents.get(i), new ArrayList<>(snapshot)); // Проход итератором снимка
+        }
+    }
+}
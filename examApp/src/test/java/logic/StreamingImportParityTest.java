@@ -0,0 +1,137 @@
+package logic;
+
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Проверяет, что потоковый импорт (.xlsx и .xls) дает тот же результат,
+ * что и обычный импорт через загруженную книгу.
+ *
+ * @version 1.0
+ * @author Маленков Станислав Владимирович
+ */
+class StreamingImportParityTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void xlsxMatchesWorkbookImport() throws Exception {
+        String path = writeStatement(new XSSFWorkbook(), "statement.xlsx");
+        assertSameResult(ExcelExportService.readWorkbook(ExcelExportService.openWorkbook(path, true), null),
+                XlsxStreamingImporter.importFirstSheet(path, null));
+    }
+
+    @Test
+    void xlsMatchesWorkbookImport() throws Exception {
+        String path = writeStatement(new HSSFWorkbook(), "statement.xls");
+        assertSameResult(ExcelExportService.readWorkbook(ExcelExportService.openWorkbook(path, false), null),
+                XlsStreamingImporter.importFirstSheet(path, null));
+    }
+
+    @Test
+    void streamingListenerReceivesEveryStudent() throws Exception {
+        String path = writeStatement(new XSSFWorkbook(), "listener.xlsx");
+        List<Student> received = new ArrayList<>();
+        ExcelImportResult result = XlsxStreamingImporter.importFirstSheet(path, received::add);
+        assertEquals(names(result.getStudents()), names(received));
+    }
+
+    /**
+     * Записывает ведомость со всеми видами ячеек: строки, числа, формулы
+     * с сохраненным результатом, дата, пустые ячейки и строки итогов.
+     */
+    private String writeStatement(Workbook workbook, String fileName) throws IOException {
+        String path = directory.resolve(fileName).toString();
+        try (workbook) {
+            Sheet sheet = workbook.createSheet("Группа");
+            CellStyle dateStyle = workbook.createCellStyle();
+            dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("dd.mm.yyyy"));
+
+            Row row = sheet.createRow(0);
+            row.createCell(0).setCellValue("Предмет:");
+            row.createCell(1).setCellValue("Программирование на Java");
+            row = sheet.createRow(1);
+            row.createCell(0).setCellValue("Дата аттестации:");
+            row.createCell(1).setCellValue(46006); // 15.12.2025
+            row.getCell(1).setCellStyle(dateStyle);
+            row = sheet.createRow(2);
+            row.createCell(0).setCellValue("Email для отправки:");
+            row.createCell(1).setCellFormula("\"teacher\"&\"@bntu.by\"");
+
+            row = sheet.createRow(4);
+            for (int i = 0; i < PreparedSheet.HEADERS.length; i++) {
+                row.createCell(i).setCellValue(PreparedSheet.HEADERS[i]);
+            }
+
+            addStudent(sheet, 5, "Иванов Иван Иванович", 8);
+            addStudent(sheet, 6, "Петров Петр Петрович", 3);
+            row = sheet.createRow(7); // Оценка формулой
+            row.createCell(0).setCellValue(3);
+            row.createCell(1).setCellValue("Сидоров Сидор Сидорович");
+            row.createCell(2).setCellFormula("F8+2");
+            row.createCell(5).setCellValue(5); // Слагаемое формулы
+            row = sheet.createRow(8); // Имя формулой, без оценки
+            row.createCell(0).setCellValue(4);
+            row.createCell(1).setCellFormula("\"Кузнецова \"&\"Анна Сергеевна\"");
+            row.createCell(2).setBlank();
+            addStudent(sheet, 9, "Смирнова Ольга Павловна", 10);
+
+            sheet.createRow(11).createCell(0).setCellValue(PreparedSheet.SUMMARY_TITLE);
+            sheet.createRow(12).createCell(0).setCellValue("Всего студентов: 5");
+
+            // Результаты формул сохраняются в файле, как это делает Excel
+            workbook.getCreationHelper().createFormulaEvaluator().evaluateAll();
+            try (FileOutputStream out = new FileOutputStream(path)) {
+                workbook.write(out);
+            }
+        }
+        return path;
+    }
+
+    private static void addStudent(Sheet sheet, int rowNum, String name, int score) {
+        Row row = sheet.createRow(rowNum);
+        row.createCell(0).setCellValue(rowNum - 4);
+        row.createCell(1).setCellValue(name);
+        row.createCell(2).setCellValue(score);
+    }
+
+    private static void assertSameResult(ExcelImportResult expected, ExcelImportResult actual) {
+        assertEquals(5, expected.getStudents().size());
+        assertEquals(expected.getSubject(), actual.getSubject());
+        assertEquals(expected.getDate(), actual.getDate());
+        assertEquals(expected.getEmail(), actual.getEmail());
+        assertEquals(names(expected.getStudents()), names(actual.getStudents()));
+        assertEquals(scores(expected.getStudents()), scores(actual.getStudents()));
+    }
+
+    private static List<String> names(List<Student> students) {
+        List<String> names = new ArrayList<>();
+        for (Student student : students) {
+            names.add(student.getFullName());
+        }
+        return names;
+    }
+
+    private static List<Integer> scores(List<Student> students) {
+        List<Integer> scores = new ArrayList<>();
+        for (Student student : students) {
+            scores.add(student.getScore());
+        }
+        return scores;
+    }
+}
@@ -0,0 +1,95 @@
+package ui;
+
+import logic.ExamRecord;
+import logic.ExamRecordAccess;
+import logic.ScoreHistogram;
+import logic.Student;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Проверяет, что ведомость под таблицей не расходится с ее строками
+ * при любых правках и что статистика остается на гистограмме.
+ *
+ * @version 1.0
+ * @author Маленков Станислав Владимирович
+ */
+class StudentTableModelTest {
+
+    @Test
+    void recordStatisticsFollowTableEdits() {
+        ExamRecord record = new ExamRecord("Программирование на Java", "15.12.2025");
+        StudentTableModel model = new StudentTableModel(record);
+        Random random = new Random(7);
+
+        for (int step = 0; step < 20_000; step++) {
+            int rows = model.getRowCount();
+            int operation = random.nextInt(100);
+            if (operation < 30 || rows == 0) {
+                model.addStudent(new Student("Студент " + step, random.nextInt(12) - 1));
+            } else if (operation < 35) {
+                List<Student> group = new ArrayList<>();
+                for (int i = random.nextInt(20); i > 0; i--) {
+                    group.add(new Student("Группа " + step + "-" + i, random.nextInt(11)));
+                }
+                model.addStudents(group);
+            } else if (operation < 55) {
+                model.removeStudent(random.nextInt(rows));
+            } else if (operation < 80) {
+                model.setValueAt(random.nextBoolean() ? (Object) random.nextInt(11) : "Нет оценки",
+                        random.nextInt(rows), 2);
+            } else if (operation < 90) {
+                model.setValueAt("Переименован " + step, random.nextInt(rows), 1);
+            } else if (operation < 95) {
+                model.updateStudent(random.nextInt(rows), new Student("Заменен " + step, random.nextInt(11)));
+            } else if (operation < 96) {
+                model.clear();
+            } else {
+                model.getStudents(); // Снимки списка не должны ломать счетчики
+                record.snapshot();
+            }
+
+            if (step % 100 == 0) {
+                assertMatchesRows(model, record);
+            }
+        }
+        assertMatchesRows(model, record);
+        assertSame(record, model.getRecord());
+    }
+
+    /**
+     * Сверяет статистику ведомости с пересчетом по строкам таблицы.
+     */
+    private static void assertMatchesRows(StudentTableModel model, ExamRecord record) {
+        assertFalse(ExamRecordAccess.isShared(record), "Статистика ушла с гистограммы на проход по списку");
+        assertEquals(model.getRowCount(), record.getTotalStudents());
+
+        int[] expected = new int[ScoreHistogram.MAX_SCORE + 1];
+        int withGrade = 0;
+        int passed = 0;
+        for (int row = 0; row < model.getRowCount(); row++) {
+            Student student = model.getStudent(row);
+            assertSame(student, record.getStudent(row));
+            if (student.hasGrade()) {
+                expected[student.getScore()]++;
+                withGrade++;
+            }
+            if (student.hasGrade() && student.isPassed()) passed++;
+        }
+
+        assertEquals(withGrade, record.getStudentsWithGrade());
+        assertEquals(passed, record.getPassedCount());
+        assertEquals(withGrade - passed, record.getFailedCount());
+        ScoreHistogram actual = record.getHistogram();
+        for (int score = ScoreHistogram.MIN_SCORE; score <= ScoreHistogram.MAX_SCORE; score++) {
+            assertEquals(expected[score], actual.getCount(score), "Оценка " + score);
+        }
+    }
+}